@@ -16,13 +16,25 @@
 
 package com.squarespace.less.cli;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
 import com.squarespace.less.LessStats;
 import com.squarespace.less.cli.LessC.Args;
 import com.squarespace.less.core.Buffer;
+import com.squarespace.less.core.Constants;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.MixinProfiler;
 import com.squarespace.less.model.Stylesheet;
 
 
@@ -68,15 +80,62 @@ abstract class BaseCompile {
     return buf.toString();
   }
 
+  /**
+   * Returns the path of the CSS file for a stylesheet found under the batch
+   * input directory, creating its parent directories if the path is preserved.
+   */
+  protected Path batchOutputPath(Path input, Path output, Path path) throws IOException {
+    String[] fileParts = path.getFileName().toString().split("\\.(?=[^\\.]+$)");
+    Path cssPath = output;
+    if (args.batchPreservePath()) {
+      cssPath = cssPath.resolve(path.subpath(input.getNameCount(), path.getNameCount() - 1));
+      Files.createDirectories(cssPath);
+    }
+    return cssPath.resolve(fileParts[0] + ".css").normalize();
+  }
+
+  /**
+   * Renders the stylesheet, streaming the output into a temporary file which
+   * replaces the CSS file only once rendering succeeds.
+   */
+  protected void renderToFile(Stylesheet stylesheet, LessContext ctx, Path cssPath)
+      throws LessException, IOException {
+    LessStats stats = ctx.stats();
+    long started = stats.now();
+    Path temp = cssPath.resolveSibling(cssPath.getFileName() + ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temp, Charset.forName(Constants.UTF8))) {
+        compiler.render(stylesheet, ctx, writer);
+      }
+      Files.move(temp, cssPath, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    stats.compileDone(started);
+  }
+
+  /**
+   * Emits the compile statistics and the phase timing tree as JSON.
+   */
   protected void emitStats(LessStats stats) {
-    log(" Statistics:\n");
-    log("      parse time: " + stats.parseTimeMs() + "ms");
-    log("    compile time: " + stats.compileTimeMs() + "ms");
-    log("  disk wait time: " + stats.diskWaitTimeMs() + "ms");
-    log("    import count: " + stats.importCount());
-    log("max import depth: " + stats.maxImportDepth());
-    log(" max mixin depth: " + stats.maxMixinDepth());
-    log("\n");
+    standardErr.println(stats.toJson());
+  }
+
+  /**
+   * Emits the mixin profiler's top-N report and writes its collapsed stacks.
+   */
+  protected int emitProfile(MixinProfiler profiler) {
+    if (args.profileMixins() != null) {
+      standardErr.print(profiler.report(args.profileMixins()));
+    }
+    if (args.profileStacks() != null) {
+      try {
+        LessUtils.writeFile(Paths.get(args.profileStacks()), profiler.collapsedStacks());
+      } catch (IOException e) {
+        return fail("error writing '" + args.profileStacks() + "': " + e.getMessage());
+      }
+    }
+    return OK;
   }
 
   protected void emitMemory(String phase) {
@@ -98,14 +157,22 @@ abstract class BaseCompile {
   }
 
   protected void logElapsed(String prefix, long start, long end) {
+    logElapsed(standardErr, prefix, start, end);
+  }
+
+  protected void logElapsed(PrintStream out, String prefix, long start, long end) {
     double compileElapsed = (end - start) / 1000000.0;
-    standardErr.printf("%s %.3fms\n", prefix, compileElapsed);
+    out.printf("%s %.3fms\n", prefix, compileElapsed);
   }
 
   protected void log(String msg) {
-    standardErr.print(args.programName());
-    standardErr.print(": ");
-    standardErr.println(msg);
+    log(standardErr, msg);
+  }
+
+  protected void log(PrintStream out, String msg) {
+    out.print(args.programName());
+    out.print(": ");
+    out.println(msg);
   }
 
 }
@@ -17,30 +17,47 @@
 package com.squarespace.less.cli;
 
 import com.squarespace.less.LessContext;
+import com.squarespace.less.LessContextPool;
 import com.squarespace.less.LessException;
 import com.squarespace.less.cli.LessC.Args;
 import com.squarespace.less.core.ErrorUtils;
 import com.squarespace.less.core.LessUtils;
 import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.Dependency;
+import com.squarespace.less.parse.ImportCache;
+import com.squarespace.less.parse.LruImportCache;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 /**
  * Compiles a batch of files.
+ *
+ * Each file is parsed, compiled and written by its own task on a work-stealing
+ * pool of {@code --jobs} threads. The tasks share one import cache, which
+ * lets tasks importing the same partial wait for a single load of it, so
+ * each imported partial is read and parsed once. The import graph is recorded
+ * from the files each task read once all tasks complete. Log output for each
+ * file is buffered and emitted in input order, so the log is the same however
+ * the tasks are scheduled.
  */
 class CompileBatch extends BaseCompile {
 
     static final String DEFAULT_INCLUDE_PATTTERN = "glob:[!_]*.less";
     static final boolean DEFAULT_PRESERVE_PATH = false;
+    static final int DEFAULT_JOBS = 1;
 
     CompileBatch(Args args, PrintStream out, PrintStream err) {
         super(args, out, err, System.in);
@@ -72,59 +89,53 @@ class CompileBatch extends BaseCompile {
             return ERR;
         }
 
-        Map<Path, Stylesheet> cache = new HashMap<>();
+        int jobs = args.jobs() > 0 ? args.jobs() : Runtime.getRuntime().availableProcessors();
+        ImportCache importCache = new LruImportCache(Integer.MAX_VALUE);
+        LessContextPool contextPool = compiler.newContextPool(args.compilerOptions(), null, jobs, importCache);
+        ImportGraph graph = new ImportGraph();
+        ForkJoinPool pool = new ForkJoinPool(jobs);
         boolean error = false;
 
         try {
-            log("Parsing and caching stylesheets:\n");
-            List<Path> lessPaths = LessUtils.getMatchingFiles(input, args.pathPattern(), true);
-            for (Path path : lessPaths) {
-                try {
-                    path = input.resolve(path).toAbsolutePath().normalize();
-                    Stylesheet sheet = parse(path);
-                    cache.put(path, sheet);
-
-                } catch (LessException e) {
-                    error = true;
-                }
-            }
-            if (args.verbose()) {
-                emitMemory("post-parse");
-            }
-
             log("Compiling stylesheets:\n");
             Files.createDirectories(output);
+            List<Path> lessPaths = LessUtils.getMatchingFiles(input, args.pathPattern(), true);
+            List<CompileTask> tasks = new ArrayList<>(lessPaths.size());
+            List<Future<Boolean>> results = new ArrayList<>(lessPaths.size());
+            List<ByteArrayOutputStream> logs = new ArrayList<>(lessPaths.size());
             for (Path path : lessPaths) {
                 path = input.resolve(path).toAbsolutePath().normalize();
-                Stylesheet stylesheet = cache.get(path);
-                if (stylesheet == null) {
-                    log("ERROR: '" + path + "' was not cached.\n");
-                    continue;
-                }
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                logs.add(buf);
+                CompileTask task = new CompileTask(path, input, output, contextPool, new PrintStream(buf, true));
+                tasks.add(task);
+                results.add(pool.submit(task));
+            }
 
-                Path fileName = path.getFileName();
-                String[] fileParts = fileName.toString().split("\\.(?=[^\\.]+$)");
-                Path cssPath = output;
-                if (args.batchPreservePath()) {
-                    cssPath = cssPath.resolve(path.subpath(input.getNameCount(), path.getNameCount() - 1));
-                    Files.createDirectories(cssPath);
-                }
-                cssPath = cssPath.resolve(fileParts[0] + ".css").normalize();
-                log("compiling " + fileName + " to " + cssPath);
-                LessContext ctx = new LessContext(args.compilerOptions());
-                ctx.setFunctionTable(compiler.functionTable());
+            // Emit each file's log in input order as soon as it and all files
+            // before it have completed, and record the files each one read.
+            int imports = 0;
+            int fileReads = 0;
+            for (int i = 0; i < results.size(); i++) {
                 try {
-
-                    long compileStart = System.nanoTime();
-                    String css = compiler.render(stylesheet.copy(), ctx);
-                    LessUtils.writeFile(cssPath, css);
-                    logElapsed(" ", compileStart, System.nanoTime());
-
-                } catch (LessException e) {
-                    standardErr.println("\n\n" + ErrorUtils.formatError(ctx, path, e, 4) + SEPARATOR + "\n");
+                    if (!results.get(i).get()) {
+                        error = true;
+                    }
+                } catch (ExecutionException e) {
+                    log(new PrintStream(logs.get(i), true), "ERROR: " + e.getCause().getMessage());
                     error = true;
                 }
+                standardErr.print(logs.get(i).toString());
+
+                CompileTask task = tasks.get(i);
+                if (task.dependencies != null) {
+                    graph.add(task.path, task.dependencies);
+                }
+                imports += task.imports;
+                fileReads += task.fileReads;
             }
+            log(imports + " imports of " + graph.imported().size() + " distinct files, "
+                    + (imports - fileReads) + " file reads and parses saved\n");
 
         } catch (NoSuchFileException e) {
             log("ERROR: cannot locate path " + e.getMessage());
@@ -133,6 +144,13 @@ class CompileBatch extends BaseCompile {
         } catch (IOException e) {
             log("ERROR: " + e.getMessage());
             error = true;
+
+        } catch (InterruptedException e) {
+            log("ERROR: interrupted");
+            error = true;
+
+        } finally {
+            pool.shutdown();
         }
 
         if (args.verbose()) {
@@ -148,24 +166,76 @@ class CompileBatch extends BaseCompile {
     }
 
     /**
-     * Read and parse the stylesheet.
+     * Parses and compiles one stylesheet and writes its output, logging to a
+     * per-file buffer.
      */
-    private Stylesheet parse(Path path) throws LessException, IOException {
-        LessContext ctx = new LessContext(args.compilerOptions());
-        ctx.setFunctionTable(compiler.functionTable());
-        try {
-            String data = LessUtils.readFile(path);
-            Stylesheet result = null;
-            log("parsing " + path + " ");
-            long start = System.nanoTime();
-            result = compiler.parse(data, ctx, path);
-            double elapsed = (System.nanoTime() - start) / 1000000.0;
-            standardErr.printf(" %.3fms\n", elapsed);
-            return result;
-
-        } catch (LessException e) {
-            standardErr.println("\n\n" + ErrorUtils.formatError(ctx, path, e, 4) + SEPARATOR + "\n");
-            return null;
+    private class CompileTask implements Callable<Boolean> {
+
+        private final Path path;
+        private final Path input;
+        private final Path output;
+        private final LessContextPool contextPool;
+        private final PrintStream out;
+
+        /**
+         * Files read while parsing, or null if the stylesheet failed to parse.
+         */
+        private List<Dependency> dependencies;
+        private int imports;
+        private int fileReads;
+
+        CompileTask(Path path, Path input, Path output, LessContextPool contextPool, PrintStream out) {
+            this.path = path;
+            this.input = input;
+            this.output = output;
+            this.contextPool = contextPool;
+            this.out = out;
+        }
+
+        @Override
+        public Boolean call() throws IOException {
+            LessContext ctx = contextPool.acquire();
+            try {
+                Stylesheet stylesheet = parse(ctx);
+                imports = ctx.stats().importCount();
+                fileReads = ctx.stats().fileReads();
+                if (stylesheet == null) {
+                    return false;
+                }
+                dependencies = new ArrayList<>(ctx.importer().dependencies());
+
+                Path cssPath = batchOutputPath(input, output, path);
+                log(out, "compiling " + path.getFileName() + " to " + cssPath);
+                long compileStart = System.nanoTime();
+                renderToFile(stylesheet, ctx, cssPath);
+                logElapsed(out, " ", compileStart, System.nanoTime());
+                return true;
+
+            } catch (LessException e) {
+                out.println("\n\n" + ErrorUtils.formatError(ctx, path, e, 4) + SEPARATOR + "\n");
+                return false;
+
+            } finally {
+                contextPool.release(ctx);
+            }
+        }
+
+        /**
+         * Read and parse the stylesheet, returning null if it fails to parse.
+         */
+        private Stylesheet parse(LessContext ctx) throws IOException {
+            try {
+                String data = LessUtils.readFile(path);
+                log(out, "parsing " + path + " ");
+                long start = System.nanoTime();
+                Stylesheet result = compiler.parse(data, ctx, path);
+                logElapsed(out, "", start, System.nanoTime());
+                return result;
+
+            } catch (LessException e) {
+                out.println("\n\n" + ErrorUtils.formatError(ctx, path, e, 4) + SEPARATOR + "\n");
+                return null;
+            }
         }
     }
 
@@ -27,6 +27,7 @@ import com.squarespace.less.LessException;
 import com.squarespace.less.cli.LessC.Args;
 import com.squarespace.less.core.ErrorUtils;
 import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.MixinProfiler;
 import com.squarespace.less.model.Stylesheet;
 
 
@@ -67,22 +68,27 @@ class CompileSingle extends BaseCompile {
     int code = OK;
     LessContext ctx = new LessContext(args.compilerOptions());
     ctx.setFunctionTable(compiler.functionTable());
+    MixinProfiler profiler = null;
+    if (args.profileEnabled()) {
+      profiler = new MixinProfiler();
+      ctx.setMixinProfiler(profiler);
+    }
     try {
       if (args.debugMode() == null) {
-        // Normal compile
-        String result = compiler.compile(source, ctx, input);
+        // Normal compile, streaming the output as it is rendered.
         if (args.lintOnly()) {
+          compiler.compile(source, ctx, input);
           return OK;
         }
         String output = args.output();
-        if (output != null) {
-          try {
-            LessUtils.writeFile(Paths.get(output), result);
-          } catch (IOException e) {
-            return fail(e.getMessage());
+        try {
+          if (output != null) {
+            renderToFile(compiler.parse(source, ctx, input), ctx, Paths.get(output));
+          } else {
+            compiler.compile(source, ctx, input, standardOut);
           }
-        } else {
-          standardOut.print(result);
+        } catch (IOException e) {
+          return fail(e.getMessage());
         }
 
       } else {
@@ -121,6 +127,10 @@ class CompileSingle extends BaseCompile {
       emitStats(ctx.stats());
     }
 
+    if (profiler != null && emitProfile(profiler) != OK) {
+      code = ERR;
+    }
+
     if (args.verbose()) {
       emitMemory("post-compile");
     }
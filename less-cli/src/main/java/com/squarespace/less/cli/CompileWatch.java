@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.cli;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessStats;
+import com.squarespace.less.cli.LessC.Args;
+import com.squarespace.less.core.ErrorUtils;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.parse.ImportCache;
+import com.squarespace.less.parse.LruImportCache;
+
+
+/**
+ * Compiles a file, or a directory of files in batch mode, then watches the
+ * inputs and everything they import, recompiling only the entries affected by
+ * each change.
+ *
+ * Parsed imports are kept in an import cache for the life of the command, so
+ * a rebuild only re-parses the files which changed.
+ */
+class CompileWatch extends BaseCompile {
+
+  /**
+   * Time to wait for further changes after one is seen, so that a burst of
+   * events from a single save triggers one rebuild.
+   */
+  private static final long SETTLE_MS = 50;
+
+  private static final long POLL_MS = 250;
+
+  private final ImportCache importCache = new LruImportCache(Integer.MAX_VALUE);
+
+  private final ImportGraph graph = new ImportGraph();
+
+  private final Map<WatchKey, Path> watched = new HashMap<>();
+
+  private final Set<Path> watchedDirs = new LinkedHashSet<>();
+
+  private volatile boolean running = true;
+
+  private WatchService watcher;
+
+  private Path input;
+
+  private Path output;
+
+  private PathMatcher matcher;
+
+  CompileWatch(Args args, PrintStream out, PrintStream err) {
+    super(args, out, err, System.in);
+  }
+
+  /**
+   * Stops the watch loop after the current rebuild completes.
+   */
+  void stop() {
+    running = false;
+  }
+
+  @Override
+  public int process() {
+    input = Paths.get(args.input()).toAbsolutePath().normalize();
+    if (args.batchMode()) {
+      if (!input.toFile().isDirectory()) {
+        return fail("the path '" + input + "' cannot be read.\n");
+      }
+      output = (args.output() == null) ? input : Paths.get(args.output()).toAbsolutePath();
+      matcher = FileSystems.getDefault().getPathMatcher(args.pathPattern());
+    } else {
+      if (!input.toFile().isFile()) {
+        return fail("the path '" + input + "' cannot be read.");
+      }
+      output = (args.output() == null) ? null : Paths.get(args.output()).toAbsolutePath();
+    }
+
+    try {
+      watcher = FileSystems.getDefault().newWatchService();
+      try {
+        Set<Path> entries = new LinkedHashSet<>();
+        if (args.batchMode()) {
+          Files.createDirectories(output);
+          watchTree(input);
+          for (Path path : LessUtils.getMatchingFiles(input, args.pathPattern(), true)) {
+            entries.add(input.resolve(path).normalize());
+          }
+        } else {
+          watchDir(input.getParent());
+          entries.add(input);
+        }
+        rebuild(entries);
+
+        log("Watching for changes, press Ctrl-C to exit\n");
+        while (running) {
+          Set<Path> changed = awaitChanges();
+          if (!changed.isEmpty()) {
+            rebuild(affectedEntries(changed));
+          }
+        }
+      } finally {
+        watcher.close();
+      }
+
+    } catch (IOException e) {
+      return fail("ERROR: " + e.getMessage());
+
+    } catch (InterruptedException e) {
+      log("interrupted");
+    }
+    return OK;
+  }
+
+  /**
+   * Waits for file changes, returning the set of changed paths once events
+   * stop arriving. Returns an empty set if nothing changed before the poll
+   * timeout.
+   */
+  private Set<Path> awaitChanges() throws IOException, InterruptedException {
+    Set<Path> changed = new LinkedHashSet<>();
+    WatchKey key = watcher.poll(POLL_MS, TimeUnit.MILLISECONDS);
+    while (key != null) {
+      Path dir = watched.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW || dir == null) {
+          // Events were lost, so treat every known file as changed.
+          changed.addAll(graph.entries());
+          changed.addAll(graph.imported());
+          continue;
+        }
+        Path path = dir.resolve((Path)event.context()).normalize();
+        if (event.kind() == ENTRY_CREATE && args.batchMode() && Files.isDirectory(path)) {
+          watchTree(path);
+          for (Path file : LessUtils.getMatchingFiles(path, args.pathPattern(), true)) {
+            changed.add(path.resolve(file).normalize());
+          }
+        }
+        changed.add(path);
+      }
+      if (!key.reset()) {
+        watchedDirs.remove(watched.remove(key));
+      }
+      key = watcher.poll(SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the entries which must be rebuilt because they, or a file they
+   * import, changed.
+   */
+  private Set<Path> affectedEntries(Set<Path> changed) {
+    Set<Path> entries = new LinkedHashSet<>();
+    for (Path path : changed) {
+      importCache.remove(path);
+      if (isEntry(path)) {
+        entries.add(path);
+      }
+      entries.addAll(graph.dependentsOf(path));
+    }
+    return entries;
+  }
+
+  private boolean isEntry(Path path) {
+    if (!args.batchMode()) {
+      return path.equals(input);
+    }
+    return graph.entries().contains(path)
+        || (path.startsWith(input) && matcher.matches(path.getFileName()));
+  }
+
+  /**
+   * Recompiles the given entries and reports the timings for each.
+   */
+  private void rebuild(Set<Path> entries) throws IOException {
+    long start = System.nanoTime();
+    int failures = 0;
+    for (Path entry : entries) {
+      if (!Files.isRegularFile(entry)) {
+        // Entry was deleted.
+        graph.remove(entry);
+        continue;
+      }
+      if (!compile(entry)) {
+        failures++;
+      }
+    }
+    String message = "rebuilt " + entries.size() + " of " + graph.entries().size() + " entries";
+    if (failures > 0) {
+      message += ", " + failures + " failed";
+    }
+    logElapsed(args.programName() + ": " + message + " in", start, System.nanoTime());
+  }
+
+  /**
+   * Parses and compiles one entry, updates the import graph and watches the
+   * directories of any newly-imported files.
+   */
+  private boolean compile(Path entry) throws IOException {
+    LessContext ctx = new LessContext(args.compilerOptions());
+    ctx.setFunctionTable(compiler.functionTable());
+    ctx.setImportCache(importCache);
+    try {
+      String source = LessUtils.readFile(entry);
+      Path cssPath = null;
+      if (args.batchMode()) {
+        cssPath = batchOutputPath(input, output, entry);
+      } else {
+        cssPath = output;
+      }
+      if (cssPath == null) {
+        compiler.compile(source, ctx, entry, standardOut);
+        standardOut.flush();
+      } else {
+        renderToFile(compiler.parse(source, ctx, entry), ctx, cssPath);
+      }
+      LessStats stats = ctx.stats();
+      standardErr.printf("%s: compiled %s (parse %.3fms, compile %.3fms, %d imports, %d files read)\n",
+          args.programName(), entry.getFileName(), stats.parseTimeMs(), stats.compileTimeMs(),
+          stats.importCount(), stats.fileReads());
+      return true;
+
+    } catch (LessException e) {
+      standardErr.println("\n\n" + ErrorUtils.formatError(ctx, entry, e, 4) + SEPARATOR + "\n");
+      return false;
+
+    } finally {
+      // Record whatever was imported, even on failure, so a fix to any of
+      // those files triggers another attempt.
+      graph.add(entry, ctx.importer().dependencies());
+      for (Path path : graph.importsOf(entry)) {
+        watchDir(path.getParent());
+      }
+    }
+  }
+
+  private void watchTree(Path root) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        watchDir(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void watchDir(Path dir) throws IOException {
+    if (dir != null && watchedDirs.add(dir)) {
+      WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      watched.put(key, dir);
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.cli;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.squarespace.less.parse.Dependency;
+
+
+/**
+ * Maps entry stylesheets to the files they import, directly or transitively,
+ * and each imported file back to the entries which depend on it.
+ */
+class ImportGraph {
+
+  private final Map<Path, List<Path>> imports = new LinkedHashMap<>();
+
+  private final Map<Path, Set<Path>> dependents = new LinkedHashMap<>();
+
+  /**
+   * Records the files read while parsing the entry, replacing any previous record.
+   */
+  public void add(Path entry, List<Dependency> dependencies) {
+    remove(entry);
+    List<Path> paths = new ArrayList<>(dependencies.size());
+    for (Dependency dependency : dependencies) {
+      Path path = dependency.path();
+      paths.add(path);
+      Set<Path> entries = dependents.get(path);
+      if (entries == null) {
+        entries = new LinkedHashSet<>();
+        dependents.put(path, entries);
+      }
+      entries.add(entry);
+    }
+    imports.put(entry, paths);
+  }
+
+  /**
+   * Removes the entry and its imports from the graph.
+   */
+  public void remove(Path entry) {
+    List<Path> paths = imports.remove(entry);
+    if (paths == null) {
+      return;
+    }
+    for (Path path : paths) {
+      Set<Path> entries = dependents.get(path);
+      entries.remove(entry);
+      if (entries.isEmpty()) {
+        dependents.remove(path);
+      }
+    }
+  }
+
+  /**
+   * Entry stylesheets in the graph, in the order they were added.
+   */
+  public Set<Path> entries() {
+    return Collections.unmodifiableSet(imports.keySet());
+  }
+
+  /**
+   * Distinct files imported by any entry.
+   */
+  public Set<Path> imported() {
+    return Collections.unmodifiableSet(dependents.keySet());
+  }
+
+  /**
+   * Files imported by the entry, directly or transitively.
+   */
+  public List<Path> importsOf(Path entry) {
+    List<Path> paths = imports.get(entry);
+    return paths == null ? Collections.<Path>emptyList() : Collections.unmodifiableList(paths);
+  }
+
+  /**
+   * Entries which import the file, directly or transitively.
+   */
+  public Set<Path> dependentsOf(Path path) {
+    Set<Path> entries = dependents.get(path);
+    return entries == null ? Collections.<Path>emptySet() : Collections.unmodifiableSet(entries);
+  }
+
+}
@@ -82,7 +82,9 @@ public class LessC {
 
         // Select the implementation based on the parsed arguments.
         BaseCompile impl = null;
-        if (args.batchMode()) {
+        if (args.watch()) {
+            impl = new CompileWatch(args, out, err);
+        } else if (args.batchMode()) {
             impl = new CompileBatch(args, out, err);
         } else {
             impl = new CompileSingle(args, out, err, in);
@@ -103,7 +105,8 @@ public class LessC {
                 .setDefault("recursion_limit", LessOptions.DEFAULT_RECURSION_LIMIT)
                 .setDefault("indent", LessOptions.DEFAULT_INDENT)
                 .setDefault("batch_preserve_path", CompileBatch.DEFAULT_PRESERVE_PATH)
-                .setDefault("batch_include_pattern", CompileBatch.DEFAULT_INCLUDE_PATTTERN);
+                .setDefault("batch_include_pattern", CompileBatch.DEFAULT_INCLUDE_PATTTERN)
+                .setDefault("jobs", CompileBatch.DEFAULT_JOBS);
 
         parser.addArgument("--batch", "-b")
                 .action(Arguments.storeTrue())
@@ -136,6 +139,11 @@ public class LessC {
                 .type(String.class)
                 .help("Set include paths. Separated by ':'. Use ';' on Windows");
 
+        parser.addArgument("--jobs", "-j")
+                .metavar("N")
+                .type(Integer.class)
+                .help("Number of stylesheets to compile in parallel in batch mode. Use 0 for one per processor.");
+
         parser.addArgument("--lint", "-l")
                 .action(Arguments.storeTrue())
                 .help("Syntax check only (lint).");
@@ -152,9 +160,20 @@ public class LessC {
                 .setDefault(LessOptions.DEFAULT_RECURSION_LIMIT)
                 .help("Sets the import recursion depth limit.");
 
-        parser.addArgument("--statistics", "-s")
+        parser.addArgument("--profile-mixins")
+                .metavar("TOP")
+                .type(Integer.class)
+                .help("Profile mixin execution and report the TOP mixins by self time.");
+
+        parser.addArgument("--profile-stacks")
+                .metavar("PATH")
+                .type(String.class)
+                .help("Profile mixin execution and write collapsed stacks for flame graphs to PATH.");
+
+        parser.addArgument("--statistics", "--stats", "-s")
+                .dest("statistics")
                 .action(Arguments.storeTrue())
-                .help("Output compile statistics");
+                .help("Output compile statistics and phase timings as JSON");
 
         parser.addArgument("--strict")
                 .action(Arguments.storeTrue())
@@ -176,6 +195,10 @@ public class LessC {
                 .action(Arguments.storeTrue())
                 .help("Waits for user input before executing. For profiling purposes.");
 
+        parser.addArgument("--watch")
+                .action(Arguments.storeTrue())
+                .help("Compile, then watch the input and its imports and recompile affected files on change.");
+
         parser.addArgument("--compress", "-x")
                 .action(Arguments.storeTrue())
                 .help("Enables compressing whitespace (minification)");
@@ -212,12 +235,16 @@ public class LessC {
             cmdArgs.batchMode = res.getBoolean("batch");
             cmdArgs.batchPreservePath = res.getBoolean("batch_preserve_path");
             cmdArgs.includePattern = res.getString("batch_include_pattern");
+            cmdArgs.jobs = res.getInt("jobs");
             cmdArgs.compilerOptions = opts;
             cmdArgs.debugMode = res.get("debug");
             cmdArgs.lintOnly = res.getBoolean("lint");
             cmdArgs.statistics = res.getBoolean("statistics");
+            cmdArgs.profileMixins = res.getInt("profile_mixins");
+            cmdArgs.profileStacks = res.getString("profile_stacks");
             cmdArgs.verbose = res.getBoolean("verbose");
             cmdArgs.waitForUser = res.getBoolean("wait");
+            cmdArgs.watch = res.getBoolean("watch");
 
             if (cmdArgs.verbose() && cmdArgs.debugMode() != null) {
                 dumpArguments(res);
@@ -289,9 +316,15 @@ public class LessC {
 
         private boolean statistics;
 
+        private Integer profileMixins;
+
+        private String profileStacks;
+
         private boolean verbose;
         private boolean waitForUser;
         private String includePattern;
+        private int jobs;
+        private boolean watch;
 
 
         private Args() {
@@ -333,6 +366,18 @@ public class LessC {
             return statistics;
         }
 
+        public boolean profileEnabled() {
+            return profileMixins != null || profileStacks != null;
+        }
+
+        public Integer profileMixins() {
+            return profileMixins;
+        }
+
+        public String profileStacks() {
+            return profileStacks;
+        }
+
         public boolean verbose() {
             return verbose;
         }
@@ -344,6 +389,14 @@ public class LessC {
         public String pathPattern() {
             return includePattern;
         }
+
+        public int jobs() {
+            return jobs;
+        }
+
+        public boolean watch() {
+            return watch;
+        }
     }
 
 }
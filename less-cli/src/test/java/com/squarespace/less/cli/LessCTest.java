@@ -122,6 +122,25 @@ public class LessCTest extends LessSuiteBase {
     assertFilesEqual(expectedPath, tempFile.toPath());
   }
 
+  @Test
+  public void testStats() throws LessException, IOException {
+    String lessPath = testSuiteRoot().resolve("less/directive.less").toString();
+    compile("--stats", lessPath);
+    String err = standardErr.toString().trim();
+    assertTrue(err.startsWith("{\"parseTimeMs\":"), err);
+    assertTrue(err.contains("\"name\":\"render\""), err);
+    assertTrue(err.endsWith("}}"), err);
+  }
+
+  @Test
+  public void testProfileMixins() throws LessException, IOException {
+    tempFile = Files.createTempFile("lessc-unit-test", ".stacks").toFile();
+    compileStdin(".m() { color: red; } .x { .m(); }", "--profile-mixins", "5", "--profile-stacks",
+        tempFile.toString(), "-");
+    assertTrue(standardErr.toString().contains(".m() ([source]:1)"), standardErr.toString());
+    assertTrue(LessUtils.readFile(tempFile.toPath()).startsWith(".m()_([source]:1) "));
+  }
+
   @Test
   public void testDebugParse() throws LessException, IOException {
     Path lessPath = testSuiteRoot().resolve("less/directive.less");
@@ -151,6 +170,109 @@ public class LessCTest extends LessSuiteBase {
     }
   }
 
+  @Test
+  public void testParallelBatchCompile() throws LessException, IOException {
+    Path lessPath = testSuiteRoot().resolve("less");
+    tempFile = Files.createTempDirectory("lessc-batch-unit-test").toFile();
+    int code = compile("--batch", "--jobs", "4", lessPath.toString(), tempFile.toString());
+    assertEquals(code, 0);
+
+    Path cssPath = testSuiteRoot().resolve("css");
+    String pattern = "glob:*.css";
+    for (Path expectedPath : LessUtils.getMatchingFiles(cssPath, pattern)) {
+      Path actualPath = tempFile.toPath().resolve(expectedPath.getFileName());
+      assertFilesEqual(expectedPath, actualPath);
+    }
+
+    // Log output for each file is emitted in input order.
+    int last = -1;
+    for (Path path : LessUtils.getMatchingFiles(lessPath, CompileBatch.DEFAULT_INCLUDE_PATTTERN, true)) {
+      int index = standardErr.toString().indexOf("parsing " + lessPath.resolve(path).normalize() + " ");
+      assertTrue(index > last, "log for " + path + " out of order");
+      last = index;
+    }
+  }
+
+  @Test
+  public void testBatchSharedImports() throws LessException, IOException {
+    tempFile = Files.createTempDirectory("lessc-batch-unit-test").toFile();
+    Path root = tempFile.toPath();
+    LessUtils.writeFile(root.resolve("_vars.less"), "@color: #abc;");
+    LessUtils.writeFile(root.resolve("a.less"), "@import '_vars.less'; .a { color: @color; }");
+    LessUtils.writeFile(root.resolve("b.less"), "@import '_vars.less'; .b { color: @color; }");
+    int code = compile("--batch", "--compress", root.toString());
+    assertEquals(code, 0);
+
+    // The partial is parsed by the first entry and reused by the second.
+    assertTrue(standardErr.toString().contains("2 imports of 1 distinct files, 1 file reads and parses saved"));
+    assertEquals(LessUtils.readFile(root.resolve("a.css")), ".a{color:#abc}");
+    assertEquals(LessUtils.readFile(root.resolve("b.css")), ".b{color:#abc}");
+  }
+
+  @Test
+  public void testBatchSharedImportsJobs() throws LessException, IOException {
+    tempFile = Files.createTempDirectory("lessc-batch-unit-test").toFile();
+    Path root = tempFile.toPath();
+    LessUtils.writeFile(root.resolve("_vars.less"), "@color: #abc;");
+    for (int i = 0; i < 6; i++) {
+      LessUtils.writeFile(root.resolve("e" + i + ".less"), "@import '_vars.less'; .e" + i + " { color: @color; }");
+    }
+    int code = compile("--batch", "--compress", "--jobs", "4", root.toString());
+    assertEquals(code, 0);
+
+    // Entries compiled at once share a single parse of the partial.
+    assertTrue(standardErr.toString().contains("6 imports of 1 distinct files, 5 file reads and parses saved"));
+    for (int i = 0; i < 6; i++) {
+      assertEquals(LessUtils.readFile(root.resolve("e" + i + ".css")), ".e" + i + "{color:#abc}");
+    }
+  }
+
+  @Test
+  public void testWatch() throws Exception {
+    tempFile = Files.createTempDirectory("lessc-watch-unit-test").toFile();
+    Path root = tempFile.toPath();
+    LessUtils.writeFile(root.resolve("_vars.less"), "@color: #abc;");
+    LessUtils.writeFile(root.resolve("a.less"), "@import '_vars.less'; .a { color: @color; }");
+    LessUtils.writeFile(root.resolve("b.less"), "@import '_vars.less'; .b { color: @color; }");
+    LessUtils.writeFile(root.resolve("c.less"), ".c { color: red; }");
+
+    String[] args = new String[] { "--batch", "--watch", "--compress", root.toString() };
+    final CompileWatch watch = new CompileWatch(new LessC(System.err).parseArguments(args),
+        new PrintStream(standardOut), new PrintStream(standardErr));
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        watch.process();
+      }
+    };
+    thread.start();
+    try {
+      awaitLog("Watching for changes");
+      assertTrue(standardErr.toString().contains("rebuilt 3 of 3 entries"));
+      assertEquals(LessUtils.readFile(root.resolve("a.css")), ".a{color:#abc}");
+
+      // Only the entries importing the changed partial are rebuilt.
+      LessUtils.writeFile(root.resolve("_vars.less"), "@color: #def;");
+      awaitLog("rebuilt 2 of 3 entries");
+      assertEquals(LessUtils.readFile(root.resolve("a.css")), ".a{color:#def}");
+      assertEquals(LessUtils.readFile(root.resolve("b.css")), ".b{color:#def}");
+
+    } finally {
+      watch.stop();
+      thread.join();
+    }
+  }
+
+  private void awaitLog(String message) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 20000;
+    while (!standardErr.toString().contains(message)) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("timed out waiting for '" + message + "' in:\n" + standardErr);
+      }
+      Thread.sleep(20);
+    }
+  }
+
   @Test
   public void testVersion() throws LessException {
     try {
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessEvaluator;
+import com.squarespace.less.model.Stylesheet;
+
+
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@Warmup(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EvaluatorBenchmark {
+
+  @Benchmark
+  public Stylesheet evaluateLarge(BenchmarkState state) throws LessException {
+    return state.evaluate();
+  }
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    private static final LessCompiler COMPILER = new LessCompiler();
+
+    private static final int COPIES = 100;
+
+    private Stylesheet stylesheet;
+
+    @Setup
+    public void setupResources() throws RunnerException, LessException {
+      String example;
+      try {
+        example = LessUtils.loadResource(EvaluatorBenchmark.class, "example.less");
+      } catch (IOException e) {
+        throw new RunnerException("Failed to init benchmark state", e);
+      }
+
+      // Each copy of the example is wrapped in its own namespace, so the mixin
+      // calls only match the mixins defined alongside them.
+      StringBuilder buf = new StringBuilder();
+      for (int i = 0; i < COPIES; i++) {
+        buf.append(".theme-").append(i).append(" {\n").append(example).append("\n}\n");
+      }
+      stylesheet = COMPILER.parse(buf.toString(), new LessContext());
+    }
+
+    public Stylesheet evaluate() throws LessException {
+      return new LessEvaluator(new LessContext()).evaluate(stylesheet);
+    }
+  }
+
+}
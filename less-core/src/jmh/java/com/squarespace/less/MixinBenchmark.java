@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squarespace.less.model.Stylesheet;
+
+
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@Warmup(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MixinBenchmark {
+
+  @Benchmark
+  public String renderMixinCalls(BenchmarkState state) throws LessException {
+    return state.render();
+  }
+
+  @Benchmark
+  public String renderRepeatedCalls(RepeatedState state) throws LessException {
+    return state.render();
+  }
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    private static final LessCompiler COMPILER = new LessCompiler();
+
+    private static final int MIXINS = 1500;
+
+    private static final int CALLS = 2000;
+
+    private Stylesheet stylesheet;
+
+    @Setup
+    public void setupResources() throws LessException {
+      // A theme calling into a large mixin library.
+      StringBuilder buf = new StringBuilder();
+      for (int i = 0; i < MIXINS; i++) {
+        buf.append(".mixin-").append(i).append("(@a) { width: @a; }\n");
+      }
+      for (int i = 0; i < CALLS; i++) {
+        buf.append(".rule-").append(i).append(" { .mixin-").append((i * 7) % MIXINS).append("(1px); }\n");
+      }
+      stylesheet = COMPILER.parse(buf.toString(), new LessContext());
+    }
+
+    public String render() throws LessException {
+      return COMPILER.render(stylesheet, new LessContext());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class RepeatedState {
+
+    private static final LessCompiler COMPILER = new LessCompiler();
+
+    private static final int CALLS = 2000;
+
+    @Param({"true", "false"})
+    public boolean memo;
+
+    private Stylesheet stylesheet;
+
+    @Setup
+    public void setupResources() throws LessException {
+      // A few utility mixins called over and over with the same arguments.
+      StringBuilder buf = new StringBuilder();
+      buf.append(".button(@color; @size) {\n")
+          .append("  color: contrast(@color); background: @color; padding: @size (@size * 2);\n")
+          .append("  border: 1px solid darken(@color, 10%); font-size: @size * 1.5;\n")
+          .append("  &:hover { background: lighten(@color, 5%); border-color: darken(@color, 15%); }\n")
+          .append("}\n");
+      for (int i = 0; i < CALLS; i++) {
+        buf.append(".rule-").append(i).append(" { .button(#3a87ad; ").append(2 + i % 4).append("px); }\n");
+      }
+      stylesheet = COMPILER.parse(buf.toString(), new LessContext());
+    }
+
+    public String render() throws LessException {
+      LessOptions opts = new LessOptions();
+      opts.mixinMemo(memo);
+      LessContext ctx = new LessContext(opts);
+      ctx.setFunctionTable(COMPILER.functionTable());
+      return COMPILER.render(stylesheet, ctx);
+    }
+  }
+
+}
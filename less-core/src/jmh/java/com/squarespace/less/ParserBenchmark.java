@@ -17,6 +17,8 @@
 package com.squarespace.less;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmh.annotations.Benchmark;
@@ -28,10 +30,12 @@ import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.runner.RunnerException;
 
 import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.model.Stylesheet;
 import com.squarespace.less.parse.LessParser;
 import com.squarespace.less.parse.LessStream;
 import com.squarespace.less.parse.Parselets;
@@ -49,11 +53,32 @@ public class ParserBenchmark {
     state.streamExample().parse(Parselets.STYLESHEET);
   }
 
+  @Benchmark
+  public void parseLarge(BenchmarkState state) throws LessException {
+    state.parseLarge(null);
+  }
+
+  @Benchmark
+  public void parseLargeParallel(BenchmarkState state) throws LessException {
+    state.parseLarge(state.pool);
+  }
+
+  @Benchmark
+  public void parseLargeStreaming(BenchmarkState state) throws LessException, IOException {
+    state.parseLargeStreaming();
+  }
+
   @State(Scope.Benchmark)
   public static class BenchmarkState {
 
+    private static final LessCompiler COMPILER = new LessCompiler();
+
     private String example;
 
+    private String large;
+
+    private ForkJoinPool pool;
+
     @Setup
     public void setupResources() throws RunnerException {
       try {
@@ -61,6 +86,29 @@ public class ParserBenchmark {
       } catch (IOException e) {
         throw new RunnerException("Failed to init benchmark state", e);
       }
+
+      // Generated stylesheets of several megabytes are parsed in chunks.
+      StringBuilder buf = new StringBuilder();
+      while (buf.length() < 4 * 1024 * 1024) {
+        buf.append(example).append('\n');
+      }
+      large = buf.toString();
+      pool = new ForkJoinPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+      pool.shutdown();
+    }
+
+    public Stylesheet parseLarge(ForkJoinPool parsePool) throws LessException {
+      LessContext context = new LessContext();
+      context.setParsePool(parsePool);
+      return COMPILER.parse(large, context);
+    }
+
+    public Stylesheet parseLargeStreaming() throws LessException, IOException {
+      return COMPILER.parse(new StringReader(large), new LessContext(), null);
     }
 
     public LessStream streamExample() {
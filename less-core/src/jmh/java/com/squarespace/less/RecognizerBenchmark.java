@@ -16,11 +16,22 @@
 
 package com.squarespace.less;
 
+import static com.squarespace.less.parse.Recognizers.cardinality;
 import static com.squarespace.less.parse.Recognizers.characters;
+import static com.squarespace.less.parse.Recognizers.choice;
+import static com.squarespace.less.parse.Recognizers.decimal;
 import static com.squarespace.less.parse.Recognizers.digits;
+import static com.squarespace.less.parse.Recognizers.hexdigit;
 import static com.squarespace.less.parse.Recognizers.literal;
+import static com.squarespace.less.parse.Recognizers.lookAhead;
+import static com.squarespace.less.parse.Recognizers.notAscii;
+import static com.squarespace.less.parse.Recognizers.notCharacters;
+import static com.squarespace.less.parse.Recognizers.notHexdigit;
 import static com.squarespace.less.parse.Recognizers.oneOrMore;
 import static com.squarespace.less.parse.Recognizers.sequence;
+import static com.squarespace.less.parse.Recognizers.word;
+import static com.squarespace.less.parse.Recognizers.worddash;
+import static com.squarespace.less.parse.Recognizers.zeroOrMore;
 import static com.squarespace.less.parse.Recognizers.zeroOrOne;
 
 import java.util.concurrent.TimeUnit;
@@ -33,11 +44,15 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
+import com.squarespace.less.parse.RecognizerPatterns;
+import com.squarespace.less.parse.Recognizers;
 import com.squarespace.less.parse.Recognizers.Recognizer;
 
 
@@ -96,6 +111,172 @@ public class RecognizerBenchmark {
     blackhole.consume(state.matches(state.benchPercent().recognizer, PERCENT_FAIL, 3));
   }
 
+  @Benchmark
+  public void regexPattern(PatternState state, Blackhole blackhole) {
+    blackhole.consume(state.regex.reset(state.input).lookingAt());
+  }
+
+  @Benchmark
+  public void recognizerPattern(PatternState state, Blackhole blackhole) {
+    blackhole.consume(state.recognizer.match(state.input, 0, state.input.length()));
+  }
+
+  @Benchmark
+  public void treePattern(DfaState state, Blackhole blackhole) {
+    blackhole.consume(state.tree.match(state.input, 0, state.input.length()));
+  }
+
+  @Benchmark
+  public void dfaPattern(DfaState state, Blackhole blackhole) {
+    blackhole.consume(state.dfa.match(state.input, 0, state.input.length()));
+  }
+
+  /**
+   * Compares each recognizer tree used most by the parser against the DFA
+   * compiled from it.
+   */
+  @State(Scope.Benchmark)
+  public static class DfaState {
+
+    @Param({ "CALL_NAME", "DIMENSION_VALUE", "ELEMENT0", "ELEMENT1", "ELEMENT2", "ELEMENT3", "IDENTIFIER" })
+    public String pattern;
+
+    private Recognizer tree;
+
+    private Recognizer dfa;
+
+    private String input;
+
+    @Setup
+    public void setup() {
+      Recognizer worddash = worddash();
+      switch (pattern) {
+        case "CALL_NAME":
+          init(sequence(
+              choice(
+                  oneOrMore(worddash),
+                  characters('%'),
+                  sequence(literal("progid:"), oneOrMore(choice(word(), characters('.'))))),
+              characters('(')), "rgba(0, 0, 0, 0.5)");
+          break;
+
+        case "DIMENSION_VALUE":
+          init(sequence(zeroOrOne(characters('-', '+')), decimal()), "-12.375px;");
+          break;
+
+        case "ELEMENT0":
+          init(sequence(digits(), zeroOrOne(sequence(characters('.'), digits())), characters('%')), "33.333% {");
+          break;
+
+        case "ELEMENT1":
+          Recognizer escape = sequence(
+              characters('\\'),
+              choice(sequence(cardinality(hexdigit(), 1, 6), zeroOrOne(characters(' '))), notHexdigit()));
+          init(sequence(
+              choice(zeroOrOne(characters('.', '#')), zeroOrMore(characters(':'))),
+              oneOrMore(choice(worddash, notAscii(), escape))), ".navigation-item-active > a");
+          break;
+
+        case "ELEMENT2":
+          init(sequence(characters('('), oneOrMore(notCharacters('(', ')', '@')), characters(')')), "(odd) {");
+          break;
+
+        case "ELEMENT3":
+          init(sequence(characters('.', '#'), lookAhead(characters('@'))), ".@{name} {");
+          break;
+
+        case "IDENTIFIER":
+          init(sequence(word(), zeroOrMore(worddash)), "background-position-x:");
+          break;
+
+        default:
+          throw new IllegalArgumentException("unknown pattern: " + pattern);
+      }
+    }
+
+    private void init(Recognizer tree, String input) {
+      this.tree = tree;
+      this.dfa = Recognizers.compile(tree);
+      this.input = input;
+    }
+
+  }
+
+  /**
+   * Compares each regular expression formerly used by the parser against the
+   * recognizer which replaced it.
+   */
+  @State(Scope.Benchmark)
+  public static class PatternState {
+
+    @Param({ "ATTRIBUTE_KEY", "ATTRIBUTE_OP", "DIRECTIVE", "KEYWORD", "MIXIN_NAME",
+             "OPACITY", "PROPERTY", "RATIO", "SHORTHAND", "UNICODE_RANGE" })
+    public String pattern;
+
+    private Matcher regex;
+
+    private Recognizer recognizer;
+
+    private String input;
+
+    @Setup
+    public void setup() {
+      switch (pattern) {
+        case "ATTRIBUTE_KEY":
+          init("([\\w-]|\\\\.)+", false, RecognizerPatterns.ATTRIBUTE_KEY, "data-foo\\.bar-baz]");
+          break;
+
+        case "ATTRIBUTE_OP":
+          init("[|~*$^]?=", false, RecognizerPatterns.ATTRIBUTE_OP, "~=\"value\"]");
+          break;
+
+        case "DIRECTIVE":
+          init("@[a-z-]+", false, RecognizerPatterns.DIRECTIVE, "@font-face {");
+          break;
+
+        case "KEYWORD":
+          init("[_A-Za-z-][\\w-]*", false, RecognizerPatterns.KEYWORD, "-webkit-transition;");
+          break;
+
+        case "MIXIN_NAME":
+          init("[#.](?:[\\w-]|\\\\(?:[A-Fa-f0-9]{1,6} ?|[^A-Fa-f0-9]))+", false,
+              RecognizerPatterns.MIXIN_NAME, ".border-radius\\2a(4px);");
+          break;
+
+        case "OPACITY":
+          init("opacity=", true, RecognizerPatterns.OPACITY, "Opacity=50)");
+          break;
+
+        case "PROPERTY":
+          init("\\*?-?[_a-z0-9-]+", false, RecognizerPatterns.PROPERTY, "-moz-box-sizing: border-box;");
+          break;
+
+        case "RATIO":
+          init("\\d+\\/\\d+", false, RecognizerPatterns.RATIO, "16/9)");
+          break;
+
+        case "SHORTHAND":
+          init("[@\\w.%-]+\\/[@\\w.-]+", false, RecognizerPatterns.SHORTHAND, "12px/1.5 @font;");
+          break;
+
+        case "UNICODE_RANGE":
+          init("U\\+[A-Fa-f0-9?]+(\\-[A-Fa-f0-9?]+)?", false, RecognizerPatterns.UNICODE_RANGE, "U+0025-00FF;");
+          break;
+
+        default:
+          throw new IllegalArgumentException("unknown pattern: " + pattern);
+      }
+    }
+
+    private void init(String regex, boolean caseInsensitive, Recognizer recognizer, String input) {
+      int flags = caseInsensitive ? Pattern.CASE_INSENSITIVE : 0;
+      this.regex = Pattern.compile(regex, flags).matcher("");
+      this.recognizer = recognizer;
+      this.input = input;
+    }
+
+  }
+
   @State(Scope.Benchmark)
   public static class BenchmarkState {
 
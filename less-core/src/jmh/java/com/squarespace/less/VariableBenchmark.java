@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squarespace.less.exec.LessEvaluator;
+import com.squarespace.less.model.Stylesheet;
+
+
+@Fork(1)
+@Measurement(iterations = 5, time = 5)
+@Warmup(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class VariableBenchmark {
+
+  @Benchmark
+  public Stylesheet evaluateVariables(BenchmarkState state) throws LessException {
+    return state.evaluate();
+  }
+
+  @Benchmark
+  public Stylesheet evaluateMixinSplices(SpliceState state) throws LessException {
+    return state.evaluate();
+  }
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+
+    private static final LessCompiler COMPILER = new LessCompiler();
+
+    private static final int VARIABLES = 400;
+
+    private static final int RULESETS = 1500;
+
+    private Stylesheet stylesheet;
+
+    @Setup
+    public void setupResources() throws LessException {
+      // A theme whose nested rules read from a large set of global variables.
+      StringBuilder buf = new StringBuilder();
+      for (int i = 0; i < VARIABLES; i++) {
+        buf.append("@var-").append(i).append(": ").append(i).append("px;\n");
+      }
+      for (int i = 0; i < RULESETS; i++) {
+        int v = (i * 7) % VARIABLES;
+        buf.append(".block-").append(i).append(" {\n")
+            .append("  @local: @var-").append(v).append(" * 2;\n")
+            .append("  margin: @var-").append(v).append(" @var-").append((v + 1) % VARIABLES).append(";\n")
+            .append("  .element {\n")
+            .append("    padding: @local;\n")
+            .append("    &:hover { width: @var-").append((v + 2) % VARIABLES).append(" + @local; }\n")
+            .append("  }\n")
+            .append("}\n");
+      }
+      stylesheet = COMPILER.parse(buf.toString(), new LessContext());
+    }
+
+    public Stylesheet evaluate() throws LessException {
+      return new LessEvaluator(new LessContext()).evaluate(stylesheet);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class SpliceState {
+
+    private static final LessCompiler COMPILER = new LessCompiler();
+
+    private static final int CALLS = 1000;
+
+    private Stylesheet stylesheet;
+
+    @Setup
+    public void setupResources() throws LessException {
+      // Each call reads a variable from the block it is spliced into and adds
+      // a definition to it, so every call follows a change to the block.
+      StringBuilder buf = new StringBuilder();
+      buf.append(".m(@a) { @last: @a; width: @a; }\n");
+      buf.append(".block {\n  @base: 1px;\n");
+      for (int i = 0; i < CALLS; i++) {
+        buf.append("  .m(@base + ").append(i).append(");\n");
+      }
+      buf.append("}\n");
+      stylesheet = COMPILER.parse(buf.toString(), new LessContext());
+    }
+
+    public Stylesheet evaluate() throws LessException {
+      return new LessEvaluator(new LessContext()).evaluate(stylesheet);
+    }
+  }
+
+}
@@ -33,7 +33,7 @@ import com.squarespace.less.core.LessUtils;
 /**
  * Loads the raw data for a given path from the filesystem.
  */
-public class FilesystemLessLoader implements LessLoader {
+public class FilesystemLessLoader implements TimestampedLessLoader {
 
   @Override
   public boolean exists(Path path) {
@@ -47,7 +47,16 @@ public class FilesystemLessLoader implements LessLoader {
 
   @Override
   public Path normalize(Path path) {
-    return (path == null) ? null : path.toAbsolutePath();
+    return (path == null) ? null : path.toAbsolutePath().normalize();
+  }
+
+  @Override
+  public long lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return -1;
+    }
   }
 
   private String readFile(Path path) throws LessException {
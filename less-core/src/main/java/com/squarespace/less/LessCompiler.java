@@ -16,12 +16,21 @@
 
 package com.squarespace.less;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 
+import com.squarespace.less.core.Constants;
 import com.squarespace.less.exec.FunctionTable;
 import com.squarespace.less.exec.LessEvaluator;
 import com.squarespace.less.exec.LessRenderer;
 import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.ImportCache;
 import com.squarespace.less.parse.LessParser;
 import com.squarespace.less.plugins.ColorBlendingFunctions;
 import com.squarespace.less.plugins.ColorChannelFunctions;
@@ -36,6 +45,17 @@ import com.squarespace.less.plugins.TypeFunctions;
 
 /**
  * Singleton and main entry point for parse, compile and render capabilities.
+ *
+ * Thread safety: a compiler instance holds no per-compile state and its
+ * {@link FunctionTable} is frozen on construction, so one instance can be
+ * shared by any number of threads. All per-compile state lives in the
+ * {@link LessContext}, which must only be used by one thread at a time.
+ * Callers compiling from many threads should either create a context per
+ * compile, or lease contexts from a {@link LessContextPool} using
+ * {@link #compile(String, LessContextPool, Path)}.
+ *
+ * Evaluation never modifies a parsed {@link Stylesheet}, so a stylesheet
+ * parsed once can be rendered by many threads at once.
  */
 public class LessCompiler {
 
@@ -64,6 +84,21 @@ public class LessCompiler {
     return functionTable;
   }
 
+  /**
+   * Constructs a pool of reusable contexts bound to this compiler's function table.
+   */
+  public LessContextPool newContextPool(LessOptions opts, LessLoader loader, int maxIdle) {
+    return new LessContextPool(opts, loader, functionTable, maxIdle);
+  }
+
+  /**
+   * Constructs a pool of reusable contexts bound to this compiler's function table,
+   * which share the given cache of parsed imports.
+   */
+  public LessContextPool newContextPool(LessOptions opts, LessLoader loader, int maxIdle, ImportCache importCache) {
+    return new LessContextPool(opts, loader, functionTable, maxIdle, importCache);
+  }
+
   public Stylesheet parse(String raw, LessContext ctx) throws LessException {
     return parse(raw, ctx, null);
   }
@@ -71,11 +106,46 @@ public class LessCompiler {
   public Stylesheet parse(String raw, LessContext ctx, Path filePath) throws LessException {
     LessStats stats = ctx.stats();
     long started = stats.now();
-    LessParser parser = new LessParser(ctx);
-    parser.parse(raw, filePath);
-    Stylesheet sheet = parser.stylesheet();
-    stats.parseDone(raw.length(), started);
-    return sheet;
+    TimingNode timing = stats.enter(LessStats.PARSE, filePath == null ? null : filePath.toString());
+    try {
+      LessParser parser = new LessParser(ctx);
+      parser.parse(raw, filePath);
+      Stylesheet sheet = parser.stylesheet();
+      stats.parseDone(raw.length(), started);
+      return sheet;
+    } finally {
+      stats.exit(timing, raw.length());
+    }
+  }
+
+  /**
+   * Parses the stylesheet read from the reader. The source is parsed as it is
+   * read, a window at a time, so a very large file is never held in memory
+   * alongside its parsed rules. The reader is not closed.
+   */
+  public Stylesheet parse(Reader reader, LessContext ctx, Path filePath) throws LessException, IOException {
+    LessStats stats = ctx.stats();
+    long started = stats.now();
+    TimingNode timing = stats.enter(LessStats.PARSE, filePath == null ? null : filePath.toString());
+    int length = 0;
+    try {
+      LessParser parser = new LessParser(ctx);
+      length = parser.parse(reader, filePath);
+      Stylesheet sheet = parser.stylesheet();
+      stats.parseDone(length, started);
+      return sheet;
+    } finally {
+      stats.exit(timing, length);
+    }
+  }
+
+  /**
+   * Parses the stylesheet read from the channel, decoding it as UTF-8. The
+   * channel is not closed.
+   */
+  public Stylesheet parse(ReadableByteChannel channel, LessContext ctx, Path filePath)
+      throws LessException, IOException {
+    return parse(Channels.newReader(channel, Constants.UTF8), ctx, filePath);
   }
 
   public String render(Stylesheet stylesheet, LessContext ctx) throws LessException {
@@ -84,6 +154,26 @@ public class LessCompiler {
     return LessRenderer.render(ctx, expanded);
   }
 
+  /**
+   * Renders the stylesheet, writing each top-level block of CSS to the output
+   * as soon as it is complete instead of building the whole result in memory.
+   */
+  public void render(Stylesheet stylesheet, LessContext ctx, Appendable out) throws LessException, IOException {
+    LessEvaluator engine = new LessEvaluator(ctx);
+    Stylesheet expanded = engine.evaluate(stylesheet);
+    LessRenderer.render(ctx, expanded, out);
+  }
+
+  /**
+   * Renders the stylesheet, streaming the CSS to the output as UTF-8. The
+   * stream is flushed but not closed.
+   */
+  public void render(Stylesheet stylesheet, LessContext ctx, OutputStream out) throws LessException, IOException {
+    Writer writer = new OutputStreamWriter(out, Constants.UTF8);
+    render(stylesheet, ctx, writer);
+    writer.flush();
+  }
+
   public Stylesheet expand(Stylesheet stylesheet, LessContext ctx) throws LessException {
     LessEvaluator engine = new LessEvaluator(ctx);
     return engine.evaluate(stylesheet);
@@ -102,6 +192,43 @@ public class LessCompiler {
     return result;
   }
 
+  /**
+   * Compiles the source, streaming the CSS to the output as it is rendered.
+   */
+  public void compile(String raw, LessContext ctx, Path filePath, Appendable out) throws LessException, IOException {
+    Stylesheet sheet = parse(raw, ctx, filePath);
+    LessStats stats = ctx.stats();
+    long started = stats.now();
+    render(sheet, ctx, out);
+    stats.compileDone(started);
+  }
+
+  /**
+   * Returns the cached output for the source if none of the files it imported
+   * have changed, otherwise compiles it and stores the output in the cache.
+   */
+  public String compile(String raw, LessContext ctx, Path filePath, OutputCache cache) throws LessException {
+    String result = cache.get(raw, filePath, ctx);
+    if (result == null) {
+      result = compile(raw, ctx, filePath);
+      cache.put(raw, filePath, ctx, result);
+    }
+    return result;
+  }
+
+  /**
+   * Compiles the source using a context leased from the pool. Safe to call
+   * concurrently from many threads.
+   */
+  public String compile(String raw, LessContextPool pool, Path filePath) throws LessException {
+    LessContext ctx = pool.acquire();
+    try {
+      return compile(raw, ctx, filePath);
+    } finally {
+      pool.release(ctx);
+    }
+  }
+
   /**
    * Builds the default function table.  Functions are stateless so this table
    * can be shared among many instances of the compiler.  This method provides
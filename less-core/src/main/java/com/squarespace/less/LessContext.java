@@ -16,12 +16,18 @@
 
 package com.squarespace.less;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
 import com.squarespace.less.core.Buffer;
+import com.squarespace.less.core.InternTable;
 import com.squarespace.less.exec.BufferStack;
 import com.squarespace.less.exec.Comparison;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.exec.Function;
 import com.squarespace.less.exec.FunctionTable;
+import com.squarespace.less.exec.MixinMemo;
+import com.squarespace.less.exec.MixinProfiler;
 import com.squarespace.less.exec.MixinResolver;
 import com.squarespace.less.exec.NodeComparator;
 import com.squarespace.less.exec.NodeRenderer;
@@ -29,6 +35,7 @@ import com.squarespace.less.exec.RenderEnv;
 import com.squarespace.less.exec.SelectorUtils;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Selector;
+import com.squarespace.less.parse.ImportCache;
 import com.squarespace.less.parse.Importer;
 import com.squarespace.less.parse.SelectorParser;
 
@@ -52,6 +59,8 @@ public class LessContext {
 
   private final MixinResolver mixinResolver = new MixinResolver();
 
+  private final MixinMemo mixinMemo = new MixinMemo();
+
   private final NodeComparator comparator;
 
   private final LessStats stats = new LessStats();
@@ -65,6 +74,32 @@ public class LessContext {
    */
   private final Importer importer;
 
+  /**
+   * Optional cache of parsed imports, shared across compiles.
+   */
+  private ImportCache importCache;
+
+  /**
+   * Optional executor which loads and parses static imports ahead of their
+   * evaluation.
+   */
+  private ExecutorService importExecutor;
+
+  /**
+   * Optional pool on which large stylesheets are parsed in chunks.
+   */
+  private ForkJoinPool parsePool;
+
+  /**
+   * Optional profiler recording time spent in each mixin.
+   */
+  private MixinProfiler mixinProfiler;
+
+  /**
+   * Shared instances of the names parsed during this compile.
+   */
+  private InternTable internTable = new InternTable();
+
   private FunctionTable functionTable;
 
   private NodeBuilder nodeBuilder = DEFAULT_NODE_BUILDER;
@@ -96,6 +131,57 @@ public class LessContext {
     return importer;
   }
 
+  public ImportCache importCache() {
+    return importCache;
+  }
+
+  public void setImportCache(ImportCache cache) {
+    this.importCache = cache;
+  }
+
+  public ExecutorService importExecutor() {
+    return importExecutor;
+  }
+
+  /**
+   * Loads and parses static imports in parallel on the executor. The
+   * {@link LessLoader} must then be safe for use by multiple threads.
+   */
+  public void setImportExecutor(ExecutorService executor) {
+    this.importExecutor = executor;
+  }
+
+  public ForkJoinPool parsePool() {
+    return parsePool;
+  }
+
+  /**
+   * Splits stylesheets larger than {@link LessOptions#parseChunkSize()} into
+   * chunks of top-level rules and parses the chunks in parallel on the pool.
+   */
+  public void setParsePool(ForkJoinPool pool) {
+    this.parsePool = pool;
+  }
+
+  public MixinProfiler mixinProfiler() {
+    return mixinProfiler;
+  }
+
+  public void setMixinProfiler(MixinProfiler profiler) {
+    this.mixinProfiler = profiler;
+  }
+
+  public InternTable internTable() {
+    return internTable;
+  }
+
+  /**
+   * Shares a table between compiles, as long as they do not run concurrently.
+   */
+  public void setInternTable(InternTable table) {
+    this.internTable = table;
+  }
+
   public NodeBuilder nodeBuilder() {
     return nodeBuilder;
   }
@@ -112,6 +198,10 @@ public class LessContext {
     return mixinResolver;
   }
 
+  public MixinMemo mixinMemo() {
+    return mixinMemo;
+  }
+
   public SelectorParser selectorParser() {
     return selectorParser;
   }
@@ -120,6 +210,20 @@ public class LessContext {
     bufferStack.sanityCheck();
   }
 
+  /**
+   * Clears all per-compile state so this context can be reused for another
+   * compile. Allocated buffers and helper objects are retained.
+   */
+  public void reset() {
+    bufferStack.reset();
+    importer.reset();
+    stats.reset();
+    mixinMemo.clear();
+    internTable.clear();
+    importDepth = 0;
+    mixinDepth = 0;
+  }
+
   public Function findFunction(String symbol) {
     return (functionTable != null) ? functionTable.get(symbol) : null;
   }
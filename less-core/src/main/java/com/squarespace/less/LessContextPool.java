@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.squarespace.less.exec.FunctionTable;
+import com.squarespace.less.parse.ImportCache;
+
+
+/**
+ * Bounded pool of reusable {@link LessContext} instances which share the same
+ * options, loader and function table.
+ *
+ * Each context allocates a buffer stack, mixin resolver, comparator, selector
+ * parser and importer. Leasing contexts from a pool lets those objects be reused
+ * across many compiles instead of being allocated for each one.
+ *
+ * A context is only ever used by one thread at a time: {@link #acquire()} hands
+ * out a context exclusively to the caller, who must return it with
+ * {@link #release(LessContext)} when the compile is complete. If the pool is
+ * empty a new context is created, and if the pool is full when a context is
+ * released it is discarded, so at most {@code maxIdle} contexts are retained.
+ *
+ * The options passed to the pool are shared by all contexts and must not be
+ * modified once the pool is in use.
+ */
+public class LessContextPool {
+
+  /**
+   * Default maximum number of idle contexts retained by the pool.
+   */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  /**
+   * Contexts available for reuse.
+   */
+  private final BlockingQueue<LessContext> idle;
+
+  /**
+   * Options shared by all contexts.
+   */
+  private final LessOptions opts;
+
+  /**
+   * Loader shared by all contexts.
+   */
+  private final LessLoader loader;
+
+  /**
+   * Function table shared by all contexts.
+   */
+  private final FunctionTable functionTable;
+
+  /**
+   * Import cache shared by all contexts, or null.
+   */
+  private final ImportCache importCache;
+
+  /**
+   * Constructs a pool retaining at most {@link #DEFAULT_MAX_IDLE} idle contexts.
+   */
+  public LessContextPool(LessOptions opts, LessLoader loader, FunctionTable functionTable) {
+    this(opts, loader, functionTable, DEFAULT_MAX_IDLE);
+  }
+
+  /**
+   * Constructs a pool retaining at most {@code maxIdle} idle contexts.
+   */
+  public LessContextPool(LessOptions opts, LessLoader loader, FunctionTable functionTable, int maxIdle) {
+    this(opts, loader, functionTable, maxIdle, null);
+  }
+
+  /**
+   * Constructs a pool retaining at most {@code maxIdle} idle contexts, all of
+   * which share the given import cache.
+   */
+  public LessContextPool(LessOptions opts, LessLoader loader, FunctionTable functionTable, int maxIdle,
+      ImportCache importCache) {
+    this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    this.opts = opts;
+    this.loader = loader;
+    this.functionTable = functionTable;
+    this.importCache = importCache;
+  }
+
+  /**
+   * Leases a context for the exclusive use of the calling thread.
+   */
+  public LessContext acquire() {
+    LessContext ctx = idle.poll();
+    return (ctx == null) ? newContext() : ctx;
+  }
+
+  /**
+   * Resets the context and returns it to the pool.
+   */
+  public void release(LessContext ctx) {
+    ctx.reset();
+    idle.offer(ctx);
+  }
+
+  /**
+   * Number of contexts currently available for reuse.
+   */
+  public int idleCount() {
+    return idle.size();
+  }
+
+  /**
+   * Options shared by all contexts in this pool.
+   */
+  public LessOptions options() {
+    return opts;
+  }
+
+  private LessContext newContext() {
+    LessContext ctx = new LessContext(opts, loader);
+    ctx.setFunctionTable(functionTable);
+    ctx.setImportCache(importCache);
+    return ctx;
+  }
+
+}
@@ -35,6 +35,8 @@ public class LessOptions {
 
   public static final int DEFAULT_RECURSION_LIMIT = 64;
 
+  public static final int DEFAULT_PARSE_CHUNK_SIZE = 256 * 1024;
+
   private final Set<Option> flags = EnumSet.of(Option.STRICT);
 
   private final List<Path> importPaths = new ArrayList<>();
@@ -45,6 +47,12 @@ public class LessOptions {
 
   private int importRecursionLimit = DEFAULT_RECURSION_LIMIT;
 
+  private int parseMemoSize;
+
+  private int parseChunkSize = DEFAULT_PARSE_CHUNK_SIZE;
+
+  private boolean mixinMemo = true;
+
   public LessOptions() {
   }
 
@@ -93,6 +101,31 @@ public class LessOptions {
     return mixinRecursionLimit;
   }
 
+  /**
+   * Indicates whether the rules produced by mixin calls which read nothing
+   * from the caller's scope are reused by later identical calls. Does not
+   * affect the output.
+   */
+  public boolean mixinMemo() {
+    return mixinMemo;
+  }
+
+  /**
+   * Number of entries in each stream's memo table of parselet results, or 0
+   * to disable memoization. Does not affect the output.
+   */
+  public int parseMemoSize() {
+    return parseMemoSize;
+  }
+
+  /**
+   * Minimum number of characters in each chunk of a stylesheet parsed in
+   * parallel. Only stylesheets spanning at least two chunks are split.
+   */
+  public int parseChunkSize() {
+    return parseChunkSize;
+  }
+
   public boolean strict() {
     return flags.contains(Option.STRICT);
   }
@@ -149,6 +182,18 @@ public class LessOptions {
     this.mixinRecursionLimit = limit;
   }
 
+  public void mixinMemo(boolean flag) {
+    this.mixinMemo = flag;
+  }
+
+  public void parseMemoSize(int size) {
+    this.parseMemoSize = size;
+  }
+
+  public void parseChunkSize(int size) {
+    this.parseChunkSize = size;
+  }
+
   public void strict(boolean flag) {
     set(flag, Option.STRICT);
   }
@@ -161,6 +206,20 @@ public class LessOptions {
     set(flag, Option.TRACING);
   }
 
+  /**
+   * Returns a string which is equal for any two instances whose options would
+   * produce the same compiled output.
+   */
+  public String fingerprint() {
+    StringBuilder buf = new StringBuilder();
+    buf.append(flags).append(';');
+    buf.append(indent).append(';');
+    buf.append(mixinRecursionLimit).append(';');
+    buf.append(importRecursionLimit).append(';');
+    buf.append(importPaths);
+    return buf.toString();
+  }
+
   private void set(boolean flag, Option opt) {
     if (flag) {
       flags.add(opt);
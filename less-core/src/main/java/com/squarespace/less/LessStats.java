@@ -16,14 +16,40 @@
 
 package com.squarespace.less;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
 
 /**
  * Collects timing and stats for one execution of the LESS compiler.
+ *
+ * Besides the aggregate counters, each phase of the compile is recorded in a
+ * tree of {@link TimingNode}s rooted at {@link #timings()}: the parse, with a
+ * child for each import, followed by evaluation, extend indexing and rendering.
  */
 public class LessStats {
 
+  public static final String COMPILE = "compile";
+
+  public static final String PARSE = "parse";
+
+  public static final String IMPORT = "import";
+
+  public static final String CACHED_IMPORT = "cached-import";
+
+  public static final String EVALUATE = "evaluate";
+
+  public static final String EXTEND_INDEX = "extend-index";
+
+  public static final String RENDER = "render";
+
   private static final double FACTOR = 1000000.0;
 
+  private final Deque<TimingNode> phases = new ArrayDeque<>();
+
+  private TimingNode timings;
+
   private double parseTimeMs;
 
   private double compileTimeMs;
@@ -36,6 +62,8 @@ public class LessStats {
 
   private int totalSize;
 
+  private int outputSize;
+
   private int maxImportDepth;
 
   private int maxMixinDepth;
@@ -65,11 +93,24 @@ public class LessStats {
     return fileReads;
   }
 
-  /** Total input size, in number of characters */
+  /** Total input size including imports, in number of characters */
   public int totalSize() {
     return totalSize;
   }
 
+  /** Total output size, in number of characters */
+  public int outputSize() {
+    return outputSize;
+  }
+
+  /** Root of the tree of phase timings */
+  public TimingNode timings() {
+    if (timings == null) {
+      timings = new TimingNode(COMPILE, null, now());
+    }
+    return timings;
+  }
+
   /** Maximum import recursion depth reached */
   public int maxImportDepth() {
     return maxImportDepth;
@@ -80,6 +121,21 @@ public class LessStats {
     return maxMixinDepth;
   }
 
+  /** Clears all counters and timings, preparing for a new compile */
+  public void reset() {
+    parseTimeMs = 0;
+    compileTimeMs = 0;
+    diskWaitTimeMs = 0;
+    importCount = 0;
+    fileReads = 0;
+    totalSize = 0;
+    outputSize = 0;
+    maxImportDepth = 0;
+    maxMixinDepth = 0;
+    phases.clear();
+    timings = null;
+  }
+
   /** Time in nanoseconds */
   public long now() {
     return System.nanoTime();
@@ -95,9 +151,43 @@ public class LessStats {
     this.maxMixinDepth = Math.max(this.maxMixinDepth, depth);
   }
 
+  /**
+   * Starts a new phase, nested under the phase currently in progress. Every
+   * call must be matched by a call to {@link #exit(TimingNode, int)}.
+   */
+  public TimingNode enter(String name, String detail) {
+    TimingNode parent = phases.isEmpty() ? timings() : phases.peek();
+    TimingNode node = new TimingNode(name, detail, now());
+    parent.add(node);
+    phases.push(node);
+    return node;
+  }
+
+  public TimingNode enter(String name) {
+    return enter(name, null);
+  }
+
+  /**
+   * Ends the phase, recording its elapsed time and the number of characters it
+   * consumed or produced. Any nested phases left open by an error are closed.
+   */
+  public void exit(TimingNode node, int size) {
+    double elapsed = deltaMs(node.started());
+    node.done(elapsed, size);
+    while (!phases.isEmpty()) {
+      if (phases.pop() == node) {
+        break;
+      }
+    }
+    if (phases.isEmpty()) {
+      timings().done(elapsed, 0);
+    }
+  }
+
   /** Indicate that a parse operation is complete. */
   public void parseDone(int size, long started) {
     parseTimeMs += deltaMs(started);
+    totalSize += size;
   }
 
   /** Indicate that a compile operation is complete. */
@@ -107,7 +197,22 @@ public class LessStats {
 
   /** Indicate that disk I/O is complete */
   public void diskWaitDone(long started) {
-    diskWaitTimeMs += deltaMs(started);
+    double elapsed = deltaMs(started);
+    diskWaitTimeMs += elapsed;
+    if (!phases.isEmpty()) {
+      phases.peek().diskWaitDone(elapsed);
+    }
+  }
+
+  /** Indicate that an imported file of the given size has been loaded */
+  public void loadDone(int size, long started) {
+    diskWaitDone(started);
+    totalSize += size;
+  }
+
+  /** Indicate that rendering produced the given number of characters */
+  public void outputDone(int size) {
+    outputSize += size;
   }
 
   /**
@@ -121,6 +226,30 @@ public class LessStats {
     }
   }
 
+  /**
+   * Renders the counters and the timing tree as a JSON object.
+   */
+  public String toJson() {
+    StringBuilder buf = new StringBuilder();
+    buf.append("{\"parseTimeMs\":").append(formatMs(parseTimeMs));
+    buf.append(",\"compileTimeMs\":").append(formatMs(compileTimeMs));
+    buf.append(",\"diskWaitTimeMs\":").append(formatMs(diskWaitTimeMs));
+    buf.append(",\"importCount\":").append(importCount);
+    buf.append(",\"fileReads\":").append(fileReads);
+    buf.append(",\"totalSize\":").append(totalSize);
+    buf.append(",\"outputSize\":").append(outputSize);
+    buf.append(",\"maxImportDepth\":").append(maxImportDepth);
+    buf.append(",\"maxMixinDepth\":").append(maxMixinDepth);
+    buf.append(",\"timings\":");
+    timings().appendJson(buf);
+    buf.append('}');
+    return buf.toString();
+  }
+
+  static String formatMs(double ms) {
+    return String.format(Locale.ROOT, "%.3f", ms);
+  }
+
   private double deltaMs(long started) {
     return (now() - started) / FACTOR;
   }
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.parse.Dependency;
+import com.squarespace.less.parse.Importer;
+
+
+/**
+ * Bounded cache of compiled CSS, evicting the least-recently used entry when full.
+ *
+ * Entries are keyed by the fingerprint of the compile options, the path of the
+ * stylesheet and the fingerprint of its source. Each entry records every file
+ * the compile imported, and is discarded when any of them has changed.
+ *
+ * Safe for use by multiple threads.
+ */
+public class OutputCache {
+
+  /**
+   * Default maximum number of entries.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  private final Map<String, CachedOutput> entries;
+
+  private final int maxEntries;
+
+  private long hits;
+
+  private long misses;
+
+  private long evictions;
+
+  private long invalidations;
+
+  /**
+   * Constructs a cache holding at most {@link #DEFAULT_MAX_ENTRIES} entries.
+   */
+  public OutputCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Constructs a cache holding at most {@code maxEntries} entries.
+   */
+  public OutputCache(int maxEntries) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.entries = new LinkedHashMap<String, CachedOutput>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedOutput> eldest) {
+        if (size() > OutputCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached output for the source, or null if none exists or one of
+   * the files it imported has changed. Changed files are checked using the
+   * context's loader.
+   */
+  public String get(String raw, Path filePath, LessContext ctx) throws LessException {
+    String key = key(raw, filePath, ctx.options());
+    CachedOutput entry = null;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        misses++;
+        return null;
+      }
+    }
+
+    // Check the dependencies outside the lock, since it may involve I/O.
+    Importer importer = ctx.importer();
+    for (Dependency dependency : entry.dependencies) {
+      if (!importer.isUnchanged(dependency)) {
+        synchronized (this) {
+          if (entries.get(key) == entry) {
+            entries.remove(key);
+            invalidations++;
+          }
+          misses++;
+        }
+        return null;
+      }
+    }
+
+    synchronized (this) {
+      hits++;
+    }
+    return entry.output;
+  }
+
+  /**
+   * Stores the output of a compile, along with the files it imported, which are
+   * taken from the context's importer.
+   */
+  public void put(String raw, Path filePath, LessContext ctx, String output) {
+    String key = key(raw, filePath, ctx.options());
+    CachedOutput entry = new CachedOutput(output, ctx.importer().dependencies());
+    synchronized (this) {
+      entries.put(key, entry);
+    }
+  }
+
+  /**
+   * Removes all entries. Counters are not reset.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Number of entries currently cached.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Maximum number of entries this cache will hold.
+   */
+  public int maxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Number of lookups which returned cached output.
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /**
+   * Number of lookups which found no valid entry.
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  /**
+   * Number of entries evicted to make room for newer ones.
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Number of entries discarded because an imported file changed.
+   */
+  public synchronized long invalidations() {
+    return invalidations;
+  }
+
+  private static String key(String raw, Path filePath, LessOptions opts) {
+    StringBuilder buf = new StringBuilder();
+    buf.append(opts.fingerprint()).append('|');
+    buf.append(filePath).append('|');
+    buf.append(raw.length()).append(':').append(Long.toHexString(LessUtils.fingerprint(raw)));
+    return buf.toString();
+  }
+
+  private static class CachedOutput {
+
+    private final String output;
+
+    private final List<Dependency> dependencies;
+
+    CachedOutput(String output, List<Dependency> dependencies) {
+      this.output = output;
+      this.dependencies = dependencies;
+    }
+
+  }
+
+}
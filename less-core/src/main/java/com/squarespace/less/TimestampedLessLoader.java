@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import java.nio.file.Path;
+
+
+/**
+ * {@link LessLoader} which can report when a file was last modified. Cached
+ * imports loaded through it are validated by modification time, and only
+ * re-read when it has changed. Imports from other loaders are validated by
+ * their content fingerprint.
+ */
+public interface TimestampedLessLoader extends LessLoader {
+
+  /**
+   * Returns the target file's last modification time in milliseconds, or -1
+   * if it cannot be determined.
+   */
+  long lastModified(Path path);
+
+}
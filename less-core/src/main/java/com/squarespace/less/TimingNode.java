@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * One phase of a compile in the timing tree collected by {@link LessStats}.
+ * Each node records its elapsed time, the time spent waiting on disk I/O,
+ * the number of characters it consumed or produced and its sub-phases.
+ */
+public class TimingNode {
+
+  private final String name;
+
+  private final String detail;
+
+  private final long started;
+
+  private List<TimingNode> children;
+
+  private double timeMs;
+
+  private double diskWaitTimeMs;
+
+  private int size;
+
+  TimingNode(String name, String detail, long started) {
+    this.name = name;
+    this.detail = detail;
+    this.started = started;
+  }
+
+  /** Name of the phase, e.g. "parse" or "import" */
+  public String name() {
+    return name;
+  }
+
+  /** Additional detail for the phase, e.g. the imported path. May be null. */
+  public String detail() {
+    return detail;
+  }
+
+  /** Time spent in this phase, including its sub-phases */
+  public double timeMs() {
+    return timeMs;
+  }
+
+  /** Time spent waiting for disk I/O directly within this phase */
+  public double diskWaitTimeMs() {
+    return diskWaitTimeMs;
+  }
+
+  /** Number of characters consumed or produced by this phase */
+  public int size() {
+    return size;
+  }
+
+  /** Sub-phases, in the order they started */
+  public List<TimingNode> children() {
+    if (children == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(children);
+  }
+
+  /** Returns the first sub-phase with the given name, or null */
+  public TimingNode child(String name) {
+    if (children != null) {
+      for (TimingNode child : children) {
+        if (child.name.equals(name)) {
+          return child;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Renders this node and its sub-phases as a JSON object */
+  public String toJson() {
+    StringBuilder buf = new StringBuilder();
+    appendJson(buf);
+    return buf.toString();
+  }
+
+  public void appendJson(StringBuilder buf) {
+    buf.append("{\"name\":");
+    appendString(buf, name);
+    if (detail != null) {
+      buf.append(",\"detail\":");
+      appendString(buf, detail);
+    }
+    buf.append(",\"timeMs\":").append(LessStats.formatMs(timeMs));
+    if (diskWaitTimeMs > 0) {
+      buf.append(",\"diskWaitTimeMs\":").append(LessStats.formatMs(diskWaitTimeMs));
+    }
+    if (size > 0) {
+      buf.append(",\"size\":").append(size);
+    }
+    if (children != null) {
+      buf.append(",\"children\":[");
+      for (int i = 0; i < children.size(); i++) {
+        if (i > 0) {
+          buf.append(',');
+        }
+        children.get(i).appendJson(buf);
+      }
+      buf.append(']');
+    }
+    buf.append('}');
+  }
+
+  long started() {
+    return started;
+  }
+
+  void add(TimingNode child) {
+    if (children == null) {
+      children = new ArrayList<>();
+    }
+    children.add(child);
+  }
+
+  void done(double timeMs, int size) {
+    this.timeMs += timeMs;
+    this.size += size;
+  }
+
+  void diskWaitDone(double timeMs) {
+    this.diskWaitTimeMs += timeMs;
+  }
+
+  static void appendString(StringBuilder buf, String str) {
+    buf.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      char ch = str.charAt(i);
+      switch (ch) {
+        case '"':
+        case '\\':
+          buf.append('\\').append(ch);
+          break;
+
+        case '\n':
+          buf.append("\\n");
+          break;
+
+        case '\r':
+          buf.append("\\r");
+          break;
+
+        case '\t':
+          buf.append("\\t");
+          break;
+
+        default:
+          if (ch < 0x20) {
+            buf.append(String.format("\\u%04x", (int)ch));
+          } else {
+            buf.append(ch);
+          }
+          break;
+      }
+    }
+    buf.append('"');
+  }
+
+}
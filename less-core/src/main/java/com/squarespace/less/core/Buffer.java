@@ -16,6 +16,8 @@
 
 package com.squarespace.less.core;
 
+import java.io.IOException;
+
 
 /**
  * General-purpose buffer. Wraps a {@link StringBuilder} with some
@@ -100,6 +102,15 @@ public class Buffer {
     prev = Chars.LINE_FEED;
   }
 
+  /**
+   * Appends the buffered characters to the output and empties the buffer. All
+   * other state is retained, so rendering continues as if nothing was drained.
+   */
+  public void drainTo(Appendable out) throws IOException {
+    out.append(buf);
+    buf.setLength(0);
+  }
+
   /**
    * Increments the indentation level.
    */
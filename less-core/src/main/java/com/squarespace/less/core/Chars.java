@@ -52,6 +52,9 @@ public class Chars {
   // 0x23
   public static final char NUMBER_SIGN = '#';
 
+  // 0x25
+  public static final char PERCENT_SIGN = '%';
+
   // 0x26
   public static final char AMPERSAND = '&';
 
@@ -28,6 +28,9 @@ import java.util.NoSuchElementException;
  *
  * Iteration over the elements in the list currently requires continually polling
  * for the list's size, as the contents and size can change mid-iteration.
+ *
+ * Copies share the internal array with the list they were copied from, until
+ * either list is modified.
  */
 public class FlexList<E> {
 
@@ -37,6 +40,12 @@ public class FlexList<E> {
 
   private int size;
 
+  /**
+   * Indicates the internal array may be shared with a copy, and must be
+   * copied before it is modified.
+   */
+  private boolean shared;
+
   /**
    * Constructs a list with the default initial capacity.
    */
@@ -52,11 +61,11 @@ public class FlexList<E> {
   }
 
   /**
-   * Private constructor. Either copies or references the array of
-   * elements, with the given initial size.
+   * Private constructor. References the array of elements, with the
+   * given initial size.
    */
-  private FlexList(E[] elems, int size, boolean copy) {
-    this.elems = copy ? Arrays.copyOf(elems, size) : elems;
+  private FlexList(E[] elems, int size) {
+    this.elems = elems;
     this.size = size;
   }
 
@@ -78,15 +87,19 @@ public class FlexList<E> {
    * Constructs a list with {@code objs} as the initial contents.
    */
   public static final <T> FlexList<T> create(T[] objs) {
-    return new FlexList<T>(objs, objs.length, false);
+    return new FlexList<T>(objs, objs.length);
   }
 
   /**
-   * Creates a shallow copy of this list, by copying the internal array.
+   * Creates a shallow copy of this list, sharing the internal array until
+   * one of the lists is modified.
    */
   @SuppressWarnings("unchecked")
   public FlexList<E> copy() {
-    return new FlexList<E>((E[])elems, size, true);
+    FlexList<E> result = new FlexList<E>((E[])elems, size);
+    result.shared = true;
+    shared = true;
+    return result;
   }
 
   /**
@@ -114,8 +127,15 @@ public class FlexList<E> {
 
   /**
    * Sets the element at {@code index}. Note: no bounds checking is done.
+   * Replacing an element with itself leaves a shared array shared.
    */
   public void set(int index, E elem) {
+    if (shared) {
+      if (elems[index] == elem) {
+        return;
+      }
+      ensureCapacity(size);
+    }
     elems[index] = elem;
   }
 
@@ -254,12 +274,16 @@ public class FlexList<E> {
   }
 
   /**
-   * Grows the internal array if it is smaller than the {@code minCapacity}.
+   * Grows the internal array if it is smaller than the {@code minCapacity}, and
+   * copies it if it is shared, before the array is modified.
    */
   private void ensureCapacity(int minCapacity) {
     if (minCapacity - elems.length > 0) {
       grow(minCapacity);
+    } else if (shared) {
+      elems = Arrays.copyOf(elems, Math.max(minCapacity, size));
     }
+    shared = false;
   }
 
   /**
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.core;
+
+import java.util.Arrays;
+
+
+/**
+ * Interns names taken directly from a range of the source string, so equal
+ * names share one String instance and no intermediate substring is created
+ * when the name has been seen before. Not thread-safe.
+ */
+public class InternTable {
+
+  /**
+   * Longer tokens are rarely repeated, so they are copied without interning.
+   */
+  public static final int MAX_LENGTH = 64;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private String[] table = new String[INITIAL_CAPACITY];
+
+  private int size;
+
+  /**
+   * Returns the shared instance equal to {@code raw.substring(start, end)}.
+   */
+  public String intern(String raw, int start, int end) {
+    int len = end - start;
+    if (len > MAX_LENGTH) {
+      return raw.substring(start, end);
+    }
+
+    // Same hash function as String, so the result's cached hash agrees.
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + raw.charAt(i);
+    }
+
+    int mask = table.length - 1;
+    int slot = spread(hash) & mask;
+    String entry;
+    while ((entry = table[slot]) != null) {
+      if (entry.length() == len && entry.hashCode() == hash && entry.regionMatches(0, raw, start, len)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    String result = raw.substring(start, end);
+    table[slot] = result;
+    size++;
+    if (size * 2 > table.length) {
+      grow();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the shared instance equal to the string.
+   */
+  public String intern(String str) {
+    return intern(str, 0, str.length());
+  }
+
+  /**
+   * Number of distinct names held.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes all names, releasing the table if it has grown.
+   */
+  public void clear() {
+    if (table.length > INITIAL_CAPACITY) {
+      table = new String[INITIAL_CAPACITY];
+    } else {
+      Arrays.fill(table, null);
+    }
+    size = 0;
+  }
+
+  private void grow() {
+    String[] old = table;
+    table = new String[old.length * 2];
+    int mask = table.length - 1;
+    for (String entry : old) {
+      if (entry != null) {
+        int slot = spread(entry.hashCode()) & mask;
+        while (table[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+      }
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+}
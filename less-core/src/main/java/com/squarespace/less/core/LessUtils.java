@@ -55,6 +55,10 @@ public class LessUtils {
 
   private static final int COPY_BUFFER_SIZE = 1024 * 8;
 
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
   private LessUtils() {
   }
 
@@ -213,6 +217,21 @@ public class LessUtils {
     return buf.toString();
   }
 
+  /**
+   * Computes a 64-bit FNV-1a fingerprint of the string's characters, used to
+   * detect whether a source file's content has changed.
+   */
+  public static long fingerprint(String data) {
+    long hash = FNV_OFFSET_BASIS;
+    int len = data.length();
+    for (int i = 0; i < len; i++) {
+      char ch = data.charAt(i);
+      hash = (hash ^ (ch & 0xff)) * FNV_PRIME;
+      hash = (hash ^ (ch >>> 8)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
   /**
    * Read data from the {@code input} into a string.
    */
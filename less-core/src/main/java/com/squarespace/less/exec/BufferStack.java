@@ -83,6 +83,14 @@ public class BufferStack {
     index--;
   }
 
+  /**
+   * Returns all buffers to the stack, retaining the allocated instances
+   * so they can be reused by the next compile.
+   */
+  public void reset() {
+    index = 0;
+  }
+
   /**
    * Asserts that the internal stack's state is valid.
    */
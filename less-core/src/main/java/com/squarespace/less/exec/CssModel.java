@@ -21,9 +21,11 @@ import static com.squarespace.less.model.NodeType.MEDIA;
 import static com.squarespace.less.model.NodeType.RULESET;
 import static com.squarespace.less.model.NodeType.STYLESHEET;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -45,6 +47,13 @@ import com.squarespace.less.model.Stylesheet;
  * suppress empty blocks, and eliminate duplicate rules.  It also
  * ensures that each nested block is emitted in the output model
  * at the correct scope.
+ *
+ * When constructed with an output sink, each top-level block is written
+ * to the sink as soon as it is complete, along with the top-level values
+ * and comments before it, so only the block currently being built is held
+ * in memory. This differs from {@link #render()} in one respect: a top-level
+ * value or comment repeated after it has been written keeps its first
+ * position, where {@link #render()} would move it to the last.
  */
 public class CssModel {
 
@@ -89,12 +98,41 @@ public class CssModel {
    */
   private CssBlock current;
 
+  /**
+   * Output sink when streaming, otherwise null.
+   */
+  private final Appendable sink;
+
+  /**
+   * Top-level values and comments already written to the sink, when streaming.
+   */
+  private final Set<CssNode> emitted;
+
+  /**
+   * First error raised writing to the sink.
+   */
+  private IOException error;
+
+  /**
+   * Number of characters written to the sink.
+   */
+  private int written;
+
   /**
    * Constructs a CSS model with the given context.
    */
   public CssModel(LessContext ctx) {
+    this(ctx, null);
+  }
+
+  /**
+   * Constructs a CSS model which streams completed top-level blocks to the sink.
+   */
+  public CssModel(LessContext ctx, Appendable sink) {
     buffer = ctx.newBuffer();
     current = new CssBlock(STYLESHEET);
+    this.sink = sink;
+    this.emitted = sink == null ? null : new HashSet<CssNode>();
   }
 
   /**
@@ -109,11 +147,32 @@ public class CssModel {
     return buffer.toString();
   }
 
+  /**
+   * Writes everything not yet streamed to the sink, rethrowing the first
+   * error raised while writing.
+   */
+  public void finish() throws IOException {
+    if (current.type() != STYLESHEET) {
+      throw new LessInternalException("Serious error: stack was not fully popped.");
+    }
+    flush(true);
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Number of characters written to the sink so far.
+   */
+  public int written() {
+    return written;
+  }
+
   /**
    * Appends a value to the current block.
    */
   public CssModel value(String value) {
-    current.add(new CssValue(value));
+    add(new CssValue(value));
     return this;
   }
 
@@ -121,10 +180,21 @@ public class CssModel {
    * Appends a comment to the current block.
    */
   public CssModel comment(String value) {
-    current.add(new CssComment(value));
+    add(new CssComment(value));
     return this;
   }
 
+  /**
+   * Appends a node to the current block, dropping a top-level node which
+   * has already been written to the sink.
+   */
+  private void add(CssNode node) {
+    if (emitted != null && stack.isEmpty() && emitted.contains(node)) {
+      return;
+    }
+    current.add(node);
+  }
+
   /**
    * Add raw strings to the header of the current block.
    */
@@ -154,9 +224,43 @@ public class CssModel {
     CssBlock parent = current.parent();
     parent.populated |= current.populated;
     current = stack.pop();
+    if (sink != null && stack.isEmpty()) {
+      flush(false);
+    }
     return this;
   }
 
+  /**
+   * Renders the completed top-level nodes to the sink. Unless this is the
+   * final flush a block follows the values written, so each one is ended.
+   */
+  private void flush(boolean last) {
+    Iterator<CssNode> iter = current.nodes.iterator();
+    while (iter.hasNext()) {
+      CssNode node = iter.next();
+      node.render(buffer);
+      if (node instanceof CssValue && (!buffer.compress() || !last || iter.hasNext())) {
+        buffer.ruleEnd();
+      }
+      if (!(node instanceof CssBlock)) {
+        emitted.add(node);
+      }
+      iter.remove();
+    }
+    try {
+      if (error == null) {
+        written += buffer.length();
+        buffer.drainTo(sink);
+      }
+    } catch (IOException e) {
+      // Remember the error and discard further output.
+      error = e;
+    }
+    if (error != null) {
+      buffer.reset();
+    }
+  }
+
   /**
    * Push this block up the stack until it finds its proper parent.
    */
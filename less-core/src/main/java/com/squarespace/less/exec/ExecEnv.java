@@ -23,6 +23,7 @@ import com.squarespace.less.core.FlexList;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.BlockNode;
 import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Node;
 
 
 /**
@@ -45,6 +46,11 @@ public class ExecEnv {
    */
   protected FlexList<String> warnings;
 
+  /**
+   * Mutable evaluation state, shared by this instance and all of its copies.
+   */
+  private final ExecState state;
+
   /**
    * Exception that terminated execution, if any.
    */
@@ -82,9 +88,14 @@ public class ExecEnv {
    * initial stack contents, and warning list.
    */
   public ExecEnv(LessContext ctx, FlexList<Block> initialStack, FlexList<String> warnings) {
+    this(ctx, initialStack, warnings, new ExecState());
+  }
+
+  private ExecEnv(LessContext ctx, FlexList<Block> initialStack, FlexList<String> warnings, ExecState state) {
     this.ctx = ctx;
     this.frames = initialStack;
     this.warnings = warnings;
+    this.state = state;
   }
 
   /**
@@ -96,9 +107,58 @@ public class ExecEnv {
 
   /**
    * Returns a new {@link ExecEnv} instance with a copy of the stack frames and warnings.
+   * The copy shares this instance's evaluation state.
    */
   public ExecEnv copy() {
-    return new ExecEnv(ctx, frames.copy(), warnings);
+    return new ExecEnv(ctx, frames.copy(), warnings, state);
+  }
+
+  /**
+   * Returns the closure captured for the given block node during this
+   * evaluation, if any.
+   */
+  public ExecEnv closure(BlockNode node) {
+    return state.closure(node);
+  }
+
+  /**
+   * Captures a copy of this environment as the closure for the given block node.
+   */
+  public void captureClosure(BlockNode node) {
+    MixinMemo memo = ctx.mixinMemo();
+    if (memo.recording()) {
+      memo.impure();
+    }
+    state.closure(node, copy());
+  }
+
+  /**
+   * Marks the node as being evaluated.
+   */
+  public void enter(Node node) {
+    state.enter(node);
+  }
+
+  /**
+   * Ends one level of evaluation of the node.
+   */
+  public void exit(Node node) {
+    state.exit(node);
+  }
+
+  /**
+   * Indicates whether the node is currently being evaluated. Helps detect
+   * recursion and circular references.
+   */
+  public boolean evaluating(Node node) {
+    return state.entryCount(node) > 0;
+  }
+
+  /**
+   * Returns the number of times the node is currently being evaluated.
+   */
+  public int entryCount(Node node) {
+    return state.entryCount(node);
   }
 
   /**
@@ -169,6 +229,10 @@ public class ExecEnv {
    * Adds a warning to the list.
    */
   public void addWarning(String warning) {
+    MixinMemo memo = ctx.mixinMemo();
+    if (memo.recording()) {
+      memo.impure();
+    }
     if (warnings == null) {
       warnings = new FlexList<>();
     }
@@ -182,6 +246,10 @@ public class ExecEnv {
     if (warnings == null || warnings.isEmpty()) {
       return null;
     }
+    MixinMemo memo = ctx.mixinMemo();
+    if (memo.recording()) {
+      memo.impure();
+    }
     StringBuilder buf = new StringBuilder();
     int size = warnings.size();
     for (int i = 0; i < size; i++) {
@@ -212,14 +280,16 @@ public class ExecEnv {
       // Future: pragma to skip over circular references, looking in a higher stack frame.
       // To do that we check if the definition is evaluating (circular) and skip it:
       //
-      // if (def != null && pragmaSkipCircular() && !def.evaluating()) {
+      // if (def != null && pragmaSkipCircular() && !evaluating(def)) {
       // ...
 
       // If definition exists, return it
       if (def != null) {
+        resolved(i);
         return def;
       }
     }
+    resolved(-1);
     return null;
   }
 
@@ -227,6 +297,10 @@ public class ExecEnv {
    * Iterate up the stack, trying to resolve the mixin against each block.
    */
   public boolean resolveMixins(MixinResolver resolver) throws LessException {
+    MixinMemo memo = ctx.mixinMemo();
+    if (memo.recording()) {
+      memo.impure();
+    }
     int size = frames.size();
     for (int i = size - 1; i >= 0; i--) {
       if (resolver.match(frames.get(i))) {
@@ -236,6 +310,17 @@ public class ExecEnv {
     return false;
   }
 
+  /**
+   * Reports the frame a variable was resolved from to the mixin memo, if it
+   * is recording.
+   */
+  private void resolved(int frame) {
+    MixinMemo memo = ctx.mixinMemo();
+    if (memo.recording()) {
+      memo.resolved(this, frame);
+    }
+  }
+
   /**
    * Push a block node onto the stack.
    */
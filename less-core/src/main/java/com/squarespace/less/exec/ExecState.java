@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Side table holding the mutable state of a single evaluation, keyed by
+ * node identity. Keeping this state out of the nodes themselves means a
+ * parsed tree is never modified by evaluation, so one tree can be evaluated
+ * by many threads at once without being copied.
+ *
+ * One instance is shared by an {@link ExecEnv} and all of its copies.
+ */
+class ExecState {
+
+  /**
+   * Closures captured for block nodes, e.g. mixin definitions and
+   * detached rulesets.
+   */
+  private final Map<BlockNode, ExecEnv> closures = new IdentityHashMap<>();
+
+  /**
+   * Number of times each node is currently being evaluated. Used to detect
+   * recursion and circular references.
+   */
+  private final Map<Node, Integer> entries = new IdentityHashMap<>();
+
+  ExecEnv closure(BlockNode node) {
+    return closures.get(node);
+  }
+
+  void closure(BlockNode node, ExecEnv env) {
+    closures.put(node, env);
+  }
+
+  void enter(Node node) {
+    Integer count = entries.get(node);
+    entries.put(node, count == null ? 1 : count + 1);
+  }
+
+  void exit(Node node) {
+    Integer count = entries.get(node);
+    if (count == null || count <= 1) {
+      entries.remove(node);
+    } else {
+      entries.put(node, count - 1);
+    }
+  }
+
+  int entryCount(Node node) {
+    Integer count = entries.get(node);
+    return count == null ? 0 : count;
+  }
+
+}
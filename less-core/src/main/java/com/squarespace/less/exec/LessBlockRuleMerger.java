@@ -84,9 +84,11 @@ public class LessBlockRuleMerger {
     Rule mapped = ruleMap.get(name);
     if (mapped == null) {
 
-      // First rule we've seen with this property.
-      ruleMap.put(name, rule);
-      rules.add(rule);
+      // First rule we've seen with this property. Copy it, since merging
+      // modifies the rule and the original may be shared by a parsed tree.
+      mapped = rule.copy(rule.value(), rule.important());
+      ruleMap.put(name, mapped);
+      rules.add(mapped);
       return;
     }
 
@@ -107,33 +109,33 @@ public class LessBlockRuleMerger {
   }
 
   /**
-   * Combine values into a comma-separated list.
+   * Combine values into a new comma-separated list.
    */
   private Node mergeComma(Node dst, Node src) {
+    ExpressionList list = new ExpressionList();
     if (dst instanceof ExpressionList) {
-      ExpressionList list = (ExpressionList)dst;
-      list.add(src);
-      return dst;
+      for (Node node : ((ExpressionList)dst).expressions()) {
+        list.add(node);
+      }
+    } else {
+      list.add(dst);
     }
-
-    ExpressionList list = new ExpressionList();
-    list.add(dst);
     list.add(src);
     return list;
   }
 
   /**
-   * Combine values into a space-separated list.
+   * Combine values into a new space-separated list.
    */
   private Node mergeSpace(Node dst, Node src) {
+    Expression expn = new Expression();
     if (dst instanceof Expression) {
-      Expression expn = (Expression)dst;
-      expn.add(src);
-      return dst;
+      for (Node node : ((Expression)dst).values()) {
+        expn.add(node);
+      }
+    } else {
+      expn.add(dst);
     }
-
-    Expression expn = new Expression();
-    expn.add(dst);
     expn.add(src);
     return expn;
   }
@@ -26,6 +26,8 @@ import java.util.List;
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.LessOptions;
+import com.squarespace.less.LessStats;
+import com.squarespace.less.TimingNode;
 import com.squarespace.less.core.FlexList;
 import com.squarespace.less.core.LessInternalException;
 import com.squarespace.less.model.Block;
@@ -67,22 +69,48 @@ public class LessEvaluator {
    */
   private final LessOptions opts;
 
+  /**
+   * Mixin profiler, or null if profiling is disabled.
+   */
+  private final MixinProfiler profiler;
+
+  /**
+   * Cache of mixin call results, or null if disabled. Tracing and profiling
+   * need every call to be executed.
+   */
+  private final MixinMemo memo;
+
   public LessEvaluator(LessContext ctx) {
     this.ctx = ctx;
     this.opts = ctx.options();
+    this.profiler = ctx.mixinProfiler();
+    this.memo = opts.mixinMemo() && !opts.tracing() && profiler == null ? ctx.mixinMemo() : null;
   }
 
   /**
    * Evaluate the {@link Stylesheet}, producing a new instance where all variable references,
    * mixins, imports, etc have been evaluated and expanded.
+   *
+   * The input stylesheet is never modified: all mutable evaluation state is kept
+   * in the {@link ExecEnv}, so a single parsed stylesheet can be evaluated by many
+   * threads at once, each using its own {@link LessContext}.
    */
   public Stylesheet evaluate(Stylesheet sheet) throws LessException {
-    ExecEnv env = ctx.newEnv();
-    Stylesheet result = evaluateStylesheet(env, sheet);
-    if (env.hasError()) {
-      throw env.error();
+    LessStats stats = ctx.stats();
+    TimingNode timing = stats.enter(LessStats.EVALUATE);
+    try {
+      if (memo != null) {
+        memo.clear();
+      }
+      ExecEnv env = ctx.newEnv();
+      Stylesheet result = evaluateStylesheet(env, sheet);
+      if (env.hasError()) {
+        throw env.error();
+      }
+      return result;
+    } finally {
+      stats.exit(timing, 0);
     }
-    return result;
   }
 
   /**
@@ -124,13 +152,13 @@ public class LessEvaluator {
     Ruleset ruleset = input.copy(env);
 
     env.push(ruleset);
-    original.enter();
+    env.enter(original);
 
     Block block = ruleset.block();
     expandMixins(env, block);
     evaluateRules(env, block, forceImportant);
 
-    original.exit();
+    env.exit(original);
     env.pop();
     ruleset.evaluated(true);
     return ruleset;
@@ -142,7 +170,7 @@ public class LessEvaluator {
   public DetachedRuleset evaluateDetachedRuleset(ExecEnv env, DetachedRuleset input, boolean forceImportant)
       throws LessException {
 
-    ExecEnv closure = input.closure();
+    ExecEnv closure = env.closure(input);
     if (closure != null) {
       env = env.copy();
       env.append(closure.frames());
@@ -204,8 +232,7 @@ public class LessEvaluator {
             // when they are referenced.  Set the closure for the environment
             // in which the detached ruleset is defined.
             if (value instanceof DetachedRuleset) {
-              DetachedRuleset ruleset = (DetachedRuleset)value;
-              ruleset.closure(env);
+              env.captureClosure((DetachedRuleset)value);
 
             } else {
               // Definitions has a non-BlockNode value.
@@ -241,10 +268,10 @@ public class LessEvaluator {
 
           case MIXIN:
           {
-            // Register the closure on the original MIXIN.
+            // Register the closure for the original MIXIN.
             Mixin mixin = (Mixin) ((Mixin)node).original();
-            if (mixin.closure() == null) {
-              mixin.closure(env);
+            if (env.closure(mixin) == null) {
+              env.captureClosure(mixin);
             }
             break;
           }
@@ -275,7 +302,16 @@ public class LessEvaluator {
             } else {
               newRule = (Rule)rule.eval(env);
             }
-            newRule.warnings(env.warnings());
+
+            // Evaluation can return the parsed rule itself, which must not be
+            // modified, so copy it before attaching any warnings.
+            String warnings = env.warnings();
+            if (warnings != null) {
+              if (newRule == rule) {
+                newRule = rule.copy(rule.value(), rule.important());
+              }
+              newRule.warnings(warnings);
+            }
             node = newRule;
             break;
           }
@@ -340,12 +376,9 @@ public class LessEvaluator {
         }
 
         // Splice the rules produced by the mixin call into the current block,
-        // replacing the mixin call.
+        // replacing the mixin call. The block's variable cache picks up any
+        // definitions the call added.
         i += block.splice(i, 1, mixinResult) - 1;
-
-        // Indicate the block has changed, new variable definitions may have
-        // been added.
-        block.resetVariableCache();
         block.orFlags(mixinResult);
       }
     }
@@ -404,7 +437,7 @@ public class LessEvaluator {
       throws LessException {
 
     MixinCall call = matcher.mixinCall();
-    Mixin mixin = ((Mixin)match.mixin()).copy();
+    Mixin mixin = (Mixin)match.mixin();
     MixinParams params = (MixinParams) match.params().eval(env);
 
     // Attempt to bind the arguments to this mixin's parameters. If the argument binding
@@ -414,10 +447,22 @@ public class LessEvaluator {
       return false;
     }
 
+    // Reuse the rules produced by an earlier identical call, if it was pure.
+    Mixin original = (Mixin) mixin.original();
+    MixinMemo.Key key = null;
+    if (memo != null) {
+      key = new MixinMemo.Key(original, params, matcher.mixinArgs(), call.important());
+      Block cached = memo.get(key);
+      if (cached != null) {
+        collector.appendBlock(cached);
+        return true;
+      }
+    }
+    mixin = mixin.copy();
+
     // If the closure has been set on this mixin, use it.
     env = env.copy();
-    Mixin original = (Mixin) mixin.original();
-    ExecEnv closureEnv = original.closure();
+    ExecEnv closureEnv = env.closure(original);
     if (closureEnv != null) {
       env.append(closureEnv.frames());
     }
@@ -426,13 +471,50 @@ public class LessEvaluator {
     // We can resolve variables against the closure + argument scope or the scope which
     // called the mixin.
     env.push(bindings);
+    if (key == null) {
+      Block block = executeMixinBody(env, matcher, mixin);
+      if (block != null) {
+        collector.appendBlock(block);
+      }
+      return true;
+    }
+
+    // Record whether the guard and body read anything outside of the bindings.
+    memo.start(env, env.depth() - 1);
+    Block block = null;
+    boolean pure = false;
+    try {
+      block = executeMixinBody(env, matcher, mixin);
+    } finally {
+      pure = memo.stop();
+    }
+    if (pure) {
+      memo.put(key, block);
+    }
+    if (block != null) {
+      collector.appendBlock(block);
+    }
+    return true;
+  }
+
+  /**
+   * Evaluates the guard and block of a MIXIN whose arguments are bound on the
+   * top of the stack. Returns the rules produced, or null if the guard evaluates
+   * to FALSE.
+   */
+  private Block executeMixinBody(ExecEnv env, MixinMatcher matcher, Mixin mixin) throws LessException {
+    MixinCall call = matcher.mixinCall();
+    Mixin original = (Mixin) mixin.original();
 
     // Evaluate the guard conditions. If FALSE, bail out.
     Guard guard = mixin.guard();
     if (guard != null) {
       Node result = guard.eval(env);
       if (FALSE.equals(result)) {
-        return true;
+        if (profiler != null) {
+          profiler.guardRejected(original);
+        }
+        return null;
       }
     }
 
@@ -443,14 +525,17 @@ public class LessEvaluator {
     }
 
     // Enter the mixin body and execute it.
-    original.enter();
+    env.enter(original);
     ctx.enterMixin();
+    if (profiler != null) {
+      profiler.enter(original);
+    }
 
     env.push(mixin);
 
     LessException exception = null;
+    Block block = mixin.block();
     try {
-      Block block = mixin.block();
       expandMixins(env, block);
 
       // Wrap the final rules generated by this mixin call.
@@ -463,12 +548,15 @@ public class LessEvaluator {
 
       evaluateRules(env, block, call.important());
       exception = env.error();
-      collector.appendBlock(block);
 
     } catch (LessException e) {
       exception = e;
     }
 
+    if (profiler != null) {
+      profiler.exit();
+    }
+
     // If any errors occur inside a mixin call, we want to show the actual
     // arguments passed to the call.
     if (exception != null) {
@@ -479,8 +567,8 @@ public class LessEvaluator {
     }
 
     ctx.exitMixin();
-    original.exit();
-    return true;
+    env.exit(original);
+    return block;
   }
 
   /**
@@ -494,6 +582,9 @@ public class LessEvaluator {
     // Ignore rulesets with guards that have not been evaluated.
     Ruleset original = (Ruleset)ruleset.original();
     if (original.selectors().guard() != null && !ruleset.evaluated()) {
+      if (profiler != null) {
+        profiler.guardRejected(original);
+      }
       return true;
     }
 
@@ -504,7 +595,17 @@ public class LessEvaluator {
     }
 
     ctx.enterMixin();
-    Ruleset result = evaluateRuleset(env, ruleset, call.important());
+    if (profiler != null) {
+      profiler.enter(original);
+    }
+    Ruleset result = null;
+    try {
+      result = evaluateRuleset(env, ruleset, call.important());
+    } finally {
+      if (profiler != null) {
+        profiler.exit();
+      }
+    }
     ctx.exitMixin();
 
     Block block = result.block();
@@ -16,12 +16,15 @@
 
 package com.squarespace.less.exec;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.LessOptions;
+import com.squarespace.less.LessStats;
+import com.squarespace.less.TimingNode;
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.FlexList;
 import com.squarespace.less.core.LessInternalException;
@@ -87,11 +90,15 @@ public class LessRenderer {
   private int warningId;
 
   protected LessRenderer(LessContext context, Stylesheet stylesheet) {
+    this(context, stylesheet, null);
+  }
+
+  protected LessRenderer(LessContext context, Stylesheet stylesheet, Appendable out) {
     this.ctx = context;
     this.stylesheet = stylesheet;
     this.env = context.newRenderEnv();
     this.opts = context.options();
-    this.model = new CssModel(context);
+    this.model = new CssModel(context, out);
   }
 
   /**
@@ -99,17 +106,59 @@ public class LessRenderer {
    */
   public static String render(LessContext context, Stylesheet sheet) throws LessException {
     LessRenderer renderer = new LessRenderer(context, sheet);
-    return renderer.render();
+    renderer.index();
+
+    LessStats stats = context.stats();
+    TimingNode timing = stats.enter(LessStats.RENDER);
+    String result = null;
+    try {
+      renderer.build();
+      result = renderer.model.render();
+    } finally {
+      stats.exit(timing, result == null ? 0 : result.length());
+    }
+    stats.outputDone(result.length());
+    return result;
   }
 
   /**
-   * Render the {@link Stylesheet} to the {@link CssModel} and return the
-   * rendered output.
+   * Renders a stylesheet against the given context, writing each top-level
+   * block to the output as soon as it is complete.
    */
-  private String render() throws LessException {
-    LessIndexer indexer = new LessIndexer(env);
-    indexer.index(stylesheet);
+  public static void render(LessContext context, Stylesheet sheet, Appendable out)
+      throws LessException, IOException {
+    LessRenderer renderer = new LessRenderer(context, sheet, out);
+    renderer.index();
+
+    LessStats stats = context.stats();
+    TimingNode timing = stats.enter(LessStats.RENDER);
+    try {
+      renderer.build();
+      renderer.model.finish();
+    } finally {
+      stats.exit(timing, renderer.model.written());
+    }
+    stats.outputDone(renderer.model.written());
+  }
 
+  /**
+   * Index the extends and selectors of the {@link Stylesheet}.
+   */
+  private void index() throws LessException {
+    LessStats stats = ctx.stats();
+    TimingNode timing = stats.enter(LessStats.EXTEND_INDEX);
+    try {
+      LessIndexer indexer = new LessIndexer(env);
+      indexer.index(stylesheet);
+    } finally {
+      stats.exit(timing, 0);
+    }
+  }
+
+  /**
+   * Render the indexed {@link Stylesheet} to the {@link CssModel}.
+   */
+  private void build() throws LessException {
     env.push(stylesheet);
     Block block = stylesheet.block();
     Directive charset = block.charset();
@@ -119,8 +168,6 @@ public class LessRenderer {
     renderImports(block);
     renderBlock(block, false);
     env.pop();
-
-    return model.render();
   }
 
   /**
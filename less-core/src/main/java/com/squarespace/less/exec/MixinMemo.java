@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.exec;
+
+import static com.squarespace.less.core.LessUtils.safeEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinParams;
+
+
+/**
+ * Per-compile cache of the rules produced by mixin calls. A call's result is
+ * stored only if evaluating the mixin read nothing from the caller's scope:
+ * every variable it resolved was bound by its arguments or defined within
+ * its body, and it called no other mixins or detached rulesets. The result
+ * then depends only on the mixin and its arguments.
+ *
+ * Purity is recorded while the mixin is evaluated, as the environment reports
+ * each variable it resolves.
+ */
+public class MixinMemo {
+
+  /**
+   * Result of a call whose guard evaluated to false.
+   */
+  private static final Block REJECTED = new Block(0);
+
+  private final Map<Key, Block> results = new HashMap<>();
+
+  private final FlexList<Recording> recordings = new FlexList<>();
+
+  private int hits;
+
+  /**
+   * Returns the rules produced by an earlier call with the same key, an empty
+   * block if the call's guard was false, or null if there is no such call.
+   */
+  public Block get(Key key) {
+    Block result = results.get(key);
+    if (result != null) {
+      hits++;
+    }
+    return result;
+  }
+
+  /**
+   * Stores the rules produced by the call, or null if the call's guard was false.
+   */
+  public void put(Key key, Block block) {
+    results.put(key, block == null ? REJECTED : block.copy());
+  }
+
+  /**
+   * Number of calls answered from the cache.
+   */
+  public int hits() {
+    return hits;
+  }
+
+  public void clear() {
+    results.clear();
+    recordings.clear();
+    hits = 0;
+  }
+
+  /**
+   * Starts recording the evaluation of a mixin in the environment, whose
+   * frames from the given index onward belong to the call.
+   */
+  public void start(ExecEnv env, int boundary) {
+    recordings.push(new Recording(env, boundary));
+  }
+
+  /**
+   * Ends the most recent recording, returning true if the evaluation was pure.
+   */
+  public boolean stop() {
+    return recordings.pop().pure;
+  }
+
+  /**
+   * Indicates whether any evaluation is being recorded.
+   */
+  public boolean recording() {
+    return !recordings.isEmpty();
+  }
+
+  /**
+   * Notes a variable resolved from the given frame of the environment, or -1
+   * if it was not found.
+   */
+  public void resolved(ExecEnv env, int frame) {
+    int size = recordings.size();
+    for (int i = 0; i < size; i++) {
+      Recording recording = recordings.get(i);
+      if (recording.env != env || frame < recording.boundary) {
+        recording.pure = false;
+      }
+    }
+  }
+
+  /**
+   * Notes an operation whose result depends on the caller's scope.
+   */
+  public void impure() {
+    int size = recordings.size();
+    for (int i = 0; i < size; i++) {
+      recordings.get(i).pure = false;
+    }
+  }
+
+  /**
+   * Identifies a call by the mixin it executes, its evaluated parameters and
+   * arguments, and whether it was marked important.
+   */
+  public static class Key {
+
+    private final Mixin mixin;
+
+    private final MixinParams params;
+
+    private final MixinCallArgs args;
+
+    private final boolean important;
+
+    // Nodes can compare equal yet render differently, e.g. strings with different quotes.
+    private final String repr;
+
+    private final int hashCode;
+
+    public Key(Mixin mixin, MixinParams params, MixinCallArgs args, boolean important) {
+      this.mixin = mixin;
+      this.params = params;
+      this.args = args;
+      this.important = important;
+      this.repr = params.repr() + (args == null ? "" : args.repr());
+      this.hashCode = (System.identityHashCode(mixin) * 31 + repr.hashCode()) * 31 + (important ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key)obj;
+      return mixin == other.mixin
+          && important == other.important
+          && repr.equals(other.repr)
+          && safeEquals(params, other.params)
+          && safeEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static class Recording {
+
+    private final ExecEnv env;
+
+    private final int boundary;
+
+    private boolean pure = true;
+
+    Recording(ExecEnv env, int boundary) {
+      this.env = env;
+      this.boundary = boundary;
+    }
+  }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.exec;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.squarespace.less.core.Buffer;
+import com.squarespace.less.core.Constants;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.Ruleset;
+
+
+/**
+ * Records invocation counts, guard rejections, self time and inclusive time
+ * for each mixin executed by the {@link LessEvaluator}. Mixins are keyed by
+ * their name and the file and line where they are defined, so the profile
+ * can accumulate over many compiles.
+ *
+ * Profiling is enabled by setting a profiler on the LessContext. A profiler
+ * is not thread-safe, so concurrent compiles need one each.
+ */
+public class MixinProfiler {
+
+  private static final double NANOS_PER_MS = 1000000.0;
+
+  private static final long NANOS_PER_MICRO = 1000;
+
+  private final Map<String, MixinProfile> profiles = new HashMap<>();
+
+  private final Map<BlockNode, MixinProfile> byDefinition = new IdentityHashMap<>();
+
+  private final Map<String, Long> stacks = new LinkedHashMap<>();
+
+  private final Deque<Frame> frames = new ArrayDeque<>();
+
+  /**
+   * Indicates the mixin definition is about to be executed.
+   */
+  public void enter(BlockNode definition) {
+    MixinProfile profile = profile(definition);
+    profile.calls++;
+    profile.active++;
+    Frame parent = frames.peek();
+    String stack = parent == null ? profile.key : parent.stack + ';' + profile.key;
+    frames.push(new Frame(profile, stack, System.nanoTime()));
+  }
+
+  /**
+   * Indicates execution of the innermost mixin has completed.
+   */
+  public void exit() {
+    Frame frame = frames.pop();
+    long elapsed = System.nanoTime() - frame.started;
+    long self = elapsed - frame.childNanos;
+    MixinProfile profile = frame.profile;
+    profile.selfNanos += self;
+
+    // Recursive calls are already covered by the outermost call's time.
+    profile.active--;
+    if (profile.active == 0) {
+      profile.totalNanos += elapsed;
+    }
+    Frame parent = frames.peek();
+    if (parent != null) {
+      parent.childNanos += elapsed;
+    }
+    Long prev = stacks.get(frame.stack);
+    stacks.put(frame.stack, prev == null ? self : prev + self);
+  }
+
+  /**
+   * Indicates the mixin's guard rejected the call.
+   */
+  public void guardRejected(BlockNode definition) {
+    profile(definition).guardRejections++;
+  }
+
+  /**
+   * Returns the profiles of all mixins executed, ordered by descending self time.
+   */
+  public List<MixinProfile> profiles() {
+    List<MixinProfile> result = new ArrayList<>(profiles.values());
+    Collections.sort(result, new Comparator<MixinProfile>() {
+      @Override
+      public int compare(MixinProfile a, MixinProfile b) {
+        return Long.compare(b.selfNanos, a.selfNanos);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Renders a table of the {@code limit} mixins with the highest self time.
+   */
+  public String report(int limit) {
+    List<MixinProfile> sorted = profiles();
+    Buffer buf = new Buffer(0);
+    buf.append(String.format(Locale.ROOT, "%10s %10s %8s %8s  %s\n",
+        "self ms", "total ms", "calls", "rejected", "mixin"));
+    for (int i = 0; i < sorted.size() && i < limit; i++) {
+      MixinProfile profile = sorted.get(i);
+      buf.append(String.format(Locale.ROOT, "%10.3f %10.3f %8d %8d  %s\n", profile.selfTimeMs(),
+          profile.totalTimeMs(), profile.calls, profile.guardRejections, profile.key));
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Renders the self time of each distinct mixin call stack, in microseconds,
+   * in the collapsed-stack format read by flame graph tools.
+   */
+  public String collapsedStacks() {
+    Buffer buf = new Buffer(0);
+    for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+      buf.append(entry.getKey().replace(' ', '_')).append(' ');
+      buf.append(entry.getValue() / NANOS_PER_MICRO).append('\n');
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Discards all recorded data.
+   */
+  public void reset() {
+    profiles.clear();
+    byDefinition.clear();
+    stacks.clear();
+    frames.clear();
+  }
+
+  private MixinProfile profile(BlockNode definition) {
+    MixinProfile profile = byDefinition.get(definition);
+    if (profile == null) {
+      String key = key(definition);
+      profile = profiles.get(key);
+      if (profile == null) {
+        profile = new MixinProfile(key);
+        profiles.put(key, profile);
+      }
+      byDefinition.put(definition, profile);
+    }
+    return profile;
+  }
+
+  private static String key(BlockNode definition) {
+    Buffer buf = new Buffer(0);
+    if (definition instanceof Mixin) {
+      buf.append(((Mixin)definition).name()).append("()");
+    } else {
+      ((Ruleset)definition).selectors().repr(buf);
+    }
+    Path path = definition.fileName();
+    if (path == null) {
+      path = Constants.DEFAULT_PATH;
+    }
+    buf.append(" (").append(path.getFileName().toString());
+    buf.append(':').append(definition.lineOffset() + 1).append(')');
+    return buf.toString();
+  }
+
+  /**
+   * Accumulated measurements for a single mixin definition.
+   */
+  public static class MixinProfile {
+
+    private final String key;
+
+    private int calls;
+
+    private int guardRejections;
+
+    private int active;
+
+    private long selfNanos;
+
+    private long totalNanos;
+
+    MixinProfile(String key) {
+      this.key = key;
+    }
+
+    /** Mixin name or ruleset selectors, with the file and line of its definition */
+    public String key() {
+      return key;
+    }
+
+    /** Number of times the mixin body was executed */
+    public int calls() {
+      return calls;
+    }
+
+    /** Number of calls which bound arguments but were rejected by the guard */
+    public int guardRejections() {
+      return guardRejections;
+    }
+
+    /** Time spent in the mixin body, excluding nested mixin calls */
+    public double selfTimeMs() {
+      return selfNanos / NANOS_PER_MS;
+    }
+
+    /** Time spent in the mixin body, including nested mixin calls */
+    public double totalTimeMs() {
+      return totalNanos / NANOS_PER_MS;
+    }
+
+  }
+
+  private static class Frame {
+
+    private final MixinProfile profile;
+
+    private final String stack;
+
+    private final long started;
+
+    private long childNanos;
+
+    Frame(MixinProfile profile, String stack, long started) {
+      this.profile = profile;
+      this.stack = stack;
+      this.started = started;
+    }
+
+  }
+
+}
@@ -89,26 +89,37 @@ public class MixinResolver {
       return false;
     }
 
-    // TODO: future mixin resolution optimization to cache ruleset/mixins in
-    // a separate field on the block to reduce size of these inner loops.
-    // this should improve execution times for large stylesheets with many
-    // imports.
-
     boolean matched = false;
-    int size = rules.size();
-    for (int i = 0; i < size; i++) {
-      Node node = rules.get(i);
-      if (node instanceof Ruleset) {
-        matched |= matchRuleset(index, (Ruleset)node);
-
-      } else if (node instanceof Mixin) {
-        matched |= matchMixin(index, (Mixin)node);
+    int[] candidates = block.mixinCandidates(callPath, index);
+    if (candidates == null) {
+      int size = rules.size();
+      for (int i = 0; i < size; i++) {
+        matched |= matchRule(index, rules.get(i));
+      }
+    } else {
+      // Only look at the rules whose paths can match the call.
+      for (int position : candidates) {
+        matched |= matchRule(index, rules.get(position));
       }
     }
 
     return matched;
   }
 
+  /**
+   * Attempt to match the mixin call's path against a rule, if it is a
+   * {@link Mixin} or {@link Ruleset}.
+   */
+  private boolean matchRule(int index, Node node) throws LessException {
+    if (node instanceof Ruleset) {
+      return matchRuleset(index, (Ruleset)node);
+
+    } else if (node instanceof Mixin) {
+      return matchMixin(index, (Mixin)node);
+    }
+    return false;
+  }
+
   /**
    * Attempt to match the mixin call's path against a {@link Ruleset}
    */
@@ -120,7 +131,7 @@ public class MixinResolver {
     Ruleset original = (Ruleset)ruleset.original();
 
     /// Ignore recursive entries into ruleset mixins.
-    if (original.evaluating()) {
+    if (matcher.callEnv().evaluating(original)) {
       return false;
     }
 
@@ -171,7 +182,7 @@ public class MixinResolver {
     ExecEnv env = matcher.callEnv().copy();
 
     // Append the mixin definitions closure frames, if any.
-    ExecEnv defEnv = mixin.closure();
+    ExecEnv defEnv = env.closure(mixin.original());
     if (defEnv != null) {
       env.append(defEnv.frames().copy());
     }
@@ -89,8 +89,9 @@ public class Block extends BaseNode {
 
   /**
    * Variable cache. Since variables can be dynamically added to a block
-   * during execution, periodically this cache needs to be rebuilt so that
-   * these new variables are found during evaluation.
+   * during execution, this cache is updated as rules are spliced in, and
+   * rebuilt when the block changes in other ways, so that these new variables
+   * are found during evaluation.
    */
   protected Map<String, Definition> variables;
 
@@ -100,6 +101,42 @@ public class Block extends BaseNode {
    */
   protected byte flags = FLAG_REBUILD_VARS;
 
+  /**
+   * Index of the block's mixins and rulesets, kept up to date as rules are
+   * appended and spliced in. Parsed blocks are indexed by the parser, while
+   * copies made for evaluation are indexed on their first mixin lookup.
+   */
+  private MixinIndex mixinIndex;
+
+  /**
+   * Parsed block this block was copied from, or null if it was not copied.
+   */
+  private Block origin;
+
+  /**
+   * Rules as they were when the variable cache was last rebuilt. Variable
+   * lookups see the definitions in these rules, even if evaluation has
+   * since replaced them.
+   */
+  private FlexList<Node> snapshot;
+
+  /**
+   * Indicates whether the variable cache maps the definitions in the snapshot.
+   */
+  private boolean indexed;
+
+  /**
+   * Indicates whether the snapshot still holds the same rules as the block, so
+   * splices can be applied to both.
+   */
+  private boolean synced;
+
+  /**
+   * Position of the last {@link Definition} in the snapshot, or -1 if there
+   * is none. Only valid while the variable cache is indexed.
+   */
+  private int lastDefinition;
+
   /**
    * Constructs a block with the default initial capcity.
    */
@@ -117,9 +154,10 @@ public class Block extends BaseNode {
   /**
    * Private constructor, used by the {@link Block#copy()} method.
    */
-  private Block(FlexList<Node> rules, byte flags) {
+  private Block(FlexList<Node> rules, byte flags, Block origin) {
     this.rules = rules;
     this.flags = flags;
+    this.origin = origin;
   }
 
   /**
@@ -142,6 +180,8 @@ public class Block extends BaseNode {
   public void prependNode(Node node) {
     setFlags(node);
     rules.splice(0, 0, new Node[] { node });
+    mixinIndex = null;
+    synced = false;
   }
 
   /**
@@ -150,6 +190,10 @@ public class Block extends BaseNode {
   public void appendNode(Node node) {
     setFlags(node);
     rules.append(node);
+    if (mixinIndex != null) {
+      mixinIndex.append(node, rules.size() - 1);
+    }
+    synced = false;
   }
 
   /**
@@ -159,6 +203,8 @@ public class Block extends BaseNode {
   public void appendBlock(Block block) {
     flags |= block.flags;
     rules.append(block.rules);
+    mixinIndex = null;
+    synced = false;
   }
 
   /**
@@ -170,14 +216,46 @@ public class Block extends BaseNode {
 
   /**
    * Shortcut to splice {@code other} Block's rules into this block.
-   * Returns the number of rules that were spliced into place.
+   * Returns the number of rules that were spliced into place. Variable
+   * lookups see the definitions added by the splice.
    */
   public int splice(int start, int num, Block other) {
     FlexList<Node> otherRules = other.rules();
     rules.splice(start, num, otherRules);
+    if (mixinIndex != null) {
+      mixinIndex.splice(start, num, otherRules);
+    }
+    spliceVariables(start, num, otherRules);
     return otherRules.size();
   }
 
+  /**
+   * Builds the index of the block's mixins and rulesets, if the block has
+   * enough rules to benefit from one. The parser calls this once a block is
+   * complete, so that evaluation never has to modify a parsed block.
+   */
+  public void indexMixins() {
+    if (mixinIndex == null && rules.size() >= MixinIndex.MIN_RULES) {
+      mixinIndex = new MixinIndex(rules);
+    }
+  }
+
+  /**
+   * Returns the positions of the {@link Mixin} and {@link Ruleset} rules which
+   * may match the mixin call path starting at the given offset, in order. The
+   * rule at each position must still be matched against the path.
+   *
+   * Returns null if the block is not indexed, in which case all of its rules
+   * must be checked. Only a copy of a block is indexed here, since other blocks
+   * may be parsed blocks shared by several evaluations.
+   */
+  public int[] mixinCandidates(String path, int start) {
+    if (origin != null) {
+      indexMixins();
+    }
+    return mixinIndex == null ? null : mixinIndex.candidates(path, start);
+  }
+
   /**
    * Indicates whether block is marked for deferred evaluation.
    */
@@ -257,46 +335,138 @@ public class Block extends BaseNode {
    * the rules in this block.
    */
   public Definition resolveDefinition(String name) {
-    if ((flags & FLAG_REBUILD_VARS) != 0) {
-      buildVariables();
+    FlexList<Node> visible = snapshot();
+    if (!indexed) {
+      buildVariables(visible);
     }
     return variables.get(name);
   }
 
+  private FlexList<Node> snapshot() {
+    if ((flags & FLAG_REBUILD_VARS) != 0) {
+      snapshot = rules.copy();
+      indexed = false;
+      synced = true;
+      flags &= ~FLAG_REBUILD_VARS;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Applies a splice of the rules to the snapshot and updates the variable
+   * cache with the definitions it added, rather than marking the whole cache
+   * to be rebuilt on the next lookup.
+   */
+  private void spliceVariables(int start, int num, FlexList<Node> added) {
+    if ((flags & FLAG_REBUILD_VARS) != 0) {
+      return;
+    }
+    if (!synced) {
+      flags |= FLAG_REBUILD_VARS;
+      return;
+    }
+
+    // Clamp the range the same way the rules were spliced.
+    int size = snapshot.size();
+    start = start < 0 ? 0 : (start > size ? size : start);
+    int end = num < 0 ? start : Math.min(start + num, size);
+    for (int i = start; i < end; i++) {
+      if (snapshot.get(i).type().equals(NodeType.DEFINITION)) {
+        // A definition was removed, so an earlier one may become visible again.
+        indexed = false;
+      }
+    }
+    snapshot.splice(start, end - start, added);
+    if (!indexed) {
+      return;
+    }
+
+    // Definitions after the splice take precedence over the ones it added.
+    boolean defsAfter = lastDefinition >= end;
+    int count = added.size();
+    int last = -1;
+    for (int i = 0; i < count; i++) {
+      Node node = added.get(i);
+      if (!node.type().equals(NodeType.DEFINITION)) {
+        continue;
+      }
+      Definition def = (Definition)node;
+      if (!defsAfter || !definedAfter(def.name(), start + count)) {
+        variables.put(def.name(), def);
+      }
+      last = start + i;
+    }
+    if (defsAfter) {
+      lastDefinition += count - (end - start);
+    } else if (last != -1) {
+      lastDefinition = last;
+    }
+  }
+
+  /**
+   * Indicates whether a {@link Definition} of the given name appears in the
+   * snapshot at or after the given position.
+   */
+  private boolean definedAfter(String name, int start) {
+    if (!variables.containsKey(name)) {
+      return false;
+    }
+    int size = snapshot.size();
+    for (int i = start; i < size; i++) {
+      Node node = snapshot.get(i);
+      if (node.type().equals(NodeType.DEFINITION) && ((Definition)node).name().equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Builds the variable cache by locating all {@link Definition} nodes
-   * within the block, and mapping them by name.
+   * within the rules, and mapping them by name.
    */
-  private void buildVariables() {
+  private void buildVariables(FlexList<Node> visible) {
     if (variables == null) {
       variables = new HashMap<>();
     } else {
       variables.clear();
     }
-    int size = rules.size();
+    lastDefinition = -1;
+    int size = visible.size();
     for (int i = 0; i < size; i++) {
-      Node node = rules.get(i);
+      Node node = visible.get(i);
       if (!node.type().equals(NodeType.DEFINITION)) {
         continue;
       }
       Definition def = (Definition)node;
       variables.put(def.name(), def);
+      lastDefinition = i;
     }
-    flags &= ~FLAG_REBUILD_VARS;
+    indexed = true;
   }
 
   /**
-   * Create a shallow copy of this block.
+   * Create a shallow copy of this block. The copy builds its own variable cache,
+   * and shares the array of rules with this block until either one changes.
    */
   public Block copy() {
-    return new Block(rules.copy(), flags);
+    return new Block(rules.copy(), (byte)(flags | FLAG_REBUILD_VARS), origin());
+  }
+
+  /**
+   * Returns the block this block was copied from, directly or through other
+   * copies, or this block if it is not a copy.
+   */
+  public Block origin() {
+    return origin == null ? this : origin;
   }
 
   /**
-   * Sets this instance's flags by OR-ing with the arguments flags.
+   * Sets this instance's flags by OR-ing with the arguments flags. The state
+   * of the argument's variable cache has no bearing on this block's cache.
    */
   public void orFlags(Block block) {
-    flags |= block.flags;
+    flags |= block.flags & ~FLAG_REBUILD_VARS;
   }
 
   /**
@@ -69,11 +69,6 @@ public class Definition extends BaseNode {
    */
   protected final Node value;
 
-  /**
-   * Flag to detect circular references and raise an error.
-   */
-  protected boolean evaluating;
-
   /**
    * Flag indicating the definition was marked important.
    */
@@ -137,14 +132,6 @@ public class Definition extends BaseNode {
     return important;
   }
 
-  /**
-   * Indicates whether this definition is currently being evaluated. Helps
-   * detect and skip over circular references.
-   */
-  public boolean evaluating() {
-    return evaluating;
-  }
-
   public Path fileName() {
     return fileName;
   }
@@ -168,14 +155,20 @@ public class Definition extends BaseNode {
     // TODO: future pragma to detect and skip circular definitions,
     // looking in a higher scope. remove the following line.
     // see ExecEnv.resolveDefinition
-    if (evaluating) {
+    if (env.evaluating(this)) {
       throw new LessException(varCircularRef(env));
     }
 
-    // Mark as 'evaluating' so that we can detect circular references.
-    evaluating = true;
-    Node result = value.eval(env);
-    evaluating = false;
+    // Mark as 'evaluating' so that we can detect circular references. The
+    // flag lives in the evaluation state rather than on this node, so the
+    // parsed tree can be shared by concurrent evaluations.
+    env.enter(this);
+    Node result = null;
+    try {
+      result = value.eval(env);
+    } finally {
+      env.exit(this);
+    }
     if (important) {
       env.setImportantFlag(true);
     }
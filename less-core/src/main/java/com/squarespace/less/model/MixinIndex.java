@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.squarespace.less.core.Chars;
+import com.squarespace.less.core.FlexList;
+
+
+/**
+ * Index of the {@link Mixin} and {@link Ruleset} rules in a block, keyed by the
+ * first segment of their mixin paths, so resolving a mixin call only looks at
+ * the rules which can match it.
+ *
+ * The index holds positions rather than rules, since evaluation replaces
+ * rulesets in place with their evaluated copies. Callers must check the rule
+ * found at each position.
+ */
+final class MixinIndex {
+
+  /**
+   * Blocks with fewer rules than this are scanned rather than indexed.
+   */
+  static final int MIN_RULES = 8;
+
+  private static final int[] NONE = new int[0];
+
+  /**
+   * Positions of the rules whose paths start with each segment.
+   */
+  private final Map<String, Positions> keyed = new HashMap<>();
+
+  /**
+   * Positions of rulesets whose selectors have no path until they are evaluated.
+   */
+  private final Positions unkeyed = new Positions();
+
+  /**
+   * Lengths of the paths which consist of a single segment. A call path is
+   * matched by prefix, so these may match within the call's first segment.
+   */
+  private final BitSet shortKeys = new BitSet();
+
+  MixinIndex(FlexList<Node> rules) {
+    int size = rules.size();
+    for (int i = 0; i < size; i++) {
+      add(rules.get(i), i);
+    }
+  }
+
+  /**
+   * Returns the positions of the rules which may match the call path at the
+   * given offset, in ascending order.
+   */
+  int[] candidates(String path, int start) {
+    int end = segmentEnd(path, start);
+    List<Positions> found = new ArrayList<>(2);
+    collect(found, keyed.get(path.substring(start, end)));
+    for (int len = shortKeys.nextSetBit(1); len != -1 && start + len < end; len = shortKeys.nextSetBit(len + 1)) {
+      collect(found, keyed.get(path.substring(start, start + len)));
+    }
+    collect(found, unkeyed);
+
+    if (found.isEmpty()) {
+      return NONE;
+    }
+    if (found.size() == 1) {
+      return found.get(0).toArray();
+    }
+
+    int count = 0;
+    for (Positions positions : found) {
+      count += positions.size;
+    }
+    int[] result = new int[count];
+    count = 0;
+    for (Positions positions : found) {
+      System.arraycopy(positions.items, 0, result, count, positions.size);
+      count += positions.size;
+    }
+    Arrays.sort(result);
+
+    // A ruleset with several selectors may be found under more than one key.
+    int unique = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (unique == 0 || result[unique - 1] != result[i]) {
+        result[unique++] = result[i];
+      }
+    }
+    return unique == result.length ? result : Arrays.copyOf(result, unique);
+  }
+
+  /**
+   * Indexes a rule appended to the block at the given position.
+   */
+  void append(Node node, int position) {
+    add(node, position);
+  }
+
+  /**
+   * Updates the index after the rules between start and start + num are
+   * replaced by the given rules.
+   */
+  void splice(int start, int num, FlexList<Node> other) {
+    int delta = other.size() - num;
+    for (Positions positions : keyed.values()) {
+      positions.splice(start, num, delta);
+    }
+    unkeyed.splice(start, num, delta);
+
+    int size = other.size();
+    for (int i = 0; i < size; i++) {
+      add(other.get(i), start + i);
+    }
+  }
+
+  private void add(Node node, int position) {
+    if (node instanceof Mixin) {
+      addPath(((Mixin)node).name(), position);
+
+    } else if (node instanceof Ruleset) {
+      Ruleset ruleset = (Ruleset)node;
+      for (Selector selector : ruleset.selectors().selectors()) {
+        if (selector.hasMixinPath()) {
+          addPath(selector.mixinPath(), position);
+        } else if (selector.needsEval()) {
+          unkeyed.insert(position);
+        }
+      }
+    }
+  }
+
+  private void addPath(String path, int position) {
+    if (path == null || path.isEmpty()) {
+      return;
+    }
+    int end = segmentEnd(path, 0);
+    if (end == path.length()) {
+      shortKeys.set(end);
+    }
+    String key = path.substring(0, end);
+    Positions positions = keyed.get(key);
+    if (positions == null) {
+      positions = new Positions();
+      keyed.put(key, positions);
+    }
+    positions.insert(position);
+  }
+
+  private static void collect(List<Positions> found, Positions positions) {
+    if (positions != null && positions.size > 0) {
+      found.add(positions);
+    }
+  }
+
+  /**
+   * Returns the end of the path segment which begins at the given offset.
+   * Segments begin with a class or id prefix.
+   */
+  private static int segmentEnd(String path, int start) {
+    int len = path.length();
+    for (int i = start + 1; i < len; i++) {
+      char ch = path.charAt(i);
+      if (ch == Chars.PERIOD || ch == Chars.NUMBER_SIGN) {
+        return i;
+      }
+    }
+    return len;
+  }
+
+  /**
+   * Sorted list of rule positions.
+   */
+  private static class Positions {
+
+    private int[] items = new int[2];
+
+    private int size;
+
+    /**
+     * Inserts the position, keeping the list sorted and free of duplicates.
+     */
+    void insert(int position) {
+      int index = Arrays.binarySearch(items, 0, size, position);
+      if (index >= 0) {
+        return;
+      }
+      index = -index - 1;
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      System.arraycopy(items, index, items, index + 1, size - index);
+      items[index] = position;
+      size++;
+    }
+
+    /**
+     * Removes the positions between start and start + num, and shifts the
+     * positions which follow them by delta.
+     */
+    void splice(int start, int num, int delta) {
+      int end = start + num;
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        int position = items[i];
+        if (position < start) {
+          items[count++] = position;
+        } else if (position >= end) {
+          items[count++] = position + delta;
+        }
+      }
+      size = count;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(items, size);
+    }
+  }
+
+}
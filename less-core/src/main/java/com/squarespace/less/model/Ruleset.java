@@ -33,11 +33,6 @@ public class Ruleset extends BlockNode {
    */
   protected final Selectors selectors;
 
-  /**
-   * Flag indicating this ruleset is being evaluated. Helps detect recursion.
-   */
-  protected boolean evaluating;
-
   /**
    * Mark this ruleset as having been evaluated.
    */
@@ -98,27 +93,6 @@ public class Ruleset extends BlockNode {
     return hasMixinPath;
   }
 
-  /**
-   * Marks the ruleset as being evaluated.
-   */
-  public void enter() {
-    evaluating = true;
-  }
-
-  /**
-   * Clears the ruleset's evaluation flag.
-   */
-  public void exit() {
-    evaluating = false;
-  }
-
-  /**
-   * Indicates if the ruleset is currently being evaluated.
-   */
-  public boolean evaluating() {
-    return evaluating;
-  }
-
   /**
    * Indicates the ruleset has been evaluated;
    */
@@ -25,7 +25,7 @@ import com.squarespace.less.model.Operation;
 import com.squarespace.less.model.Operator;
 
 
-public class AdditionParselet implements Parselet {
+public class AdditionParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -71,4 +71,9 @@ public class AdditionParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ParseletDispatch.mayStartWith(MULTIPLICATION, ch);
+  }
+
 }
@@ -27,7 +27,7 @@ import com.squarespace.less.model.Node;
 /**
  * Handles parsing of '{' PRIMARY '}' sequence for all block types (ruleset, media, etc).
  */
-public class BlockParselet implements Parselet {
+public class BlockParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -46,7 +46,15 @@ public class BlockParselet implements Parselet {
       return null;
     }
     stm.seek1();
+
+    // Index the block now, since evaluation must not modify the parsed tree.
+    block.indexMixins();
     return block;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.LEFT_CURLY_BRACKET;
+  }
+
 }
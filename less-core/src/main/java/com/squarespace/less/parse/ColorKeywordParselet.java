@@ -19,6 +19,7 @@ package com.squarespace.less.parse;
 import static com.squarespace.less.parse.Parselets.KEYWORD;
 
 import com.squarespace.less.LessException;
+import com.squarespace.less.core.CharClass;
 import com.squarespace.less.model.BaseColor;
 import com.squarespace.less.model.Node;
 
@@ -26,7 +27,7 @@ import com.squarespace.less.model.Node;
 /**
  * Only parses keywords which map to color values.
  */
-public class ColorKeywordParselet implements Parselet {
+public class ColorKeywordParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -39,4 +40,9 @@ public class ColorKeywordParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.keywordStart(ch);
+  }
+
 }
@@ -25,7 +25,7 @@ import com.squarespace.less.model.RGBColor;
 /**
  * Parse a 3- or 6-segment hexadecimal color value.
  */
-public class ColorParselet implements Parselet {
+public class ColorParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -35,4 +35,9 @@ public class ColorParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.NUMBER_SIGN;
+  }
+
 }
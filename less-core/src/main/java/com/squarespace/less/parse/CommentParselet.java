@@ -24,7 +24,7 @@ import com.squarespace.less.model.Node;
 /**
  * Parse both single line '//' and block '/*' comments.
  */
-public class CommentParselet implements Parselet {
+public class CommentParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -62,4 +62,9 @@ public class CommentParselet implements Parselet {
     return stm.context().nodeBuilder().buildComment(stm.raw.substring(start, end), block, ruleLevel);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.SLASH;
+  }
+
 }
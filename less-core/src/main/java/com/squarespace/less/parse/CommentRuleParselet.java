@@ -16,6 +16,7 @@
 
 package com.squarespace.less.parse;
 
+import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.Node;
 
 
@@ -23,11 +24,16 @@ import com.squarespace.less.model.Node;
  * Special parser that handles standalone comments (not embedded in a rule). Newline
  * handling is slightly different.
  */
-public class CommentRuleParselet implements Parselet {
+public class CommentRuleParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
     return CommentParselet.parseComment(stm, true);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.SLASH;
+  }
+
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+
+
+/**
+ * A file read during a compile, with the modification time and content
+ * fingerprint it had when it was read.
+ */
+public class Dependency {
+
+  private final Path path;
+
+  private final long lastModified;
+
+  private final long fingerprint;
+
+  public Dependency(Path path, long lastModified, long fingerprint) {
+    this.path = path;
+    this.lastModified = lastModified;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Normalized path of the file.
+   */
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Modification time reported by the loader when the file was read, or -1 if unknown.
+   */
+  public long lastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Fingerprint of the file's source.
+   */
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+}
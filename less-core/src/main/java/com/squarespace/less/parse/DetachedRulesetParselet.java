@@ -17,6 +17,7 @@
 package com.squarespace.less.parse;
 
 import com.squarespace.less.LessException;
+import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.DetachedRuleset;
 import com.squarespace.less.model.Node;
@@ -25,7 +26,7 @@ import com.squarespace.less.model.Node;
 /**
  * Parses a bare ruleset.
  */
-public class DetachedRulesetParselet implements Parselet {
+public class DetachedRulesetParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -33,4 +34,9 @@ public class DetachedRulesetParselet implements Parselet {
     return node == null ? null : new DetachedRuleset((Block)node);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.LEFT_CURLY_BRACKET;
+  }
+
 }
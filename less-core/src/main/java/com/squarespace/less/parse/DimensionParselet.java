@@ -25,7 +25,7 @@ import com.squarespace.less.model.Unit;
 /**
  * Parse numbers with optional units.
  */
-public class DimensionParselet implements Parselet {
+public class DimensionParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -42,4 +42,9 @@ public class DimensionParselet implements Parselet {
     return new Dimension(Double.parseDouble(value), unit);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.dimensionStart(ch);
+  }
+
 }
@@ -37,7 +37,7 @@ import com.squarespace.less.model.Node;
 /**
  * Main parser for all directives of the form '@' NAME.
  */
-public class DirectiveParselet implements Parselet {
+public class DirectiveParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -197,4 +197,9 @@ public class DirectiveParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.AT_SIGN;
+  }
+
 }
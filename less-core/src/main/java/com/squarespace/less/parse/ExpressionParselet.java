@@ -29,7 +29,7 @@ import com.squarespace.less.model.Node;
 /**
  * Parse a space-delimited list of entities.
  */
-public class ExpressionParselet implements Parselet {
+public class ExpressionParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -54,4 +54,9 @@ public class ExpressionParselet implements Parselet {
     return new Expression(entities);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ParseletDispatch.mayStartWith(EXPRESSION_SUB, ch);
+  }
+
 }
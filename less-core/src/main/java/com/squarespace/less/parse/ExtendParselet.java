@@ -33,7 +33,7 @@ import com.squarespace.less.model.SelectorPart;
 /**
  * Parses a selector extend element or rule.
  */
-public class ExtendParselet implements Parselet {
+public class ExtendParselet implements PredictiveParselet {
 
   /**
    * Indicates this parser looks for rule level extend lists.
@@ -156,4 +156,9 @@ public class ExtendParselet implements Parselet {
     return extend;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == (ruleLevel ? Chars.AMPERSAND : Chars.COLON);
+  }
+
 }
@@ -33,7 +33,7 @@ import com.squarespace.less.model.Url;
 /**
  * Parse all forms which look like function calls.
  */
-public class FunctionCallParselet implements Parselet {
+public class FunctionCallParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -110,4 +110,9 @@ public class FunctionCallParselet implements Parselet {
     return new Url(value);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.callStart(ch);
+  }
+
 }
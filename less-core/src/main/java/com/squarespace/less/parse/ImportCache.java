@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+
+
+/**
+ * Stores parsed imports so they can be reused across compiles without
+ * re-reading and re-parsing the imported file.
+ *
+ * Implementations must be safe for use by multiple threads, since a single
+ * cache is typically shared by many {@link com.squarespace.less.LessContext}
+ * instances.
+ */
+public interface ImportCache {
+
+  /**
+   * Returns the entry for the normalized path, or null if none exists.
+   */
+  ParsedImport get(Path path);
+
+  /**
+   * Stores the entry under its normalized path, replacing any previous entry.
+   */
+  void put(ParsedImport entry);
+
+  /**
+   * Removes the entry for the normalized path, if any.
+   */
+  void remove(Path path);
+
+  /**
+   * Removes all entries.
+   */
+  void clear();
+
+  /**
+   * Number of entries currently cached.
+   */
+  int size();
+
+}
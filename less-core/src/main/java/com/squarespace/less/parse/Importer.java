@@ -18,9 +18,16 @@ package com.squarespace.less.parse;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +35,9 @@ import com.squarespace.less.FilesystemLessLoader;
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.LessLoader;
+import com.squarespace.less.LessStats;
+import com.squarespace.less.TimestampedLessLoader;
+import com.squarespace.less.core.LessUtils;
 import com.squarespace.less.exec.ImportRecord;
 import com.squarespace.less.model.Import;
 import com.squarespace.less.model.Node;
@@ -46,6 +56,20 @@ public class Importer {
 
   private final Map<Path, ImportRecord> importRecords = new HashMap<>();
 
+  private final Map<Path, Dependency> dependencies = new LinkedHashMap<>();
+
+  /**
+   * Static imports being loaded on the import executor, keyed by the node
+   * so that each occurrence of an import gets its own parse.
+   */
+  private final Map<Import, Future<PrefetchedImport>> prefetched = new IdentityHashMap<>();
+
+  /**
+   * Files this compile loaded through a cache which shares loads, waiting to
+   * be spliced in.
+   */
+  private final Map<Path, PrefetchedImport> loaded = new HashMap<>();
+
   private final LessContext context;
 
   private final LessLoader loader;
@@ -76,11 +100,181 @@ public class Importer {
     importRecords.put(path, new ImportRecord(path, null, importNode.once()));
   }
 
+  /**
+   * Clears all import records, preparing this importer for a new compile.
+   */
+  public void reset() {
+    importRecords.clear();
+    dependencies.clear();
+    for (Future<PrefetchedImport> future : prefetched.values()) {
+      future.cancel(true);
+    }
+    prefetched.clear();
+    loaded.clear();
+  }
+
+  /**
+   * Indicates whether static imports are loaded ahead on the import executor.
+   */
+  boolean prefetching() {
+    return context.importExecutor() != null;
+  }
+
+  /**
+   * Starts resolving, loading and parsing the static import on the import
+   * executor. The path is rendered here, since rendering uses the context.
+   */
+  void prefetch(Import importNode) throws LessException {
+    ExecutorService executor = context.importExecutor();
+    if (executor == null || prefetched.containsKey(importNode)) {
+      return;
+    }
+    final String rawPath = renderImportPath(importNode);
+    if (rawPath == null) {
+      return;
+    }
+    final Path rootPath = importNode.rootPath();
+    prefetched.put(importNode, executor.submit(new Callable<PrefetchedImport>() {
+      @Override
+      public PrefetchedImport call() {
+        return load(rootPath, rawPath);
+      }
+    }));
+  }
+
+  /**
+   * Waits for and returns the prefetched import, or null if the import was not
+   * prefetched or the prefetch failed.
+   */
+  PrefetchedImport takePrefetched(Import importNode) {
+    Future<PrefetchedImport> future = prefetched.remove(importNode);
+    if (future == null) {
+      return null;
+    }
+
+    LessStats stats = context.stats();
+    long started = stats.now();
+    PrefetchedImport result = null;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+    if (result.source() != null) {
+      stats.loadDone(result.source().length(), started);
+    }
+    return result;
+  }
+
+  /**
+   * Indicates whether parsed imports should be stored in the import cache.
+   */
+  public boolean cachingEnabled() {
+    return context.importCache() != null;
+  }
+
+  /**
+   * Returns the cached rules for the file at {@code path}, or null if caching is
+   * disabled, the file is not cached, or it has changed since it was parsed.
+   * A file imported more than once in a compile is always re-parsed, so each
+   * import produces distinct nodes.
+   *
+   * If the cache is a {@link LoadingImportCache}, a missing file is loaded
+   * through it, so concurrent compiles importing the file share one load.
+   * The compile which loads the file gets null, and takes the loaded file
+   * with {@link #takeLoaded(Path)}.
+   */
+  public ParsedImport findCached(Path path) throws LessException {
+    ImportCache cache = context.importCache();
+    if (cache == null || importRecords.containsKey(path)) {
+      return null;
+    }
+    ParsedImport entry = cache.get(path);
+    if (entry == null) {
+      return (cache instanceof LoadingImportCache) ? loadShared((LoadingImportCache)cache, path) : null;
+    }
+
+    long modified = lastModified(path);
+    if (!isUnchanged(path, modified, entry.lastModified(), entry.fingerprint())) {
+      cache.remove(path);
+      return null;
+    }
+
+    // Content is unchanged, so remember the new modification time.
+    if (modified != entry.lastModified()) {
+      entry = entry.touch(modified);
+      cache.put(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the file this compile loaded at {@code path} in {@link #findCached(Path)},
+   * or null if it did not load one.
+   */
+  PrefetchedImport takeLoaded(Path path) {
+    return loaded.isEmpty() ? null : loaded.remove(path);
+  }
+
+  /**
+   * Stores the top-level rules parsed from the file at {@code path} in the import cache.
+   */
+  public void cacheImport(Path path, long modified, long fingerprint, List<Node> rules) {
+    ImportCache cache = context.importCache();
+    if (cache != null) {
+      cache.put(new ParsedImport(path, modified, fingerprint, rules));
+    }
+  }
+
+  /**
+   * Records a file read by the current compile, so the compiled output can be
+   * invalidated when the file changes.
+   */
+  public void recordDependency(Path path, long modified, long fingerprint) {
+    dependencies.put(path, new Dependency(path, modified, fingerprint));
+  }
+
+  /**
+   * Returns all files read by the current compile, in the order they were first imported.
+   */
+  public List<Dependency> dependencies() {
+    return new ArrayList<>(dependencies.values());
+  }
+
+  /**
+   * Indicates whether the file still matches the modification time and fingerprint
+   * recorded for the dependency. The file is only read if its modification time is
+   * unknown or has changed.
+   */
+  public boolean isUnchanged(Dependency dependency) throws LessException {
+    Path path = dependency.path();
+    return isUnchanged(path, lastModified(path), dependency.lastModified(), dependency.fingerprint());
+  }
+
+  /**
+   * Returns the last modification time of the file, or -1 if the loader is not
+   * a {@link TimestampedLessLoader} or no import cache is set. Without a time,
+   * cached imports and dependencies are validated by content fingerprint.
+   */
+  public long lastModified(Path path) {
+    if (!(loader instanceof TimestampedLessLoader) || !cachingEnabled()) {
+      return -1;
+    }
+    return ((TimestampedLessLoader)loader).lastModified(path);
+  }
+
   /**
    * Load the source from the {@link LessLoader}.
    */
   public String loadSource(Path path) throws LessException {
-    return loader.load(path);
+    LessStats stats = context.stats();
+    long started = stats.now();
+    String source = loader.load(path);
+    stats.loadDone(source.length(), started);
+    return source;
   }
 
   /**
@@ -100,6 +294,84 @@ public class Importer {
     return false;
   }
 
+  /**
+   * Loads the missing file through the cache. Returns the entry if another
+   * compile loaded it, or null if this one did.
+   */
+  private ParsedImport loadShared(LoadingImportCache cache, final Path path) {
+    final PrefetchedImport[] result = new PrefetchedImport[1];
+    ParsedImport entry = cache.load(path, new Callable<ParsedImport>() {
+      @Override
+      public ParsedImport call() {
+        LessStats stats = context.stats();
+        long started = stats.now();
+        result[0] = load(path);
+        if (result[0].source() != null) {
+          stats.loadDone(result[0].source().length(), started);
+        }
+        return result[0].parsed();
+      }
+    });
+    if (result[0] != null) {
+      loaded.put(path, result[0]);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Runs on the import executor. Touches only the loader, the options and a
+   * private context, leaving failures to be reported by the sequential path.
+   */
+  private PrefetchedImport load(Path rootPath, String rawPath) {
+    Path path = resolve(rootPath, rawPath);
+    if (path == null) {
+      return new PrefetchedImport(null, -1, null, null);
+    }
+    return load(path);
+  }
+
+  /**
+   * Loads and parses the file at the resolved path apart from the compile.
+   */
+  private PrefetchedImport load(Path path) {
+    long modified = lastModified(path);
+    String source = null;
+    try {
+      source = loader.load(path);
+    } catch (LessException e) {
+      return new PrefetchedImport(path, modified, null, null);
+    }
+
+    ParsedImport parsed = null;
+    try {
+      LessContext detached = new LessContext(context.options(), loader);
+      detached.setNodeBuilder(context.nodeBuilder());
+      List<Node> rules = PrimaryParselet.parseDetached(detached, source, path);
+      if (rules != null) {
+        parsed = new ParsedImport(path, modified, LessUtils.fingerprint(source), rules);
+      }
+    } catch (LessException e) {
+      // Parsed again during evaluation to report the error.
+    }
+    return new PrefetchedImport(path, modified, source, parsed);
+  }
+
+  private boolean isUnchanged(Path path, long modified, long lastModified, long fingerprint)
+      throws LessException {
+
+    // An unchanged modification time means the content is unchanged.
+    if (modified != -1 && modified == lastModified) {
+      return true;
+    }
+
+    // Otherwise fall back to comparing the content fingerprint.
+    if (!loader.exists(path)) {
+      return false;
+    }
+    return LessUtils.fingerprint(loader.load(path)) == fingerprint;
+  }
+
   /**
    * Resolve the path and determine if it can be loaded. Returns the resolved
    * path or null if no valid path could be resolved.
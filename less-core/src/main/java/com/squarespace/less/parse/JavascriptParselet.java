@@ -27,7 +27,7 @@ import com.squarespace.less.model.Node;
 /**
  * For now, just detect JavaScript syntax so we can raise an error.
  */
-public class JavascriptParselet implements Parselet {
+public class JavascriptParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -37,6 +37,8 @@ public class JavascriptParselet implements Parselet {
       pos++;
     }
     if (stm.peek(pos) == Chars.GRAVE_ACCENT) {
+      // Result depends on the compile options, so never cache this stream.
+      stm.markUncacheable();
       if (options.strict()) {
         throw stm.parseError(new LessException(javascriptDisabled()));
       }
@@ -49,4 +51,9 @@ public class JavascriptParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.TILDE || ch == Chars.GRAVE_ACCENT;
+  }
+
 }
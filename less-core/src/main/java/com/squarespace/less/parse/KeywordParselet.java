@@ -22,7 +22,7 @@ import com.squarespace.less.model.Node;
 import com.squarespace.less.model.RGBColor;
 
 
-public class KeywordParselet implements Parselet {
+public class KeywordParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -38,4 +38,9 @@ public class KeywordParselet implements Parselet {
     return new Keyword(stm.token());
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.keywordStart(ch);
+  }
+
 }
@@ -20,6 +20,8 @@ import static com.squarespace.less.core.SyntaxErrorMaker.importError;
 import static com.squarespace.less.core.SyntaxErrorMaker.recursiveImport;
 import static com.squarespace.less.parse.PrimaryParselet.evaluateImport;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -103,10 +105,16 @@ public class LessParser {
    */
   public void parse(String raw, Path filePath) throws LessException {
     LessStream stream = push(raw, filePath, parseEnv);
-    Block block = (Block)stream.parse(Parselets.PRIMARY);
 
-    // Ensure the stream was completely consumed by the parser.
-    stream.checkComplete();
+    // Large stylesheets may be parsed in chunks in parallel, falling back
+    // to the sequential parse if the chunks cannot be parsed on their own.
+    Block block = ParallelParse.parse(stream);
+    if (block == null) {
+      block = (Block)stream.parse(Parselets.PRIMARY);
+
+      // Ensure the stream was completely consumed by the parser.
+      stream.checkComplete();
+    }
     pop();
 
     // Evaluate all deferred blocks.
@@ -119,25 +127,35 @@ public class LessParser {
   }
 
   /**
-   * Push a stream onto the stack, typically to process an {@link Import} statement.
+   * Parses the stylesheet read from the reader and appends it to the current
+   * global block. The source is read through a window, and the rules in the
+   * window are parsed as soon as they are complete, so the whole source is
+   * never held in memory. Returns the number of characters read.
    */
-  public LessStream push(String raw, Path filePath, ExecEnv env) throws LessException {
-    // Make sure we're not recursing through the same import file.
-    if (this.streamPaths.contains(filePath)) {
-      LessStream current = this.streams.last();
-      throw current.parseError(new LessException(recursiveImport(filePath)));
-    }
+  public int parse(Reader reader, Path filePath) throws LessException, IOException {
+    return parse(reader, filePath, StreamingParse.DEFAULT_WINDOW_SIZE);
+  }
 
-    // Ensure we don't exceed the maximum allowed import recursion depth
-    int limit = context.options().importRecursionLimit();
-    if (context.importDepth() > limit) {
-      LessStream current = this.streams.last();
-      throw current.parseError(
-          new LessException(importError(filePath, "Recursion limit of " + limit + " exceeded")));
-    }
+  /**
+   * Parses the stylesheet read from the reader, splitting the source into
+   * segments of at least the given number of characters.
+   */
+  int parse(Reader reader, Path filePath, int windowSize) throws LessException, IOException {
+    Block block = new Block();
+    parseEnv.push(block);
+    int length = StreamingParse.parse(this, reader, filePath, parseEnv, block, windowSize);
+    parseEnv.pop();
 
-    context.enterImport();
-    this.streamPaths.add(filePath);
+    evaluateDeferred();
+    rootBlock.appendBlock(block);
+    return length;
+  }
+
+  /**
+   * Push a stream onto the stack, typically to process an {@link Import} statement.
+   */
+  public LessStream push(String raw, Path filePath, ExecEnv env) throws LessException {
+    enterPath(filePath);
 
     LessStream stream = null;
     stream = new LessStream(this, raw, filePath, env);
@@ -146,6 +164,22 @@ public class LessParser {
     return stream;
   }
 
+  /**
+   * Enters an import whose rules are replayed from the import cache instead of
+   * being parsed from a stream. Performs the same recursion checks as {@link #push}.
+   */
+  public void pushCached(Path filePath) throws LessException {
+    enterPath(filePath);
+  }
+
+  /**
+   * Exits an import entered with {@link #pushCached(Path)}.
+   */
+  public void popCached(Path filePath) {
+    context.exitImport();
+    this.streamPaths.remove(filePath);
+  }
+
   /**
    * Pops the current stream.
    */
@@ -155,11 +189,33 @@ public class LessParser {
     this.streamPaths.remove(stream.path());
     List<ExecEnv> envs = stream.deferreds();
     if (!envs.isEmpty()) {
-      deferreds.add(new Deferred(envs, stream.raw()));
+      deferreds.add(new Deferred(envs, stream.raw(), stream.lineBase()));
     }
     return stream;
   }
 
+  /**
+   * Checks the import recursion limits and enters the given path.
+   */
+  private void enterPath(Path filePath) throws LessException {
+    // Make sure we're not recursing through the same import file.
+    if (this.streamPaths.contains(filePath)) {
+      LessStream current = this.streams.last();
+      throw current.parseError(new LessException(recursiveImport(filePath)));
+    }
+
+    // Ensure we don't exceed the maximum allowed import recursion depth
+    int limit = context.options().importRecursionLimit();
+    if (context.importDepth() > limit) {
+      LessStream current = this.streams.last();
+      throw current.parseError(
+          new LessException(importError(filePath, "Recursion limit of " + limit + " exceeded")));
+    }
+
+    context.enterImport();
+    this.streamPaths.add(filePath);
+  }
+
   /**
    * Carry out evaluation of parsed blocks with one or more children
    * which require evaluation.  These evaluations have been deferred.
@@ -233,7 +289,8 @@ public class LessParser {
             block.orFlags(tempBlock);
           }
         } catch (LessException e) {
-          throw ParseUtils.parseError(e, newImport.fileName(), deferred.raw, newImport.parseOffset());
+          throw ParseUtils.parseError(e, newImport.fileName(), deferred.raw, Stream.lineStarts(deferred.raw),
+              deferred.lineBase, newImport.parseOffset());
         }
       }
     }
@@ -254,9 +311,15 @@ public class LessParser {
      */
     private final String raw;
 
-    Deferred(List<ExecEnv> envs, String raw) {
+    /**
+     * Line at which the source starts, when it is a segment of a larger file.
+     */
+    private final int lineBase;
+
+    Deferred(List<ExecEnv> envs, String raw, int lineBase) {
       this.envs = envs;
       this.raw = raw;
+      this.lineBase = lineBase;
     }
 
   }
@@ -23,12 +23,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.core.Chars;
 import com.squarespace.less.core.Constants;
+import com.squarespace.less.core.InternTable;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Node;
@@ -40,26 +40,6 @@ import com.squarespace.less.parse.Recognizers.Recognizer;
  */
 public class LessStream extends Stream {
 
-  private final Matcher matcherAttributeKey;
-
-  private final Matcher matcherAttributeOp;
-
-  private final Matcher matcherDirective;
-
-  private final Matcher matcherKeyword;
-
-  private final Matcher matcherMixinName;
-
-  private final Matcher matcherOpacity;
-
-  private final Matcher matcherProperty;
-
-  private final Matcher matcherRatio;
-
-  private final Matcher matcherShorthand;
-
-  private final Matcher matcherUnicodeRange;
-
   private final LessParser parser;
 
   private final Path path;
@@ -92,6 +72,17 @@ public class LessStream extends Stream {
   // Special mode for 'font' rules.
   private boolean requireStrictMath;
 
+  // Whether the parsed rules can be stored in the import cache.
+  private boolean cacheable = true;
+
+  // Whether the stream is parsed apart from the compile, leaving imports unevaluated.
+  private boolean detached;
+
+  // Memo table for expensive parselets, or null if disabled.
+  private final ParseMemo memo;
+
+  private final InternTable internTable;
+
   public LessStream(LessParser parser, String raw) {
     this(parser, raw, null);
   }
@@ -101,7 +92,14 @@ public class LessStream extends Stream {
   }
 
   public LessStream(LessParser parser, String raw, Path path, ExecEnv env) {
-    super(raw);
+    this(parser, raw, path, env, 0, raw.length(), null);
+  }
+
+  /**
+   * Constructs a stream over one chunk of the source, between start and end.
+   */
+  LessStream(LessParser parser, String raw, Path path, ExecEnv env, int start, int end, int[] lineStarts) {
+    super(raw, start, end, lineStarts);
     this.parser = parser;
     this.path = (path == null) ? Constants.DEFAULT_PATH : path;
 
@@ -110,20 +108,13 @@ public class LessStream extends Stream {
     this.fileName = this.path.getFileName();
     this.parseEnv = (env == null) ? new ExecEnv(parser.context()) : env;
 
-    this.matcherAttributeKey = Patterns.ATTRIBUTE_KEY.matcher(raw);
-    this.matcherAttributeOp = Patterns.ATTRIBUTE_OP.matcher(raw);
-    this.matcherDirective = Patterns.DIRECTIVE.matcher(raw);
-    this.matcherKeyword = Patterns.KEYWORD.matcher(raw);
-    this.matcherMixinName = Patterns.MIXIN_NAME.matcher(raw);
-    this.matcherOpacity = Patterns.OPACITY.matcher(raw);
-    this.matcherProperty = Patterns.PROPERTY.matcher(raw);
-    this.matcherRatio = Patterns.RATIO.matcher(raw);
-    this.matcherShorthand = Patterns.SHORTHAND.matcher(raw);
-    this.matcherUnicodeRange = Patterns.UNICODE_DESCRIPTOR.matcher(raw);
+    int memoSize = parser.context().options().parseMemoSize();
+    this.memo = (memoSize > 0) ? new ParseMemo(memoSize) : null;
+    this.internTable = parser.context().internTable();
   }
 
   public LessException parseError(LessException exc) {
-    return ParseUtils.parseError(exc, fileName, raw, furthest);
+    return ParseUtils.parseError(exc, fileName, raw, lineStarts(), lineBase(), furthest);
   }
 
   public LessParser parser() {
@@ -138,6 +129,10 @@ public class LessStream extends Stream {
     return deferred;
   }
 
+  ParseMemo memo() {
+    return memo;
+  }
+
   public ExecEnv execEnv() {
     return parseEnv;
   }
@@ -158,6 +153,33 @@ public class LessStream extends Stream {
     return inParens;
   }
 
+  /**
+   * Indicates whether the rules parsed from this stream are independent of the
+   * current compile, and can be reused by later compiles.
+   */
+  public boolean cacheable() {
+    return cacheable;
+  }
+
+  /**
+   * Marks the rules parsed from this stream as depending on the current compile.
+   */
+  public void markUncacheable() {
+    cacheable = false;
+  }
+
+  boolean detached() {
+    return detached;
+  }
+
+  /**
+   * Marks the stream as parsed apart from the compile, so imports are recorded
+   * but not evaluated.
+   */
+  void detach() {
+    detached = true;
+  }
+
   public void setInParens(boolean flag) {
     this.inParens = flag;
   }
@@ -182,16 +204,23 @@ public class LessStream extends Stream {
 
   /**
    * Skips whitespace and tries each parselet in order until one returns a non-null result.
+   * Parselets which cannot match the next character are skipped.
    */
   public Node parse(Parselet[] parselets) throws LessException {
     skipWs();
+    if (parselets.length > 1) {
+      parselets = ParseletDispatch.candidates(parselets, peek());
+      if (parselets.length == 0) {
+        return null;
+      }
+    }
     Node result = null;
     Mark pos = mark();
     for (Parselet parselet : parselets) {
       result = parselet.parse(this);
       if (result != null) {
-        result.setLineOffset(pos.lineOffset);
-        result.setCharOffset(pos.charOffset);
+        result.setLineOffset(lineOffset(pos.index));
+        result.setCharOffset(charOffset(pos.index));
         break;
       }
     }
@@ -202,11 +231,19 @@ public class LessStream extends Stream {
     return token;
   }
 
+  /**
+   * Returns the shared instance of the name in the given range of the source.
+   */
+  public String intern(int start, int end) {
+    return internTable.intern(raw, start, end);
+  }
+
   /**
    * Defer the current block for evaluation after the parse completes.
    * To do this we capture the current stack as a closure.
    */
   public void defer() {
+    cacheable = false;
     if (parseEnv != null) {
       Block block = parseEnv.frames().last();
       if (!block.deferred()) {
@@ -231,11 +268,11 @@ public class LessStream extends Stream {
   }
 
   public boolean matchAttributeKey() {
-    return finish(match(matcherAttributeKey));
+    return finish(match(RecognizerPatterns.ATTRIBUTE_KEY));
   }
 
   public boolean matchAttributeOp() {
-    return finish(match(matcherAttributeOp));
+    return finish(match(RecognizerPatterns.ATTRIBUTE_OP));
   }
 
   public boolean matchConditionOp() {
@@ -265,7 +302,7 @@ public class LessStream extends Stream {
   }
 
   public boolean matchDirective() {
-    return finish(match(matcherDirective));
+    return finish(match(RecognizerPatterns.DIRECTIVE));
   }
 
   public boolean matchElement0() {
@@ -312,11 +349,11 @@ public class LessStream extends Stream {
   }
 
   public boolean matchKeyword() {
-    return finish(match(matcherKeyword));
+    return finish(match(RecognizerPatterns.KEYWORD));
   }
 
   public boolean matchMixinName() {
-    return finish(match(matcherMixinName));
+    return finish(match(RecognizerPatterns.MIXIN_NAME));
   }
 
   public boolean matchNot() {
@@ -324,19 +361,19 @@ public class LessStream extends Stream {
   }
 
   public boolean matchOpacity() {
-    return finish(match(matcherOpacity));
+    return finish(match(RecognizerPatterns.OPACITY));
   }
 
   public boolean matchProperty() {
-    return finish(match(matcherProperty));
+    return finish(match(RecognizerPatterns.PROPERTY));
   }
 
   public boolean matchRatio() {
-    return finish(match(matcherRatio));
+    return finish(match(RecognizerPatterns.RATIO));
   }
 
   public boolean matchUnicodeRange() {
-    return finish(match(matcherUnicodeRange));
+    return finish(match(RecognizerPatterns.UNICODE_RANGE));
   }
 
   public boolean matchUrlStart() {
@@ -352,21 +389,11 @@ public class LessStream extends Stream {
   }
 
   public boolean peekShorthand() {
-    return peek(matcherShorthand);
+    return peek(RecognizerPatterns.SHORTHAND);
   }
 
-  private boolean peek(Matcher matcher) {
-    matcher.region(index, length);
-    return matcher.lookingAt();
-  }
-
-  private boolean match(Matcher matcher) {
-    matcher.region(index, length);
-    boolean matched = matcher.lookingAt();
-    if (matched) {
-      matchEnd = matcher.end();
-    }
-    return matched;
+  private boolean peek(Recognizer recognizer) {
+    return recognizer.match(raw, index, length) > index;
   }
 
   private boolean match(Recognizer recognizer) {
@@ -392,9 +419,7 @@ public class LessStream extends Stream {
 
   private void set(int start, int end) {
     tokenPosition.index = start;
-    tokenPosition.lineOffset = lineOffset;
-    tokenPosition.charOffset = charOffset;
-    token = raw.substring(start, end);
+    token = internTable.intern(raw, start, end);
   }
 
 }
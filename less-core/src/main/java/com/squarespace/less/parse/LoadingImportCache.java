@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+
+/**
+ * {@link ImportCache} which lets concurrent compiles share the load of a
+ * missing entry, so a file imported by several of them is parsed once.
+ */
+public interface LoadingImportCache extends ImportCache {
+
+  /**
+   * Returns the entry for the normalized path. If there is none, the first
+   * caller runs the loader and stores the entry it returns, and concurrent
+   * callers for the same path wait for it. Returns null if the loader
+   * returns null or fails.
+   */
+  ParsedImport load(Path path, Callable<ParsedImport> loader);
+
+}
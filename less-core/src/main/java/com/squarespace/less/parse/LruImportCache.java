@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * {@link ImportCache} holding at most a fixed number of entries, evicting
+ * the least-recently used entry when full. Concurrent loads of the same
+ * missing entry are shared.
+ */
+public class LruImportCache implements LoadingImportCache {
+
+  /**
+   * Default maximum number of entries.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 256;
+
+  private final Map<Path, ParsedImport> entries;
+
+  /**
+   * Loads in progress, keyed by path.
+   */
+  private final Map<Path, FutureTask<ParsedImport>> loads = new HashMap<>();
+
+  private final int maxEntries;
+
+  private int evictions;
+
+  /**
+   * Constructs a cache holding at most {@link #DEFAULT_MAX_ENTRIES} entries.
+   */
+  public LruImportCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Constructs a cache holding at most {@code maxEntries} entries.
+   */
+  public LruImportCache(int maxEntries) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.entries = new LinkedHashMap<Path, ParsedImport>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, ParsedImport> eldest) {
+        if (size() > LruImportCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public synchronized ParsedImport get(Path path) {
+    return entries.get(path);
+  }
+
+  @Override
+  public ParsedImport load(Path path, Callable<ParsedImport> loader) {
+    FutureTask<ParsedImport> task = null;
+    boolean owner = false;
+    synchronized (this) {
+      ParsedImport entry = entries.get(path);
+      if (entry != null) {
+        return entry;
+      }
+      task = loads.get(path);
+      if (task == null) {
+        task = new FutureTask<>(loader);
+        loads.put(path, task);
+        owner = true;
+      }
+    }
+
+    // The load runs on the calling thread, outside the lock.
+    if (owner) {
+      task.run();
+    }
+    ParsedImport entry = null;
+    try {
+      entry = task.get();
+    } catch (ExecutionException e) {
+      // Leave the failure to be reported by the caller's own parse.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (owner) {
+      synchronized (this) {
+        loads.remove(path);
+        if (entry != null) {
+          entries.put(path, entry);
+        }
+      }
+    }
+    return entry;
+  }
+
+  @Override
+  public synchronized void put(ParsedImport entry) {
+    entries.put(entry.path(), entry);
+  }
+
+  @Override
+  public synchronized void remove(Path path) {
+    entries.remove(path);
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  @Override
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Maximum number of entries this cache will hold.
+   */
+  public int maxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Number of entries evicted to make room for newer ones.
+   */
+  public synchronized int evictions() {
+    return evictions;
+  }
+
+}
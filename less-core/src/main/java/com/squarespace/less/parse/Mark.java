@@ -17,17 +17,17 @@
 package com.squarespace.less.parse;
 
 
+/**
+ * Saved stream position. Line and character offsets are derived from the
+ * index by the stream when needed.
+ */
 public class Mark {
 
   public int index;
 
-  public int lineOffset;
-
-  public int charOffset;
-
   @Override
   public String toString() {
-    return "at line " + (lineOffset + 1) + " character " + (charOffset + 1);
+    return "at index " + index;
   }
 
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.squarespace.less.LessException;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Wraps a parselet whose result is memoized by position when the stream has a
+ * {@link ParseMemo}. Used for parselets which are expensive and which several
+ * alternatives may try at the same position.
+ */
+class MemoParselet implements PredictiveParselet {
+
+  private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+  private final int id = NEXT_ID.getAndIncrement();
+
+  private final Parselet delegate;
+
+  MemoParselet(Parselet delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Node parse(LessStream stm) throws LessException {
+    ParseMemo memo = stm.memo();
+    return memo == null ? delegate.parse(stm) : memo.parse(id, delegate, stm);
+  }
+
+  @Override
+  public boolean mayStartWith(char ch) {
+    return !(delegate instanceof PredictiveParselet) || ((PredictiveParselet)delegate).mayStartWith(ch);
+  }
+
+}
@@ -35,7 +35,7 @@ import com.squarespace.less.model.Selector;
 import com.squarespace.less.model.TextElement;
 
 
-public class MixinCallParselet implements Parselet {
+public class MixinCallParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -93,5 +93,9 @@ public class MixinCallParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == PERIOD || ch == NUMBER_SIGN;
+  }
 
 }
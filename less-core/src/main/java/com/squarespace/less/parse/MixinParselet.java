@@ -30,7 +30,7 @@ import com.squarespace.less.model.MixinParams;
 import com.squarespace.less.model.Node;
 
 
-public class MixinParselet implements Parselet {
+public class MixinParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -61,8 +61,14 @@ public class MixinParselet implements Parselet {
     }
 
     Mixin mixin = stm.context().nodeBuilder().buildMixin(name, params, guard, (Block)block);
+    mixin.fileName(stm.fileName());
     mixin.markOriginal();
     return mixin;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.PERIOD || ch == Chars.NUMBER_SIGN;
+  }
+
 }
@@ -25,7 +25,7 @@ import com.squarespace.less.model.Operation;
 import com.squarespace.less.model.Operator;
 
 
-public class MultiplicationParselet implements Parselet {
+public class MultiplicationParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -63,4 +63,9 @@ public class MultiplicationParselet implements Parselet {
     return current;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ParseletDispatch.mayStartWith(OPERAND, ch);
+  }
+
 }
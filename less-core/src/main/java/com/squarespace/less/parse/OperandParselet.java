@@ -26,7 +26,7 @@ import com.squarespace.less.model.Operation;
 import com.squarespace.less.model.Operator;
 
 
-public class OperandParselet implements Parselet {
+public class OperandParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -41,4 +41,9 @@ public class OperandParselet implements Parselet {
     return negate ? new Operation(Operator.MULTIPLY, node, new Dimension(-1, null)) : node;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.MINUS_SIGN || ParseletDispatch.mayStartWith(OPERAND_SUB, ch);
+  }
+
 }
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.exec.ExecEnv;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Speculatively parses a large stylesheet in parallel. The source is split
+ * where a scan guesses a top-level rule ends, each chunk is parsed by its own
+ * detached stream, and the rules of the chunks are appended in order.
+ *
+ * The guess is only verified by parsing: if any chunk fails to parse or
+ * cannot be parsed apart from the compile, the caller falls back to the
+ * sequential parse, which also reports any errors.
+ */
+final class ParallelParse {
+
+  private ParallelParse() {
+  }
+
+  /**
+   * Parses the stream's source in chunks on the context's parse pool. Returns
+   * the top-level block, or null if the stream must be parsed sequentially.
+   */
+  static Block parse(LessStream stm) throws LessException {
+    LessContext context = stm.context();
+    ForkJoinPool pool = context.parsePool();
+    int chunkSize = context.options().parseChunkSize();
+    String raw = stm.raw();
+    if (pool == null || chunkSize <= 0 || raw.length() < chunkSize * 2) {
+      return null;
+    }
+
+    int[] bounds = boundaries(raw, chunkSize);
+    if (bounds.length < 3) {
+      return null;
+    }
+
+    int[] lineStarts = stm.lineStarts();
+    List<Callable<List<Node>>> tasks = new ArrayList<>(bounds.length - 1);
+    for (int i = 1; i < bounds.length; i++) {
+      tasks.add(new Chunk(context, raw, stm.path(), bounds[i - 1], bounds[i], lineStarts));
+    }
+
+    List<Node> rules = new ArrayList<>();
+    for (Future<List<Node>> future : pool.invokeAll(tasks)) {
+      List<Node> chunk = null;
+      try {
+        chunk = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        return null;
+      }
+      if (chunk == null) {
+        return null;
+      }
+      rules.addAll(chunk);
+    }
+    return PrimaryParselet.appendDetached(stm, rules);
+  }
+
+  /**
+   * Scans the source for the ends of top-level rules, skipping strings,
+   * comments and urls, and returns the offsets splitting it into chunks of
+   * at least the given size. The first offset is 0 and the last is the length
+   * of the source. A source whose brackets do not balance is not split.
+   */
+  static int[] boundaries(String raw, int chunkSize) {
+    int len = raw.length();
+    List<Integer> bounds = new ArrayList<>();
+    bounds.add(0);
+
+    RuleScanner scanner = new RuleScanner();
+    int bound = 0;
+    while ((bound = scanner.next(raw, len, bound + chunkSize, true)) != -1) {
+      bounds.add(bound);
+    }
+
+    if (!scanner.balanced()) {
+      return new int[] { 0, len };
+    }
+    bounds.add(len);
+    int[] result = new int[bounds.size()];
+    for (int j = 0; j < result.length; j++) {
+      result[j] = bounds.get(j);
+    }
+    return result;
+  }
+
+  /**
+   * Parses one chunk of the source with a detached stream and a context of
+   * its own, since the compile's context must only be used by one thread.
+   */
+  private static class Chunk implements Callable<List<Node>> {
+
+    private final LessContext context;
+
+    private final String raw;
+
+    private final Path path;
+
+    private final int start;
+
+    private final int end;
+
+    private final int[] lineStarts;
+
+    Chunk(LessContext context, String raw, Path path, int start, int end, int[] lineStarts) {
+      this.context = context;
+      this.raw = raw;
+      this.path = path;
+      this.start = start;
+      this.end = end;
+      this.lineStarts = lineStarts;
+    }
+
+    @Override
+    public List<Node> call() throws LessException {
+      LessContext detached = new LessContext(context.options());
+      detached.setNodeBuilder(context.nodeBuilder());
+      LessParser parser = new LessParser(detached);
+      LessStream stm = new LessStream(parser, raw, path, new ExecEnv(detached), start, end, lineStarts);
+      return PrimaryParselet.parseDetached(stm);
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import com.squarespace.less.LessException;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Bounded memo table for a single {@link LessStream}, recording the result
+ * of a parselet at a given stream position along with the position where it
+ * left the stream. When another alternative re-parses the same construct at
+ * the same position, the result is replayed instead of parsed again.
+ *
+ * The table is direct-mapped: each (parselet, position) pair has exactly one
+ * slot, and a newer entry simply replaces an older one.
+ */
+final class ParseMemo {
+
+  private final int mask;
+
+  private final int[] ids;
+
+  private final int[] starts;
+
+  private final Node[] results;
+
+  private final Mark[] ends;
+
+  private final int[] furthest;
+
+  private int hits;
+
+  private int misses;
+
+  ParseMemo(int size) {
+    int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+    this.mask = capacity - 1;
+    this.ids = new int[capacity];
+    this.starts = new int[capacity];
+    this.results = new Node[capacity];
+    this.ends = new Mark[capacity];
+    this.furthest = new int[capacity];
+  }
+
+  /**
+   * Returns the memoized result of the parselet at the current position,
+   * or parses and records it.
+   */
+  Node parse(int id, Parselet parselet, LessStream stm) throws LessException {
+    int start = stm.index;
+    int slot = ((start * 0x9E3779B1) ^ id) & mask;
+    if (ids[slot] == id && starts[slot] == start) {
+      hits++;
+      stm.restore(ends[slot]);
+      stm.furthest = Math.max(stm.furthest, furthest[slot]);
+      return results[slot];
+    }
+
+    misses++;
+    Node result = parselet.parse(stm);
+    Mark end = ends[slot];
+    if (end == null) {
+      end = new Mark();
+      ends[slot] = end;
+    }
+    stm.mark(end);
+    ids[slot] = id;
+    starts[slot] = start;
+    results[slot] = result;
+    furthest[slot] = stm.furthest;
+    return result;
+  }
+
+  /** Number of slots in the table */
+  int capacity() {
+    return mask + 1;
+  }
+
+  /** Number of parses answered from the table */
+  int hits() {
+    return hits;
+  }
+
+  /** Number of parses performed and recorded */
+  int misses() {
+    return misses;
+  }
+
+}
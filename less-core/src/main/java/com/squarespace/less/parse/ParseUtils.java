@@ -17,12 +17,9 @@
 package com.squarespace.less.parse;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 
 import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
-import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.ParseError;
 
 
@@ -35,49 +32,52 @@ public class ParseUtils {
    * the error. We append this to the given exception inside a ParseError node.
    */
   public static LessException parseError(LessException exc, Path filePath, String raw, int index) {
-    Stream stm = new Stream(raw);
-    List<int[]> offsets = new ArrayList<>();
-
-    // Search for the line that contains our error index.
-    int charPos = 0;
-    while (stm.peek() != Chars.EOF) {
-      int start = stm.position();
-      charPos = index - start;
-      stm.seekTo(Chars.LINE_FEED);
-      int end = stm.position();
-      offsets.add(new int[] { start, end });
-      // Stop when we've found the line that contains the index.
-      if (end > index) {
-        break;
-      }
+    return parseError(exc, filePath, raw, Stream.lineStarts(raw), 0, index);
+  }
+
+  /**
+   * Build the error message using the stream's line start index, avoiding a
+   * rescan of the source. Line numbers are offset by the line base when the
+   * source is a segment of a larger file.
+   */
+  static LessException parseError(LessException exc, Path filePath, String raw, int[] lineStarts, int lineBase,
+      int index) {
+    // Find the line that contains our error index. An index just past a
+    // trailing line feed belongs to the last line.
+    int length = raw.length();
+    int line = Stream.lineOf(lineStarts, index);
+    if (line > 0 && lineStarts[line] >= length) {
+      line--;
     }
+    int charPos = index - lineStarts[line];
 
-    // Select the last N lines we collected.
+    // Select the last N lines up to the error.
     Buffer buf = new Buffer(6);
-    int size = offsets.size();
+    int size = (length == 0) ? 0 : line + 1;
     int start = Math.max(0, size - 5);
     for (int i = start; i < size; i++) {
-      int[] pos = offsets.get(i);
-      position(buf, i + 1, 4);
+      int lineStart = lineStarts[i];
+      int lineEnd = (i + 1 < lineStarts.length) ? lineStarts[i + 1] : length;
+      position(buf, lineBase + i + 1, 4);
 
       // Last line has special handling. We want to position the error in the middle
       // of the line, so for extremely long lines we need to shift things over.
       if (i + 1 == size) {
-        int len = pos[1] - pos[0];
+        int len = lineEnd - lineStart;
         if (len > WINDOW_SIZE) {
-          int errpos = pos[0] + charPos;
+          int errpos = lineStart + charPos;
           int skip = (int)Math.floor(WINDOW_SIZE / 2.0);
-          int leftpos = Math.max(errpos - skip, pos[0]);
-          charPos -= leftpos - pos[0] - 4;
+          int leftpos = Math.max(errpos - skip, lineStart);
+          charPos -= leftpos - lineStart - 4;
           buf.append("... ");
-          buf.append(raw.substring(leftpos, Math.min(leftpos + WINDOW_SIZE, pos[1])));
+          buf.append(raw.substring(leftpos, Math.min(leftpos + WINDOW_SIZE, lineEnd)));
 
         } else {
-          buf.append(raw.substring(pos[0], pos[1]));
+          buf.append(raw.substring(lineStart, lineEnd));
         }
 
       } else {
-        buf.append(compressString(raw.substring(pos[0], pos[1])));
+        buf.append(compressString(raw.substring(lineStart, lineEnd)));
       }
     }
 
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import com.squarespace.less.model.Import;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Rules parsed from a single imported file, along with the information
+ * needed to check whether the file has changed since it was parsed.
+ *
+ * Only the file's own top-level rules are held. Static imports at the top
+ * level are kept as {@link Import} nodes and resolved again each time the
+ * entry is used, so import-once and recursion checks apply to the current
+ * compile.
+ */
+public class ParsedImport {
+
+  private final Path path;
+
+  private final long lastModified;
+
+  private final long fingerprint;
+
+  private final List<Node> rules;
+
+  public ParsedImport(Path path, long lastModified, long fingerprint, List<Node> rules) {
+    this.path = path;
+    this.lastModified = lastModified;
+    this.fingerprint = fingerprint;
+    this.rules = Collections.unmodifiableList(rules);
+  }
+
+  /**
+   * Normalized path of the imported file.
+   */
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Modification time reported by the loader when the file was read, or -1 if unknown.
+   */
+  public long lastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Fingerprint of the file's source.
+   */
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * The file's top-level rules, in order.
+   */
+  public List<Node> rules() {
+    return rules;
+  }
+
+  /**
+   * Returns a copy of this entry with a new modification time.
+   */
+  public ParsedImport touch(long modified) {
+    return new ParsedImport(path, modified, fingerprint, rules);
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static com.squarespace.less.parse.Parselets.ALPHA_SUB;
+import static com.squarespace.less.parse.Parselets.CONDITION_SUB;
+import static com.squarespace.less.parse.Parselets.DIRECTIVE_IMPORT;
+import static com.squarespace.less.parse.Parselets.ELEMENT_SUB;
+import static com.squarespace.less.parse.Parselets.ENTITY;
+import static com.squarespace.less.parse.Parselets.EXPRESSION_SUB;
+import static com.squarespace.less.parse.Parselets.EXTEND_OR_ELEMENT;
+import static com.squarespace.less.parse.Parselets.FONT_SUB;
+import static com.squarespace.less.parse.Parselets.FUNCTION_CALL_ARGS;
+import static com.squarespace.less.parse.Parselets.FUNCTION_CALL_SUB;
+import static com.squarespace.less.parse.Parselets.LITERAL;
+import static com.squarespace.less.parse.Parselets.MIXIN_CALL_ARG;
+import static com.squarespace.less.parse.Parselets.MIXIN_PARAMETER;
+import static com.squarespace.less.parse.Parselets.OPERAND_SUB;
+import static com.squarespace.less.parse.Parselets.PRIMARY_SUB;
+import static com.squarespace.less.parse.Parselets.RULE_KEY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Precomputed tables mapping the next input character to the parselets in an
+ * array which may match it, preserving their order. Characters outside the
+ * table map to the full array.
+ */
+final class ParseletDispatch {
+
+  private static final int LIMIT = 0x80;
+
+  private static final Parselet[] NONE = new Parselet[0];
+
+  private static final Map<Parselet[], Parselet[][]> TABLES = new IdentityHashMap<>();
+
+  static {
+    register(
+        ALPHA_SUB,
+        CONDITION_SUB,
+        DIRECTIVE_IMPORT,
+        ELEMENT_SUB,
+        ENTITY,
+        EXPRESSION_SUB,
+        EXTEND_OR_ELEMENT,
+        FONT_SUB,
+        FUNCTION_CALL_ARGS,
+        FUNCTION_CALL_SUB,
+        LITERAL,
+        MIXIN_CALL_ARG,
+        MIXIN_PARAMETER,
+        OPERAND_SUB,
+        PRIMARY_SUB,
+        RULE_KEY);
+  }
+
+  private ParseletDispatch() {
+  }
+
+  /**
+   * Returns the parselets from the array which may match input starting with
+   * the given character. Arrays with no table are returned unchanged.
+   */
+  static Parselet[] candidates(Parselet[] parselets, char ch) {
+    if (ch >= LIMIT) {
+      return parselets;
+    }
+    Parselet[][] table = TABLES.get(parselets);
+    return table == null ? parselets : table[ch];
+  }
+
+  /**
+   * Indicates whether any parselet in the array may match input starting with
+   * the given character.
+   */
+  static boolean mayStartWith(Parselet[] parselets, char ch) {
+    for (Parselet parselet : parselets) {
+      if (mayStartWith(parselet, ch)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isRegistered(Parselet[] parselets) {
+    return TABLES.containsKey(parselets);
+  }
+
+  private static boolean mayStartWith(Parselet parselet, char ch) {
+    return !(parselet instanceof PredictiveParselet) || ((PredictiveParselet)parselet).mayStartWith(ch);
+  }
+
+  private static void register(Parselet[] ... arrays) {
+    for (Parselet[] parselets : arrays) {
+      TABLES.put(parselets, build(parselets));
+    }
+  }
+
+  /**
+   * Builds the table for the array. Identical candidate lists share a single
+   * array, and a list containing every parselet is the original array.
+   */
+  private static Parselet[][] build(Parselet[] parselets) {
+    Map<List<Parselet>, Parselet[]> shared = new HashMap<>();
+    shared.put(Arrays.asList(parselets), parselets);
+    Parselet[][] table = new Parselet[LIMIT][];
+    for (char ch = 0; ch < LIMIT; ch++) {
+      List<Parselet> matches = new ArrayList<>(parselets.length);
+      for (Parselet parselet : parselets) {
+        if (mayStartWith(parselet, ch)) {
+          matches.add(parselet);
+        }
+      }
+      Parselet[] candidates = shared.get(matches);
+      if (candidates == null) {
+        candidates = matches.isEmpty() ? NONE : matches.toArray(new Parselet[matches.size()]);
+        shared.put(matches, candidates);
+      }
+      table[ch] = candidates;
+    }
+    return table;
+  }
+
+}
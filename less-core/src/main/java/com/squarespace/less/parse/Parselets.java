@@ -37,7 +37,7 @@ public class Parselets {
   };
 
   public static final Parselet[] BLOCK = new Parselet[] {
-    new BlockParselet()
+    new MemoParselet(new BlockParselet())
   };
 
   public static final Parselet[] COLOR = new Parselet[] {
@@ -235,7 +235,7 @@ public class Parselets {
   };
 
   public static final Parselet[] SELECTORS = new Parselet[] {
-    new SelectorsParselet()
+    new MemoParselet(new SelectorsParselet())
   };
 
   public static final Parselet[] SHORTHAND = new Parselet[] {
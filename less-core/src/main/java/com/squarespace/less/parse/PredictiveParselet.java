@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+
+/**
+ * A {@link Parselet} which can only match input beginning with certain
+ * characters. {@link LessStream#parse(Parselet[])} uses this to skip parselets
+ * which cannot match the next character, without calling them.
+ *
+ * An implementation must return true for every character its parse method
+ * could accept after leading whitespace has been skipped.
+ */
+public interface PredictiveParselet extends Parselet {
+
+  boolean mayStartWith(char ch);
+
+}
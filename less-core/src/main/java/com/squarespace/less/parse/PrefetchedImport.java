@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+
+
+/**
+ * Result of loading a static import on the import executor. Any part which
+ * could not be completed there is left null and redone during evaluation, so
+ * errors are reported exactly as in a sequential parse.
+ */
+final class PrefetchedImport {
+
+  private final Path path;
+
+  private final long lastModified;
+
+  private final String source;
+
+  private final ParsedImport parsed;
+
+  PrefetchedImport(Path path, long lastModified, String source, ParsedImport parsed) {
+    this.path = path;
+    this.lastModified = lastModified;
+    this.source = source;
+    this.parsed = parsed;
+  }
+
+  /**
+   * Resolved path, or null if the import does not resolve to a file.
+   */
+  Path path() {
+    return path;
+  }
+
+  /**
+   * Modification time reported by the loader, or -1 if unknown.
+   */
+  long lastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Source of the file, or null if it failed to load.
+   */
+  String source() {
+    return source;
+  }
+
+  /**
+   * The file's top-level rules, or null if they could not be parsed apart
+   * from the compile: the file has a syntax error, imports nested inside
+   * blocks, or interpolated imports.
+   */
+  ParsedImport parsed() {
+    return parsed;
+  }
+
+}
@@ -19,8 +19,14 @@ package com.squarespace.less.parse;
 import static com.squarespace.less.parse.Parselets.PRIMARY_SUB;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
+import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
+import com.squarespace.less.LessStats;
+import com.squarespace.less.TimingNode;
+import com.squarespace.less.core.LessUtils;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Features;
@@ -34,13 +40,89 @@ public class PrimaryParselet implements Parselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
+    // The outermost block of the stream is the top level of the root file.
+    boolean fileLevel = stm.execEnv().depth() == 0;
     Block block = new Block();
     stm.execEnv().push(block);
-    parseBlock(block, stm);
+    parseBlock(block, stm, null, fileLevel);
     stm.execEnv().pop();
     return block;
   }
 
+  /**
+   * Parses an imported file apart from the compile, typically on the import
+   * executor. Returns the file's top-level rules with its imports left
+   * unevaluated, or null if the rules depend on the compile, e.g. the file
+   * contains imports nested in blocks or interpolated imports.
+   */
+  static List<Node> parseDetached(LessContext context, String source, Path path) throws LessException {
+    LessParser parser = new LessParser(context);
+    LessStream stm = parser.push(source, path, new ExecEnv(context));
+    List<Node> topLevel = parseDetached(stm);
+    parser.pop();
+    return topLevel;
+  }
+
+  /**
+   * Parses the stream as the top level of a file apart from the compile.
+   * Returns the rules as described by {@link #parseDetached(LessContext, String, Path)}.
+   */
+  static List<Node> parseDetached(LessStream stm) throws LessException {
+    Block block = new Block();
+    stm.execEnv().push(block);
+
+    List<Node> topLevel = new ArrayList<>();
+    stm.detach();
+    parseBlock(block, stm, topLevel, true);
+    stm.checkComplete();
+    return stm.cacheable() ? topLevel : null;
+  }
+
+  /**
+   * Appends the top-level rules of the stream's file, produced by detached
+   * parses, to a new block. Static imports are evaluated in order, exactly
+   * as when the stream itself parses the rules.
+   */
+  static Block appendDetached(LessStream stm, List<Node> rules) throws LessException {
+    Block block = new Block();
+    stm.execEnv().push(block);
+    appendDetached(stm, block, rules);
+    stm.execEnv().pop();
+    return block;
+  }
+
+  /**
+   * Appends rules produced by a detached parse to the block, which must be
+   * at the top of the stream's environment.
+   */
+  static void appendDetached(LessStream stm, Block block, List<Node> rules) throws LessException {
+    Importer importer = stm.context().importer();
+    if (importer.prefetching()) {
+      for (Node rule : rules) {
+        if (isStaticImport(rule)) {
+          importer.prefetch((Import)rule);
+        }
+      }
+    }
+
+    for (Node rule : rules) {
+      if (isStaticImport(rule)) {
+        evaluateImport(importer, stm.parser(), stm.execEnv(), block, (Import)rule);
+      } else {
+        block.appendNode(rule);
+      }
+    }
+  }
+
+  /**
+   * Parses the stream as part of the top level of a file, appending its rules
+   * to the block, which must be at the top of the stream's environment.
+   */
+  static void parseSegment(Block block, LessStream stm) throws LessException {
+    parseBlock(block, stm, null, true);
+    stm.checkComplete();
+  }
+
   /**
    * Parse all rules that can exist as part of a block.
    *
@@ -56,8 +138,18 @@ public class PrimaryParselet implements Parselet {
    * performance hit for deeply-nested styleheets with many
    * imports.
    *
+   * When {@code topLevel} is non-null the block is the top level of an
+   * imported file, and each parsed rule, including static imports, is
+   * recorded for the import cache.
+   *
+   * When an import executor is set, static imports at the top level of a
+   * file are prefetched as they are parsed, and the rules are appended once
+   * the whole file is parsed, evaluating those imports in source order.
    */
-  private static void parseBlock(Block block, LessStream stm) throws LessException {
+  private static void parseBlock(Block block, LessStream stm, List<Node> topLevel, boolean fileLevel)
+      throws LessException {
+    Importer importer = stm.context().importer();
+    List<Node> pending = (fileLevel && !stm.detached() && importer.prefetching()) ? new ArrayList<Node>() : null;
     Node node = null;
     stm.skipEmpty();
 
@@ -65,30 +157,70 @@ public class PrimaryParselet implements Parselet {
     Mark position = stm.mark();
     while ((node = stm.parse(PRIMARY_SUB)) != null) {
       // Assign stream position to successfully-parsed rule.
-      node.setLineOffset(position.lineOffset);
-      node.setCharOffset(position.charOffset);
+      node.setLineOffset(stm.lineOffset(position.index));
+      node.setCharOffset(stm.charOffset(position.index));
+
+      if (topLevel != null) {
+        topLevel.add(node);
+      }
 
       if (node instanceof Import) {
         Import importNode = (Import)node;
         Node pathNode = importNode.path();
 
+        // Imports nested inside other blocks in-line rules from another file,
+        // so the rules parsed from this stream cannot be cached on their own.
+        if (topLevel == null) {
+          stm.markUncacheable();
+        }
+
         // If the import's path requires variable interpolation, defer
         // its evaluation until after the parse completes.
         if (pathNode.needsEval()) {
           stm.defer();
+          append(block, pending, importNode);
+
+        } else if (stm.detached()) {
+          // Evaluated when the detached rules are replayed.
           block.appendNode(importNode);
 
+        } else if (pending != null) {
+          importer.prefetch(importNode);
+          pending.add(importNode);
+
         } else {
-          evaluateImport(stm.context().importer(), stm.parser(), stm.execEnv(), block, importNode);
+          evaluateImport(importer, stm.parser(), stm.execEnv(), block, importNode);
         }
 
       } else {
-        block.appendNode(node);
+        append(block, pending, node);
       }
 
       stm.skipEmpty();
       stm.mark(position);
     }
+
+    if (pending != null) {
+      for (Node rule : pending) {
+        if (isStaticImport(rule)) {
+          evaluateImport(importer, stm.parser(), stm.execEnv(), block, (Import)rule);
+        } else {
+          block.appendNode(rule);
+        }
+      }
+    }
+  }
+
+  private static boolean isStaticImport(Node node) {
+    return node instanceof Import && !((Import)node).path().needsEval();
+  }
+
+  private static void append(Block block, List<Node> pending, Node node) {
+    if (pending == null) {
+      block.appendNode(node);
+    } else {
+      pending.add(node);
+    }
   }
 
   /**
@@ -100,7 +232,8 @@ public class PrimaryParselet implements Parselet {
       Block parentBlock, Import importNode)
       throws LessException {
 
-    Path path = importer.resolvePath(importNode);
+    PrefetchedImport prefetched = importer.takePrefetched(importNode);
+    Path path = (prefetched != null) ? prefetched.path() : importer.resolvePath(importNode);
     if (path == null) {
       parentBlock.appendNode(importNode);
       return false;
@@ -132,13 +265,28 @@ public class PrimaryParselet implements Parselet {
       parentBlock.prependNode(new ImportMarker(importNode, true));
     }
 
-    // Push a new stream onto the stack and parse it.
+    ParsedImport cached = importer.findCached(path);
+    PrefetchedImport loaded = importer.takeLoaded(path);
+    if (loaded != null) {
+      prefetched = loaded;
+    }
     importer.recordImport(importNode, path);
-    String source = importer.loadSource(path);
-    LessStream childStream = parser.push(source, path, execEnv);
-    parseBlock(parentBlock, childStream);
-    childStream.checkComplete();
-    parser.pop();
+    LessStats stats = parser.context().stats();
+    stats.importDone(cached != null);
+    TimingNode timing = stats.enter(cached != null ? LessStats.CACHED_IMPORT : LessStats.IMPORT, path.toString());
+    int size = 0;
+    try {
+      if (cached != null) {
+        importer.recordDependency(path, cached.lastModified(), cached.fingerprint());
+        replayImport(importer, parser, execEnv, parentBlock, cached);
+      } else if (prefetched != null && prefetched.source() != null) {
+        size = spliceImport(importer, parser, execEnv, parentBlock, prefetched);
+      } else {
+        size = parseImport(importer, parser, execEnv, parentBlock, path);
+      }
+    } finally {
+      stats.exit(timing, size);
+    }
 
     // Pop the media block, if any.
     if (wrapMedia) {
@@ -153,4 +301,86 @@ public class PrimaryParselet implements Parselet {
     return true;
   }
 
+  /**
+   * Push a new stream onto the stack and parse the imported file, recording it
+   * as a dependency and storing its rules in the import cache if possible.
+   * Returns the size of the imported source.
+   */
+  private static int parseImport(Importer importer, LessParser parser, ExecEnv execEnv,
+      Block parentBlock, Path path) throws LessException {
+
+    long modified = importer.lastModified(path);
+    String source = importer.loadSource(path);
+    return parseSource(importer, parser, execEnv, parentBlock, path, modified, source);
+  }
+
+  /**
+   * Appends the rules of an import loaded on the import executor, replaying
+   * its detached parse if it has one. Returns the size of the imported source.
+   */
+  private static int spliceImport(Importer importer, LessParser parser, ExecEnv execEnv,
+      Block parentBlock, PrefetchedImport prefetched) throws LessException {
+
+    ParsedImport parsed = prefetched.parsed();
+    if (parsed == null) {
+      return parseSource(importer, parser, execEnv, parentBlock, prefetched.path(), prefetched.lastModified(),
+          prefetched.source());
+    }
+
+    importer.recordDependency(parsed.path(), parsed.lastModified(), parsed.fingerprint());
+    if (importer.cachingEnabled()) {
+      importer.cacheImport(parsed.path(), parsed.lastModified(), parsed.fingerprint(), parsed.rules());
+    }
+    replayImport(importer, parser, execEnv, parentBlock, parsed);
+    return prefetched.source().length();
+  }
+
+  /**
+   * Parses the source of an imported file onto the parent block.
+   */
+  private static int parseSource(Importer importer, LessParser parser, ExecEnv execEnv,
+      Block parentBlock, Path path, long modified, String source) throws LessException {
+
+    boolean caching = importer.cachingEnabled();
+    List<Node> topLevel = caching ? new ArrayList<Node>() : null;
+
+    long fingerprint = LessUtils.fingerprint(source);
+    importer.recordDependency(path, modified, fingerprint);
+
+    LessStream childStream = parser.push(source, path, execEnv);
+    parseBlock(parentBlock, childStream, topLevel, true);
+    childStream.checkComplete();
+    parser.pop();
+
+    if (caching && childStream.cacheable()) {
+      importer.cacheImport(path, modified, fingerprint, topLevel);
+    }
+    return source.length();
+  }
+
+  /**
+   * Appends the cached rules of an imported file, performing the file's own
+   * top-level imports as they are encountered.
+   */
+  private static void replayImport(Importer importer, LessParser parser, ExecEnv execEnv,
+      Block parentBlock, ParsedImport cached) throws LessException {
+
+    parser.pushCached(cached.path());
+    if (importer.prefetching()) {
+      for (Node node : cached.rules()) {
+        if (isStaticImport(node)) {
+          importer.prefetch((Import)node);
+        }
+      }
+    }
+    for (Node node : cached.rules()) {
+      if (node instanceof Import) {
+        evaluateImport(importer, parser, execEnv, parentBlock, (Import)node);
+      } else {
+        parentBlock.appendNode(node);
+      }
+    }
+    parser.popCached(cached.path());
+  }
+
 }
@@ -29,7 +29,7 @@ import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Quoted;
 
 
-public class QuotedParselet implements Parselet {
+public class QuotedParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -105,4 +105,10 @@ public class QuotedParselet implements Parselet {
     }
     return new Quoted(delim, escaped, parts);
   }
+
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.TILDE || ch == Chars.APOSTROPHE || ch == Chars.QUOTATION_MARK;
+  }
+
 }
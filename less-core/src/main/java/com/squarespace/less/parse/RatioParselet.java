@@ -21,7 +21,7 @@ import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Ratio;
 
 
-public class RatioParselet implements Parselet {
+public class RatioParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -31,4 +31,9 @@ public class RatioParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.digit(ch);
+  }
+
 }
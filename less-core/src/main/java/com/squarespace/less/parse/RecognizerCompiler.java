@@ -0,0 +1,606 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static com.squarespace.less.parse.Recognizers.FAIL;
+import static com.squarespace.less.parse.Recognizers.characters;
+import static com.squarespace.less.parse.Recognizers.choice;
+import static com.squarespace.less.parse.Recognizers.digit;
+import static com.squarespace.less.parse.Recognizers.oneOrMore;
+import static com.squarespace.less.parse.Recognizers.sequence;
+import static com.squarespace.less.parse.Recognizers.zeroOrMore;
+import static com.squarespace.less.parse.Recognizers.zeroOrOne;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.squarespace.less.core.CharClass;
+import com.squarespace.less.parse.Recognizers.Any;
+import com.squarespace.less.parse.Recognizers.Cardinality;
+import com.squarespace.less.parse.Recognizers.CharacterClass;
+import com.squarespace.less.parse.Recognizers.CharacterRange;
+import com.squarespace.less.parse.Recognizers.CharacterSet;
+import com.squarespace.less.parse.Recognizers.Characters;
+import com.squarespace.less.parse.Recognizers.Choice;
+import com.squarespace.less.parse.Recognizers.Decimal;
+import com.squarespace.less.parse.Recognizers.Literal;
+import com.squarespace.less.parse.Recognizers.LiteralIgnoreCase;
+import com.squarespace.less.parse.Recognizers.LookAhead;
+import com.squarespace.less.parse.Recognizers.Recognizer;
+import com.squarespace.less.parse.Recognizers.Sequence;
+import com.squarespace.less.parse.Recognizers.Whitespace;
+
+
+/**
+ * Compiles a tree of {@link Recognizers} into a DFA whose transitions are a
+ * table indexed by state and character class, so a match is a loop of array
+ * lookups instead of virtual calls through the tree.
+ *
+ * The tree is first translated into an NFA. Each character tested by the tree
+ * is assigned a class, such that all characters in a class pass the same tests,
+ * and the NFA is then determinized over the classes. Lookahead is only
+ * supported for a single character at the end of the pattern. Trees containing
+ * other constructs are returned unchanged.
+ */
+final class RecognizerCompiler {
+
+  /**
+   * Characters above the ASCII range accepted by {@link CharClass#whitespace(char)}.
+   */
+  static final String WIDE_WHITESPACE = "\u00a0\u1680\u180e"
+      + "\u2000\u2001\u2002\u2003\u2004\u2005\u2006\u2007\u2008\u2009\u200a"
+      + "\u2028\u2029\u202f\u205f\u3000\ufeff";
+
+  private static final int LIMIT = 0x80;
+
+  private static final int MAX_TESTS = 64;
+
+  private static final int MAX_STATES = 256;
+
+  private static final int DEAD = -1;
+
+  /**
+   * Tests applied to characters by the transitions of the NFA.
+   */
+  private final List<CharTest> tests = new ArrayList<>();
+
+  private final List<NfaState> states = new ArrayList<>();
+
+  private RecognizerCompiler() {
+  }
+
+  static Recognizer compile(Recognizer pattern) {
+    RecognizerCompiler compiler = new RecognizerCompiler();
+    Recognizer body = pattern;
+    int trailing = 0;
+
+    // A sequence ending in a lookahead of one character matches that character,
+    // and gives it back once the match completes.
+    if (pattern instanceof Sequence) {
+      Recognizer[] patterns = ((Sequence)pattern).patterns;
+      Recognizer last = patterns.length == 0 ? null : patterns[patterns.length - 1];
+      if (last instanceof LookAhead && isSingle(((LookAhead)last).pattern)) {
+        Recognizer[] copy = Arrays.copyOf(patterns, patterns.length);
+        copy[copy.length - 1] = ((LookAhead)last).pattern;
+        body = new Sequence(copy);
+        trailing = 1;
+      }
+    }
+
+    Fragment fragment = compiler.build(body);
+    if (fragment == null || compiler.tests.size() > MAX_TESTS) {
+      return pattern;
+    }
+    Dfa dfa = compiler.determinize(fragment, trailing);
+    return dfa == null ? pattern : dfa;
+  }
+
+  /**
+   * Builds the NFA fragment for the pattern, or returns null if the pattern
+   * cannot be compiled.
+   */
+  private Fragment build(Recognizer pattern) {
+    if (pattern instanceof Any) {
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return true;
+        }
+      });
+
+    } else if (pattern instanceof Characters) {
+      final Characters chars = (Characters)pattern;
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return chars.match(String.valueOf(ch), 0, 1) != FAIL;
+        }
+
+        @Override
+        void addBreaks(Set<Integer> breaks) {
+          addRange(breaks, chars.first, chars.first);
+          for (char ch : chars.chars) {
+            addRange(breaks, ch, ch);
+          }
+        }
+      });
+
+    } else if (pattern instanceof CharacterClass) {
+      final CharacterClass cls = (CharacterClass)pattern;
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return CharClass.isMember(ch, cls.bitmask) != cls.invert;
+        }
+      });
+
+    } else if (pattern instanceof CharacterSet) {
+      final boolean[] members = ((CharacterSet)pattern).members;
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return ch < members.length && members[ch];
+        }
+      });
+
+    } else if (pattern instanceof CharacterRange) {
+      final CharacterRange range = (CharacterRange)pattern;
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return (ch >= range.start && ch <= range.end) != range.invert;
+        }
+
+        @Override
+        void addBreaks(Set<Integer> breaks) {
+          addRange(breaks, range.start, range.end);
+        }
+      });
+
+    } else if (pattern instanceof Whitespace) {
+      return single(new CharTest() {
+        @Override
+        boolean test(char ch) {
+          return CharClass.whitespace(ch);
+        }
+
+        @Override
+        void addBreaks(Set<Integer> breaks) {
+          for (int i = 0; i < WIDE_WHITESPACE.length(); i++) {
+            char ch = WIDE_WHITESPACE.charAt(i);
+            addRange(breaks, ch, ch);
+          }
+        }
+      });
+
+    } else if (pattern instanceof Literal) {
+      return literal(((Literal)pattern).literal, false);
+
+    } else if (pattern instanceof LiteralIgnoreCase) {
+      return literal(((LiteralIgnoreCase)pattern).literal, true);
+
+    } else if (pattern instanceof Decimal) {
+      // Digits with an optional decimal point, and at least one digit.
+      return build(choice(
+          sequence(oneOrMore(digit()), zeroOrOne(sequence(characters('.'), zeroOrMore(digit())))),
+          sequence(characters('.'), oneOrMore(digit()))));
+
+    } else if (pattern instanceof Cardinality) {
+      return cardinality((Cardinality)pattern);
+
+    } else if (pattern instanceof Choice) {
+      NfaState start = newState();
+      NfaState end = newState();
+      for (Recognizer child : ((Choice)pattern).patterns) {
+        Fragment fragment = build(child);
+        if (fragment == null) {
+          return null;
+        }
+        start.epsilons.add(fragment.start);
+        fragment.end.epsilons.add(end);
+      }
+      return new Fragment(start, end);
+
+    } else if (pattern instanceof Sequence) {
+      Recognizer[] patterns = ((Sequence)pattern).patterns;
+      if (patterns.length == 0) {
+        return null;
+      }
+      Fragment result = null;
+      for (Recognizer child : patterns) {
+        Fragment fragment = build(child);
+        if (fragment == null) {
+          return null;
+        }
+        result = (result == null) ? fragment : concat(result, fragment);
+      }
+      return result;
+    }
+    return null;
+  }
+
+  /**
+   * Expands the minimum number of copies followed by optional copies up to
+   * the limit, or a loop if the limit is zero.
+   */
+  private Fragment cardinality(Cardinality pattern) {
+    NfaState start = newState();
+    Fragment result = new Fragment(start, start);
+    for (int i = 0; i < pattern.start; i++) {
+      Fragment fragment = build(pattern.pattern);
+      if (fragment == null) {
+        return null;
+      }
+      result = concat(result, fragment);
+    }
+
+    if (pattern.limit == 0) {
+      Fragment fragment = build(pattern.pattern);
+      if (fragment == null) {
+        return null;
+      }
+      NfaState end = newState();
+      result.end.epsilons.add(fragment.start);
+      result.end.epsilons.add(end);
+      fragment.end.epsilons.add(fragment.start);
+      fragment.end.epsilons.add(end);
+      return new Fragment(result.start, end);
+    }
+
+    NfaState end = newState();
+    for (int i = pattern.start; i < pattern.limit; i++) {
+      Fragment fragment = build(pattern.pattern);
+      if (fragment == null) {
+        return null;
+      }
+      result.end.epsilons.add(end);
+      result = concat(result, fragment);
+    }
+    result.end.epsilons.add(end);
+    return new Fragment(result.start, end);
+  }
+
+  private Fragment literal(String literal, boolean ignoreCase) {
+    NfaState start = newState();
+    Fragment result = new Fragment(start, start);
+    for (int i = 0; i < literal.length(); i++) {
+      final char expected = literal.charAt(i);
+      CharTest test = null;
+      if (ignoreCase) {
+        test = new CharTest() {
+          @Override
+          boolean test(char ch) {
+            return ((ch >= 'A' && ch <= 'Z') ? (char)(ch + ('a' - 'A')) : ch) == expected;
+          }
+
+          @Override
+          void addBreaks(Set<Integer> breaks) {
+            addRange(breaks, expected, expected);
+          }
+        };
+      } else {
+        test = new CharTest() {
+          @Override
+          boolean test(char ch) {
+            return ch == expected;
+          }
+
+          @Override
+          void addBreaks(Set<Integer> breaks) {
+            addRange(breaks, expected, expected);
+          }
+        };
+      }
+      result = concat(result, single(test));
+    }
+    return result;
+  }
+
+  private Fragment single(CharTest test) {
+    NfaState start = newState();
+    NfaState end = newState();
+    start.tests.add(tests.size());
+    start.targets.add(end);
+    tests.add(test);
+    return new Fragment(start, end);
+  }
+
+  private static Fragment concat(Fragment first, Fragment second) {
+    first.end.epsilons.add(second.start);
+    return new Fragment(first.start, second.end);
+  }
+
+  private NfaState newState() {
+    NfaState state = new NfaState(states.size());
+    states.add(state);
+    return state;
+  }
+
+  /**
+   * Builds the DFA using the subset construction, or returns null if it
+   * has too many states.
+   */
+  private Dfa determinize(Fragment fragment, int trailing) {
+    // Group characters into classes which pass the same tests, recording
+    // a representative of each class. Characters above the ASCII range are
+    // grouped in runs between the break points of the tests.
+    Set<Integer> breaks = new TreeSet<>();
+    breaks.add(LIMIT);
+    for (CharTest test : tests) {
+      test.addBreaks(breaks);
+    }
+
+    Map<Long, Integer> classIds = new HashMap<>();
+    List<Character> representatives = new ArrayList<>();
+    int[] ascii = new int[LIMIT];
+    List<Integer> wideStarts = new ArrayList<>();
+    List<Integer> wideClasses = new ArrayList<>();
+    for (int i = 0; i < LIMIT; i++) {
+      ascii[i] = classify((char)i, classIds, representatives);
+    }
+    for (int start : breaks) {
+      int id = classify((char)start, classIds, representatives);
+      if (wideClasses.isEmpty() || wideClasses.get(wideClasses.size() - 1) != id) {
+        wideStarts.add(start);
+        wideClasses.add(id);
+      }
+    }
+
+    int classCount = representatives.size();
+    boolean[][] passes = new boolean[tests.size()][classCount];
+    for (int t = 0; t < tests.size(); t++) {
+      for (int cls = 0; cls < classCount; cls++) {
+        passes[t][cls] = tests.get(t).test(representatives.get(cls));
+      }
+    }
+
+    Map<BitSet, Integer> stateIds = new HashMap<>();
+    List<BitSet> pending = new ArrayList<>();
+    BitSet initial = closure(singleton(fragment.start));
+    stateIds.put(initial, 0);
+    pending.add(initial);
+
+    int[] transitions = new int[MAX_STATES * classCount];
+    boolean[] accepting = new boolean[MAX_STATES];
+    for (int index = 0; index < pending.size(); index++) {
+      BitSet current = pending.get(index);
+      accepting[index] = current.get(fragment.end.id);
+      for (int cls = 0; cls < classCount; cls++) {
+        BitSet next = new BitSet();
+        for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+          NfaState state = states.get(s);
+          for (int e = 0; e < state.tests.size(); e++) {
+            if (passes[state.tests.get(e)][cls]) {
+              next.set(state.targets.get(e).id);
+            }
+          }
+        }
+
+        int target = DEAD;
+        if (!next.isEmpty()) {
+          next = closure(next);
+          Integer id = stateIds.get(next);
+          if (id == null) {
+            if (pending.size() == MAX_STATES) {
+              return null;
+            }
+            id = pending.size();
+            stateIds.put(next, id);
+            pending.add(next);
+          }
+          target = id;
+        }
+        transitions[index * classCount + cls] = target;
+      }
+    }
+
+    int count = pending.size();
+    return new Dfa(ascii, toArray(wideStarts), toArray(wideClasses), classCount,
+        Arrays.copyOf(transitions, count * classCount), Arrays.copyOf(accepting, count), trailing);
+  }
+
+  /**
+   * Returns the class of characters passing the same tests as the character.
+   */
+  private int classify(char ch, Map<Long, Integer> classIds, List<Character> representatives) {
+    long signature = 0;
+    for (int t = 0; t < tests.size(); t++) {
+      if (tests.get(t).test(ch)) {
+        signature |= 1L << t;
+      }
+    }
+    Integer id = classIds.get(signature);
+    if (id == null) {
+      id = classIds.size();
+      classIds.put(signature, id);
+      representatives.add(ch);
+    }
+    return id;
+  }
+
+  private BitSet closure(BitSet set) {
+    BitSet result = (BitSet)set.clone();
+    List<NfaState> stack = new ArrayList<>();
+    for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+      stack.add(states.get(s));
+    }
+    while (!stack.isEmpty()) {
+      NfaState state = stack.remove(stack.size() - 1);
+      for (NfaState next : state.epsilons) {
+        if (!result.get(next.id)) {
+          result.set(next.id);
+          stack.add(next);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the points where membership in the range of characters changes.
+   */
+  private static void addRange(Set<Integer> breaks, char start, char end) {
+    if (end >= LIMIT) {
+      breaks.add(Math.max(start, LIMIT));
+      if (end < Character.MAX_VALUE) {
+        breaks.add(end + 1);
+      }
+    }
+  }
+
+  private static BitSet singleton(NfaState state) {
+    BitSet set = new BitSet();
+    set.set(state.id);
+    return set;
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] result = new int[list.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = list.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Indicates whether the pattern always matches exactly one character.
+   */
+  private static boolean isSingle(Recognizer pattern) {
+    return pattern instanceof Any
+        || pattern instanceof Characters
+        || pattern instanceof CharacterClass
+        || pattern instanceof CharacterSet
+        || pattern instanceof CharacterRange
+        || pattern instanceof Whitespace;
+  }
+
+  /**
+   * Test of a single character. Above the ASCII range the result may only
+   * change at the break points the test adds.
+   */
+  private abstract static class CharTest {
+
+    abstract boolean test(char ch);
+
+    void addBreaks(Set<Integer> breaks) {
+    }
+
+  }
+
+  private static class NfaState {
+
+    private final int id;
+
+    private final List<NfaState> epsilons = new ArrayList<>();
+
+    private final List<Integer> tests = new ArrayList<>();
+
+    private final List<NfaState> targets = new ArrayList<>();
+
+    NfaState(int id) {
+      this.id = id;
+    }
+
+  }
+
+  private static class Fragment {
+
+    private final NfaState start;
+
+    private final NfaState end;
+
+    Fragment(NfaState start, NfaState end) {
+      this.start = start;
+      this.end = end;
+    }
+
+  }
+
+  /**
+   * Matches the longest prefix accepted by the DFA.
+   */
+  static class Dfa implements Recognizer {
+
+    private final int[] ascii;
+
+    private final int[] wideStarts;
+
+    private final int[] wideClasses;
+
+    private final int classCount;
+
+    private final int[] transitions;
+
+    private final boolean[] accepting;
+
+    private final int trailing;
+
+    Dfa(int[] ascii, int[] wideStarts, int[] wideClasses, int classCount, int[] transitions,
+        boolean[] accepting, int trailing) {
+      this.ascii = ascii;
+      this.wideStarts = wideStarts;
+      this.wideClasses = wideClasses;
+      this.classCount = classCount;
+      this.transitions = transitions;
+      this.accepting = accepting;
+      this.trailing = trailing;
+    }
+
+    /**
+     * Number of states in the DFA.
+     */
+    int states() {
+      return accepting.length;
+    }
+
+    @Override
+    public int match(CharSequence seq, int pos, int length) {
+      int state = 0;
+      int result = accepting[0] ? pos : FAIL;
+      while (pos < length) {
+        char ch = seq.charAt(pos);
+        int cls = (ch < LIMIT) ? ascii[ch] : wideClass(ch);
+        state = transitions[state * classCount + cls];
+        if (state == DEAD) {
+          break;
+        }
+        pos++;
+        if (accepting[state]) {
+          result = pos;
+        }
+      }
+      return (result == FAIL) ? FAIL : result - trailing;
+    }
+
+    /**
+     * Finds the class of a character outside the ASCII range.
+     */
+    private int wideClass(char ch) {
+      int index = Arrays.binarySearch(wideStarts, ch);
+      return wideClasses[index >= 0 ? index : -index - 2];
+    }
+
+  }
+
+}
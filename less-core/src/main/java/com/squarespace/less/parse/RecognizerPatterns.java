@@ -16,17 +16,24 @@
 
 package com.squarespace.less.parse;
 
+import static com.squarespace.less.core.CharClass.DASH;
+import static com.squarespace.less.core.CharClass.DIGIT;
+import static com.squarespace.less.core.CharClass.HEXDIGIT;
 import static com.squarespace.less.core.CharClass.LOWERCASE;
+import static com.squarespace.less.core.CharClass.UNDERSCORE;
 import static com.squarespace.less.core.CharClass.UPPERCASE;
 import static com.squarespace.less.parse.Recognizers.any;
 import static com.squarespace.less.parse.Recognizers.cardinality;
 import static com.squarespace.less.parse.Recognizers.charClass;
+import static com.squarespace.less.parse.Recognizers.charSet;
 import static com.squarespace.less.parse.Recognizers.characters;
 import static com.squarespace.less.parse.Recognizers.choice;
+import static com.squarespace.less.parse.Recognizers.compile;
 import static com.squarespace.less.parse.Recognizers.decimal;
 import static com.squarespace.less.parse.Recognizers.digits;
 import static com.squarespace.less.parse.Recognizers.hexdigit;
 import static com.squarespace.less.parse.Recognizers.literal;
+import static com.squarespace.less.parse.Recognizers.literalIgnoreCase;
 import static com.squarespace.less.parse.Recognizers.lookAhead;
 import static com.squarespace.less.parse.Recognizers.notAscii;
 import static com.squarespace.less.parse.Recognizers.notCharacters;
@@ -44,6 +51,7 @@ import com.squarespace.less.parse.Recognizers.Recognizer;
 
 /**
  * Higher-level pattern matchers composed from lower-level recognizers.
+ * The patterns used most by the parser are compiled into DFAs.
  */
 public class RecognizerPatterns {
 
@@ -57,21 +65,23 @@ public class RecognizerPatterns {
 
   public static final Recognizer CONDITION_OP = buildConditionOp();
 
-  public static final Recognizer CALL_NAME = buildCallName();
+  public static final Recognizer CALL_NAME = compile(buildCallName());
 
   public static final Recognizer DIGITS = digits();
 
   public static final Recognizer DIMENSION_UNIT = buildDimensionUnit();
 
-  public static final Recognizer DIMENSION_VALUE = buildDimensionValue();
+  public static final Recognizer DIMENSION_VALUE = compile(buildDimensionValue());
 
-  public static final Recognizer ELEMENT0 = buildElement0();
+  public static final Recognizer DIRECTIVE = buildDirective();
 
-  public static final Recognizer ELEMENT1 = buildElement1();
+  public static final Recognizer ELEMENT0 = compile(buildElement0());
 
-  public static final Recognizer ELEMENT2 = buildElement2();
+  public static final Recognizer ELEMENT1 = compile(buildElement1());
 
-  public static final Recognizer ELEMENT3 = buildElement3();
+  public static final Recognizer ELEMENT2 = compile(buildElement2());
+
+  public static final Recognizer ELEMENT3 = compile(buildElement3());
 
   public static final Recognizer EXTEND = literal(":extend(");
 
@@ -79,18 +89,34 @@ public class RecognizerPatterns {
 
   public static final Recognizer HEXCOLOR = buildHexColor();
 
-  public static final Recognizer IDENTIFIER = buildIdentifier();
+  public static final Recognizer IDENTIFIER = compile(buildIdentifier());
 
   public static final Recognizer IMPORTANT = buildImportant();
 
+  public static final Recognizer KEYWORD = buildKeyword();
+
+  public static final Recognizer MIXIN_NAME = buildMixinName();
+
   public static final Recognizer NOT = literal("not");
 
+  public static final Recognizer OPACITY = literalIgnoreCase("opacity=");
+
+  public static final Recognizer PROPERTY = buildProperty();
+
+  public static final Recognizer RATIO = buildRatio();
+
+  public static final Recognizer SHORTHAND = buildShorthand();
+
+  public static final Recognizer UNICODE_RANGE = buildUnicodeRange();
+
   public static final Recognizer URLSTART = buildUrlStart();
 
   public static final Recognizer WHEN = literal("when");
 
   public static final Recognizer WORD = oneOrMore(word());
 
+  private static final int WORDDASH = LOWERCASE | UPPERCASE | DIGIT | UNDERSCORE | DASH;
+
 
   /**
    * Regular expression:  "(?:[^;@+/'\"*`({}-]*);"
@@ -131,7 +157,7 @@ public class RecognizerPatterns {
   /**
    * Regular expression  "([\\w-_]+|%|progid:[\\w\\.]+)\\("
    */
-  private static Recognizer buildCallName() {
+  static Recognizer buildCallName() {
     return sequence(
         choice(
             oneOrMore(worddash()),
@@ -155,14 +181,21 @@ public class RecognizerPatterns {
   /**
    * Regular expression  "[+-]?\\d*\\.?\\d+"
    */
-  private static Recognizer buildDimensionValue() {
+  static Recognizer buildDimensionValue() {
     return sequence(zeroOrOne(characters('-', '+')), decimal());
   }
 
+  /**
+   * Regular expression  "@[a-z-]+"
+   */
+  private static Recognizer buildDirective() {
+    return sequence(characters('@'), oneOrMore(charClass(LOWERCASE | DASH)));
+  }
+
   /**
    * Regular expression  "(?:\\d+\\.\\d+|\\d+)%"
    */
-  private static Recognizer buildElement0() {
+  static Recognizer buildElement0() {
     return sequence(digits(), zeroOrOne(sequence(characters('.'), digits())), characters('%'));
   }
 
@@ -173,34 +206,24 @@ public class RecognizerPatterns {
    *
    *  suffix  "(?:[\\w-]|[^\\u0000-\\u009f]|\\\\(?:[A-Fa-f0-9]{1,6} ?|[^A-Fa-f0-9]))+"
    */
-  private static Recognizer buildElement1() {
+  static Recognizer buildElement1() {
     Recognizer prefix = choice(zeroOrOne(characters('.', '#')), zeroOrMore(characters(':')));
 
-    Recognizer suffix = oneOrMore(choice(
-        worddash(),
-        notAscii(),
-        sequence(
-            characters('\\'),
-            choice(
-                sequence(cardinality(hexdigit(), 1, 6), zeroOrOne(characters(' '))),
-                notHexdigit()
-                )
-            )
-        ));
+    Recognizer suffix = oneOrMore(choice(worddash(), notAscii(), escape()));
     return sequence(prefix, suffix);
   }
 
   /**
    * Regular expression  "\\([^)(@]+\\)"
    */
-  private static Recognizer buildElement2() {
+  static Recognizer buildElement2() {
     return sequence(characters('('), oneOrMore(notCharacters('(', ')', '@')), characters(')'));
   }
 
   /**
    * Regular expression  "[\\.#](?=@)"
    */
-  private static Recognizer buildElement3() {
+  static Recognizer buildElement3() {
     return sequence(characters('.', '#'), lookAhead(characters('@')));
   }
 
@@ -223,7 +246,7 @@ public class RecognizerPatterns {
   /**
    * Regular expression  "\\w[\\w-]*"
    */
-  private static Recognizer buildIdentifier() {
+  static Recognizer buildIdentifier() {
     return sequence(word(), zeroOrMore(worddash()));
   }
 
@@ -234,6 +257,54 @@ public class RecognizerPatterns {
     return sequence(characters('!'), zeroOrMore(characters(' ')), literal("important"));
   }
 
+  /**
+   * Regular expression  "[_A-Za-z-][\\w-]*"
+   */
+  private static Recognizer buildKeyword() {
+    return sequence(charClass(UNDERSCORE | LOWERCASE | UPPERCASE | DASH), zeroOrMore(worddash()));
+  }
+
+  /**
+   * Regular expression  "[#.](?:[\\w-]|\\\\(?:[A-Fa-f0-9]{1,6} ?|[^A-Fa-f0-9]))+"
+   */
+  private static Recognizer buildMixinName() {
+    return sequence(characters('#', '.'), oneOrMore(choice(worddash(), escape())));
+  }
+
+  /**
+   * Regular expression  "\\*?-?[_a-z0-9-]+"
+   *
+   * The optional dash is subsumed by the character class that follows it.
+   */
+  private static Recognizer buildProperty() {
+    return sequence(zeroOrOne(characters('*')), oneOrMore(charClass(UNDERSCORE | LOWERCASE | DIGIT | DASH)));
+  }
+
+  /**
+   * Regular expression  "\\d+\\/\\d+"
+   */
+  private static Recognizer buildRatio() {
+    return sequence(digits(), characters('/'), digits());
+  }
+
+  /**
+   * Regular expression  "[@\\w.%-]+\\/[@\\w.-]+"
+   */
+  private static Recognizer buildShorthand() {
+    return sequence(
+        oneOrMore(charSet(WORDDASH, '@', '.', '%')),
+        characters('/'),
+        oneOrMore(charSet(WORDDASH, '@', '.')));
+  }
+
+  /**
+   * Regular expression  "U\\+[A-Fa-f0-9?]+(\\-[A-Fa-f0-9?]+)?"
+   */
+  private static Recognizer buildUnicodeRange() {
+    Recognizer hexwild = oneOrMore(charSet(HEXDIGIT, '?'));
+    return sequence(literal("U+"), hexwild, zeroOrOne(sequence(characters('-'), hexwild)));
+  }
+
   /**
    * Regular expression  "url\\s*\\("
    */
@@ -241,4 +312,17 @@ public class RecognizerPatterns {
     return sequence(literal("url"), zeroOrMore(whitespace()), characters('('));
   }
 
+  /**
+   * Regular expression  "\\\\(?:[A-Fa-f0-9]{1,6} ?|[^A-Fa-f0-9])"
+   */
+  private static Recognizer escape() {
+    return sequence(
+        characters('\\'),
+        choice(
+            sequence(cardinality(hexdigit(), 1, 6), zeroOrOne(characters(' '))),
+            notHexdigit()
+            )
+        );
+  }
+
 }
@@ -22,6 +22,8 @@ import static com.squarespace.less.core.CharClass.LOWERCASE;
 import static com.squarespace.less.core.CharClass.UNDERSCORE;
 import static com.squarespace.less.core.CharClass.UPPERCASE;
 
+import java.util.Locale;
+
 import com.squarespace.less.core.CharClass;
 
 
@@ -69,6 +71,14 @@ public class Recognizers {
     return new CharacterClass(bitmask);
   }
 
+  /**
+   * Matches a member of the character class or one of the extra characters,
+   * using a single table lookup.
+   */
+  public static Recognizer charSet(int bitmask, char ... extra) {
+    return new CharacterSet(bitmask, extra);
+  }
+
   public static Recognizer charRange(char start, char end) {
     return new CharacterRange(start, end);
   }
@@ -77,6 +87,18 @@ public class Recognizers {
     return new Recognizers.Choice(patterns);
   }
 
+  /**
+   * Compiles the pattern into a table-driven DFA, or returns the pattern
+   * unchanged if it uses constructs which cannot be compiled.
+   *
+   * The DFA returns the end of the longest prefix in the pattern's language,
+   * while the combinators never give back characters once a repetition or
+   * choice has consumed them. Only compile patterns for which both agree.
+   */
+  public static Recognizer compile(Recognizer pattern) {
+    return RecognizerCompiler.compile(pattern);
+  }
+
   public static Recognizer decimal() {
     return new Recognizers.Decimal();
   }
@@ -97,6 +119,13 @@ public class Recognizers {
     return new Literal(str);
   }
 
+  /**
+   * Matches the literal, ignoring the case of ASCII letters.
+   */
+  public static Recognizer literalIgnoreCase(String str) {
+    return new LiteralIgnoreCase(str);
+  }
+
   public static Recognizer lookAhead(Recognizer pattern) {
     return new LookAhead(pattern);
   }
@@ -168,11 +197,11 @@ public class Recognizers {
    */
   static class Cardinality implements Recognizer {
 
-    private final Recognizer pattern;
+    final Recognizer pattern;
 
-    private final int start;
+    final int start;
 
-    private final int limit;
+    final int limit;
 
     Cardinality(Recognizer pattern, int limit) {
       this(pattern, 0, limit);
@@ -208,11 +237,11 @@ public class Recognizers {
    */
   static class Characters implements Recognizer {
 
-    private final boolean invert;
+    final boolean invert;
 
-    private final char first;
+    final char first;
 
-    private final char[] chars;
+    final char[] chars;
 
     Characters(boolean invert, char first, char ... chars) {
       this.invert = invert;
@@ -244,9 +273,9 @@ public class Recognizers {
    */
   static class CharacterClass implements Recognizer {
 
-    private final int bitmask;
+    final int bitmask;
 
-    private final boolean invert;
+    final boolean invert;
 
     CharacterClass(int charClass) {
       this(charClass, false);
@@ -268,6 +297,35 @@ public class Recognizers {
 
   }
 
+  /**
+   * Matches any ASCII character in a precomputed table.
+   */
+  static class CharacterSet implements Recognizer {
+
+    private static final int LIMIT = 0x80;
+
+    final boolean[] members = new boolean[LIMIT];
+
+    CharacterSet(int bitmask, char ... extra) {
+      for (char ch = 0; ch < LIMIT; ch++) {
+        members[ch] = CharClass.isMember(ch, bitmask);
+      }
+      for (char ch : extra) {
+        members[ch] = true;
+      }
+    }
+
+    @Override
+    public int match(CharSequence seq, int pos, int length) {
+      if (pos < length) {
+        char ch = seq.charAt(pos);
+        return (ch < LIMIT && members[ch]) ? pos + 1 : FAIL;
+      }
+      return FAIL;
+    }
+
+  }
+
   /**
    * Returns next position if the character is within the given range.
    * Setting the invert flag, the match will succeed if the character is not
@@ -275,11 +333,11 @@ public class Recognizers {
    */
   static class CharacterRange implements Recognizer {
 
-    private final boolean invert;
+    final boolean invert;
 
-    private final char start;
+    final char start;
 
-    private final char end;
+    final char end;
 
     CharacterRange(char start, char end) {
       this(false, start, end);
@@ -308,7 +366,7 @@ public class Recognizers {
    */
   static class Choice implements Recognizer {
 
-    private final Recognizer[] patterns;
+    final Recognizer[] patterns;
 
     Choice(Recognizer[] patterns) {
       this.patterns = patterns;
@@ -364,9 +422,9 @@ public class Recognizers {
    */
   static class Literal implements Recognizer {
 
-    private final String literal;
+    final String literal;
 
-    private final int literalLength;
+    final int literalLength;
 
     Literal(String value) {
       this.literal = value;
@@ -387,13 +445,45 @@ public class Recognizers {
     }
   }
 
+  /**
+   * Match an entire literal string, ignoring the case of ASCII letters.
+   */
+  static class LiteralIgnoreCase implements Recognizer {
+
+    final String literal;
+
+    final int literalLength;
+
+    LiteralIgnoreCase(String value) {
+      this.literal = value.toLowerCase(Locale.ROOT);
+      this.literalLength = literal.length();
+    }
+
+    @Override
+    public int match(CharSequence seq, int pos, int length) {
+      if (literalLength <= (length - pos)) {
+        for (int i = 0; i < literalLength; i++, pos++) {
+          char ch = seq.charAt(pos);
+          if (ch >= 'A' && ch <= 'Z') {
+            ch += 'a' - 'A';
+          }
+          if (literal.charAt(i) != ch) {
+            return FAIL;
+          }
+        }
+        return pos;
+      }
+      return FAIL;
+    }
+  }
+
   /**
    * Returns current position if the child matcher matches, and zero if
    * the matcher fails.
    */
   static class LookAhead implements Recognizer {
 
-    private final Recognizer pattern;
+    final Recognizer pattern;
 
     LookAhead(Recognizer pattern) {
       this.pattern = pattern;
@@ -429,7 +519,7 @@ public class Recognizers {
    */
   static class Sequence implements Recognizer {
 
-    private final Recognizer[] patterns;
+    final Recognizer[] patterns;
 
     Sequence(Recognizer[] patterns) {
       this.patterns = patterns;
@@ -31,7 +31,7 @@ import com.squarespace.less.model.Rule;
 import com.squarespace.less.model.Variable;
 
 
-public class RuleParselet implements Parselet {
+public class RuleParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -138,4 +138,9 @@ public class RuleParselet implements Parselet {
     return false;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.ruleStart(ch);
+  }
+
 }
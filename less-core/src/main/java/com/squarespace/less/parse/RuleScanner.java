@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import com.squarespace.less.core.CharClass;
+import com.squarespace.less.core.Chars;
+
+
+/**
+ * Scans a source for the ends of top-level rules, skipping strings, comments
+ * and urls, without parsing it. The scan can be resumed as more of the source
+ * becomes available, so it tracks its position and bracket depth between calls.
+ */
+final class RuleScanner {
+
+  private static final String URL_START = "url(";
+
+  private int pos;
+
+  private int depth;
+
+  private boolean unbalanced;
+
+  /**
+   * Returns the position following the first top-level rule which ends at or
+   * after the minimum position and before the limit, or -1 if there is none.
+   *
+   * Unless the limit is the end of the source, the scan stops before any
+   * construct that may continue past the limit, and resumes there on the
+   * next call. A rule ending at the end of the source is not reported.
+   */
+  int next(CharSequence raw, int limit, int min, boolean end) {
+    while (pos < limit && !unbalanced) {
+      char ch = raw.charAt(pos);
+      int skip = 0;
+      switch (ch) {
+        case Chars.QUOTATION_MARK:
+        case Chars.APOSTROPHE:
+        case Chars.GRAVE_ACCENT:
+          skip = skipString(raw, pos, limit, ch);
+          break;
+
+        case Chars.SLASH:
+          if (pos + 1 == limit) {
+            skip = end ? 0 : -1;
+          } else if (raw.charAt(pos + 1) == Chars.ASTERISK) {
+            skip = skipPast(raw, pos + 2, limit, "*/");
+          } else if (raw.charAt(pos + 1) == Chars.SLASH) {
+            skip = skipPast(raw, pos + 2, limit, "\n");
+          }
+          break;
+
+        case Chars.BACKSLASH:
+          skip = (pos + 2 <= limit) ? pos + 2 : -1;
+          break;
+
+        case Chars.AT_SIGN:
+          // An interpolated name, e.g. @{name}, does not end a block.
+          if (pos + 1 == limit) {
+            skip = end ? 0 : -1;
+          } else if (raw.charAt(pos + 1) == Chars.LEFT_CURLY_BRACKET) {
+            skip = skipPast(raw, pos + 2, limit, "}");
+          }
+          break;
+
+        case 'u':
+        case 'U':
+          if (pos + URL_START.length() > limit) {
+            skip = end ? 0 : -1;
+          } else if (startsUrl(raw, pos)) {
+            skip = skipUrl(raw, pos + URL_START.length(), limit);
+          }
+          break;
+
+        default:
+          break;
+      }
+
+      if (skip == -1) {
+        // The construct is unterminated within the limit.
+        if (!end) {
+          return -1;
+        }
+        pos = limit;
+        break;
+      }
+      if (skip > 0) {
+        pos = skip;
+        continue;
+      }
+
+      int newDepth = depth + delta(ch);
+      if (newDepth < 0) {
+        unbalanced = true;
+        return -1;
+      }
+
+      int next = pos + 1;
+      boolean boundary = false;
+      if (newDepth == 0 && next >= min && (ch == Chars.SEMICOLON || ch == Chars.RIGHT_CURLY_BRACKET)) {
+        if (next == limit) {
+          if (!end) {
+            return -1;
+          }
+        } else if (ch == Chars.SEMICOLON) {
+          boundary = true;
+        } else {
+          // A block followed by a semicolon, e.g. a detached ruleset, ends at the semicolon.
+          int i = next;
+          while (i < limit && CharClass.whitespace(raw.charAt(i))) {
+            i++;
+          }
+          if (i == limit && !end) {
+            return -1;
+          }
+          boundary = i == limit || raw.charAt(i) != Chars.SEMICOLON;
+        }
+      }
+
+      depth = newDepth;
+      pos = next;
+      if (boundary) {
+        return next;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Indicates whether the brackets scanned so far balance.
+   */
+  boolean balanced() {
+    return !unbalanced && depth == 0;
+  }
+
+  /**
+   * Adjusts the position after the given number of characters are removed
+   * from the start of the source. Only scanned characters may be removed.
+   */
+  void shift(int count) {
+    pos -= count;
+  }
+
+  private static int delta(char ch) {
+    switch (ch) {
+      case Chars.LEFT_CURLY_BRACKET:
+      case Chars.LEFT_PARENTHESIS:
+      case Chars.LEFT_SQUARE_BRACKET:
+        return 1;
+
+      case Chars.RIGHT_CURLY_BRACKET:
+      case Chars.RIGHT_PARENTHESIS:
+      case Chars.RIGHT_SQUARE_BRACKET:
+        return -1;
+
+      default:
+        return 0;
+    }
+  }
+
+  private static boolean startsUrl(CharSequence raw, int pos) {
+    for (int i = 0; i < URL_START.length(); i++) {
+      if (Character.toLowerCase(raw.charAt(pos + i)) != URL_START.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the position following the first occurrence of the terminator
+   * at or after the position, or -1 if it does not occur before the limit.
+   */
+  private static int skipPast(CharSequence raw, int pos, int limit, String terminator) {
+    int len = terminator.length();
+    char first = terminator.charAt(0);
+    for (int i = pos; i + len <= limit; i++) {
+      if (raw.charAt(i) == first && (len == 1 || raw.charAt(i + 1) == terminator.charAt(1))) {
+        return i + len;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the position following the string which opens at the position,
+   * or -1 if it is not closed before the limit.
+   */
+  private static int skipString(CharSequence raw, int pos, int limit, char quote) {
+    pos++;
+    while (pos < limit) {
+      char ch = raw.charAt(pos);
+      if (ch == Chars.BACKSLASH) {
+        pos += 2;
+        continue;
+      }
+      pos++;
+      if (ch == quote) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the position following the closing parenthesis of a url, or -1
+   * if it is not closed before the limit.
+   */
+  private static int skipUrl(CharSequence raw, int pos, int limit) {
+    while (pos < limit) {
+      char ch = raw.charAt(pos);
+      if (ch == Chars.QUOTATION_MARK || ch == Chars.APOSTROPHE) {
+        pos = skipString(raw, pos, limit, ch);
+        if (pos == -1) {
+          return -1;
+        }
+        continue;
+      }
+      if (ch == Chars.BACKSLASH) {
+        pos += 2;
+        continue;
+      }
+      pos++;
+      if (ch == Chars.RIGHT_PARENTHESIS) {
+        return pos;
+      }
+    }
+    return -1;
+  }
+
+}
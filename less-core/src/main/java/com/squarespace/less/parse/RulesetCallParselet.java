@@ -28,7 +28,7 @@ import com.squarespace.less.model.Ruleset;
 /**
  * Parses a detached {@link Ruleset} call.
  */
-public class RulesetCallParselet implements Parselet {
+public class RulesetCallParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -49,4 +49,9 @@ public class RulesetCallParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.AT_SIGN;
+  }
+
 }
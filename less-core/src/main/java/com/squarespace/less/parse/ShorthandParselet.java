@@ -20,12 +20,13 @@ import static com.squarespace.less.core.SyntaxErrorMaker.general;
 import static com.squarespace.less.parse.Parselets.ENTITY;
 
 import com.squarespace.less.LessException;
+import com.squarespace.less.core.CharClass;
 import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Shorthand;
 
 
-public class ShorthandParselet implements Parselet {
+public class ShorthandParselet implements PredictiveParselet {
 
   private static final String PARSE_ERROR = "Shorthand pattern matched but failed to complete parse";
 
@@ -47,4 +48,11 @@ public class ShorthandParselet implements Parselet {
     return new Shorthand(left, right);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    // Same leading characters as the shorthand pattern.
+    return ch == Chars.AT_SIGN || ch == Chars.PERIOD || ch == Chars.PERCENT_SIGN || ch == Chars.MINUS_SIGN
+        || ch == Chars.UNDERSCORE || CharClass.digit(ch) || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+  }
+
 }
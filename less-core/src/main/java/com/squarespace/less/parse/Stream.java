@@ -39,33 +39,144 @@ public class Stream {
   protected int furthest;
 
   /**
-   * Offset of the current line. NOTE: zero-based.
+   * Starting index of each line, built on first use. Only the index is tracked
+   * while parsing, and line and character offsets are derived from it.
    */
-  protected int lineOffset;
+  private int[] lineStarts;
 
   /**
-   * Offset of the character position of the current line. NOTE: zero-based.
+   * Line found by the most recent lookup, since consecutive lookups tend to
+   * fall on the same line.
    */
-  protected int charOffset;
+  private int lastLine;
+
+  /**
+   * Line and character offsets at which the source starts, when it is a
+   * segment of a larger file.
+   */
+  private int lineBase;
+
+  private int charBase;
 
   public Stream(String raw) {
     this.raw = raw;
     this.length = raw.length();
   }
 
+  /**
+   * Wraps the characters of the string between start and end, sharing the
+   * line index built for the whole string so offsets stay absolute.
+   */
+  protected Stream(String raw, int start, int end, int[] lineStarts) {
+    this.raw = raw;
+    this.length = end;
+    this.index = start;
+    this.furthest = start;
+    this.lineStarts = lineStarts;
+  }
+
   public int getLineOffset() {
-    return lineOffset;
+    return lineOffset(index);
   }
 
   public int getCharOffset() {
-    return charOffset;
+    return charOffset(index);
+  }
+
+  /**
+   * Zero-based line offset of the given position.
+   */
+  public int lineOffset(int pos) {
+    return lineBase + line(pos);
+  }
+
+  /**
+   * Zero-based character offset of the given position within its line.
+   */
+  public int charOffset(int pos) {
+    int line = line(pos);
+    return pos - lineStarts()[line] + (line == 0 ? charBase : 0);
+  }
+
+  /**
+   * Offsets all line and character offsets, for a source which starts at the
+   * given line and character of a larger file.
+   */
+  void rebase(int lineBase, int charBase) {
+    this.lineBase = lineBase;
+    this.charBase = charBase;
+  }
+
+  int lineBase() {
+    return lineBase;
+  }
+
+  /**
+   * Line of the source containing the given position.
+   */
+  private int line(int pos) {
+    int[] starts = lineStarts();
+    int line = lastLine;
+    if (pos < starts[line] || (line + 1 < starts.length && pos >= starts[line + 1])) {
+      line = lineOf(starts, pos);
+      lastLine = line;
+    }
+    return line;
+  }
+
+  /**
+   * Returns the starting index of each line.
+   */
+  protected int[] lineStarts() {
+    if (lineStarts == null) {
+      lineStarts = lineStarts(raw);
+    }
+    return lineStarts;
+  }
+
+  /**
+   * Scans the string once, recording the index following each line feed.
+   */
+  static int[] lineStarts(String raw) {
+    int len = raw.length();
+    int count = 1;
+    for (int i = 0; i < len; i++) {
+      if (raw.charAt(i) == Chars.LINE_FEED) {
+        count++;
+      }
+    }
+    int[] starts = new int[count];
+    int line = 1;
+    for (int i = 0; i < len; i++) {
+      if (raw.charAt(i) == Chars.LINE_FEED) {
+        starts[line++] = i + 1;
+      }
+    }
+    return starts;
+  }
+
+  /**
+   * Binary search for the line containing the position.
+   */
+  static int lineOf(int[] starts, int pos) {
+    int lo = 0;
+    int hi = starts.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= pos) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lo;
   }
 
   protected void dump() {
     char ch = (index >= length) ? Chars.EOF : raw.charAt(index);
     String esc = StringEscapeUtils.escapeJava(ch + "");
     System.out.printf("Stream: index=%d len=%d line=%d char=%d ch=\"%s\"\n",
-          index, length, lineOffset, charOffset, esc);
+          index, length, getLineOffset(), getCharOffset(), esc);
   }
 
   public String raw() {
@@ -87,8 +198,6 @@ public class Stream {
    */
   public void mark(Mark mark) {
     mark.index = index;
-    mark.lineOffset = lineOffset;
-    mark.charOffset = charOffset;
   }
 
   /**
@@ -96,8 +205,6 @@ public class Stream {
    */
   public int restore(Mark mark) {
     index = mark.index;
-    lineOffset = mark.lineOffset;
-    charOffset = mark.charOffset;
     return index;
   }
 
@@ -119,14 +226,11 @@ public class Stream {
   }
 
   /**
-   * Seek ahead in the stream 'offset' characters. Increments the stream pointer and
-   * increments the line/offset counters.
+   * Seek ahead in the stream 'offset' characters. Increments the stream pointer.
    */
   public char seek(int offset) {
-    int limit = Math.min(length, index + offset);
-    while (index < limit) {
-      consume(raw.charAt(index));
-      index++;
+    if (offset > 0) {
+      index = Math.min(length, index + offset);
     }
     furthest = Math.max(index, furthest);
     return peek();
@@ -134,7 +238,6 @@ public class Stream {
 
   public char seek1() {
     if (index < length) {
-      consume(raw.charAt(index));
       index++;
     }
     furthest = Math.max(index, furthest);
@@ -148,7 +251,6 @@ public class Stream {
   public void seekTo(char ch) {
     while (index < length) {
       char curr = raw.charAt(index);
-      consume(curr);
       index++;
       if (curr == ch) {
         break;
@@ -180,7 +282,6 @@ public class Stream {
       if (!CharClass.whitespace(curr)) {
         break;
       }
-      consume(curr);
       index++;
     }
     // Important not to update 'furthest' pointer when skipping whitespace
@@ -194,7 +295,6 @@ public class Stream {
       if (!CharClass.skippable(curr)) {
         break;
       }
-      consume(curr);
       index++;
     }
     // Important not to update 'furthest' pointer when skipping 'empty' chars.
@@ -215,7 +315,6 @@ public class Stream {
     int j;
     for (j = 0; index < length && j < patternLen; index++) {
       char ch = raw.charAt(index);
-      consume(ch);
       while (j >= 0 && ch != pattern[j]) {
         j = next[j];
       }
@@ -235,15 +334,6 @@ public class Stream {
     return raw.substring(Math.min(furthest, length - 1));
   }
 
-  private void consume(char ch) {
-    if (ch == Chars.LINE_FEED) {
-      lineOffset++;
-      charOffset = 0;
-    } else {
-      charOffset++;
-    }
-  }
-
   /**
    * Useful for debugging the parser.
    */
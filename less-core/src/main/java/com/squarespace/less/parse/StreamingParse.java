@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.squarespace.less.LessException;
+import com.squarespace.less.core.Chars;
+import com.squarespace.less.core.Constants;
+import com.squarespace.less.exec.ExecEnv;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Node;
+
+
+/**
+ * Parses a stylesheet read through a window of its source, so a very large
+ * file never has its whole source held alongside its rules. The window is
+ * split where a scan guesses a top-level rule ends, and the rules before the
+ * split are parsed and appended to the file's block before the characters
+ * are discarded and more of the source is read.
+ *
+ * Each segment is first parsed detached, so a guess which splits a rule is
+ * retried once with the following segment joined on. If that fails too, the
+ * error is reported rather than growing the window again. A segment whose
+ * rules depend on the compile, e.g. it contains nested or interpolated
+ * imports, is parsed again in place once it is known to parse.
+ */
+final class StreamingParse {
+
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+  // Lines of parsed source kept to show the context of an error.
+  private static final int CONTEXT_LINES = 5;
+
+  private static final int CONTEXT_LIMIT = 4096;
+
+  private final LessParser parser;
+
+  private final Reader reader;
+
+  private final Path path;
+
+  private final ExecEnv env;
+
+  private final Block block;
+
+  private final int windowSize;
+
+  private final StringBuilder window = new StringBuilder();
+
+  private final RuleScanner scanner = new RuleScanner();
+
+  // Line and character of the file at which the window starts.
+  private int lineBase;
+
+  private int charBase;
+
+  // Tail of the parsed source, starting at a line, and the number of lines it spans.
+  private String context = "";
+
+  private int contextLines;
+
+  private StreamingParse(LessParser parser, Reader reader, Path path, ExecEnv env, Block block, int windowSize) {
+    this.parser = parser;
+    this.reader = reader;
+    this.path = (path == null) ? Constants.DEFAULT_PATH : path;
+    this.env = env;
+    this.block = block;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Parses the source read from the reader, appending its rules to the block,
+   * which must be at the top of the environment. Segments hold at least the
+   * window size in characters. Returns the number of characters read.
+   */
+  static int parse(LessParser parser, Reader reader, Path path, ExecEnv env, Block block, int windowSize)
+      throws LessException, IOException {
+    return new StreamingParse(parser, reader, path, env, block, windowSize).parse();
+  }
+
+  private int parse() throws LessException, IOException {
+    char[] buf = new char[windowSize];
+    int length = 0;
+    int min = windowSize;
+    boolean end = false;
+    boolean retry = false;
+    while (true) {
+      int bound = scanner.next(window, window.length(), min, end);
+      if (bound == -1) {
+        if (!end) {
+          int count = reader.read(buf);
+          if (count == -1) {
+            end = true;
+          } else {
+            window.append(buf, 0, count);
+            length += count;
+          }
+          continue;
+        }
+        bound = window.length();
+      }
+
+      boolean last = end && bound == window.length();
+      String segment = window.substring(0, bound);
+      if (!parseSegment(segment, last || retry)) {
+        // The segment may split a rule, so join the next one on.
+        min = bound + windowSize;
+        retry = true;
+        continue;
+      }
+      if (last) {
+        return length;
+      }
+      boolean lineStart = charBase == 0;
+      advance(segment);
+      keepContext(segment, lineStart);
+      window.delete(0, bound);
+      scanner.shift(bound);
+      min = windowSize;
+      retry = false;
+    }
+  }
+
+  /**
+   * Parses the segment and appends its rules to the block. Returns false if the
+   * segment fails to parse, unless the error is to be reported, in which case
+   * it is thrown.
+   */
+  private boolean parseSegment(String segment, boolean report) throws LessException {
+    ExecEnv detachedEnv = new ExecEnv(parser.context());
+    LessStream detached = null;
+    if (report && !context.isEmpty()) {
+      // Parse after the preceding lines, so an error shows them.
+      String raw = context + segment;
+      detached = new LessStream(parser, raw, path, detachedEnv, context.length(), raw.length(), null);
+      detached.rebase(lineBase - contextLines, 0);
+    } else {
+      detached = new LessStream(parser, segment, path, detachedEnv);
+      detached.rebase(lineBase, charBase);
+    }
+
+    List<Node> rules = null;
+    try {
+      rules = PrimaryParselet.parseDetached(detached);
+    } catch (LessException e) {
+      if (report) {
+        throw e;
+      }
+      return false;
+    }
+
+    LessStream stm = parser.push(segment, path, env);
+    stm.rebase(lineBase, charBase);
+    if (rules == null) {
+      PrimaryParselet.parseSegment(block, stm);
+    } else {
+      PrimaryParselet.appendDetached(stm, block, rules);
+    }
+    parser.pop();
+    return true;
+  }
+
+  /**
+   * Moves the line and character at which the window starts past the segment.
+   */
+  private void advance(String segment) {
+    int lastLine = segment.lastIndexOf(Chars.LINE_FEED);
+    if (lastLine == -1) {
+      charBase += segment.length();
+      return;
+    }
+    for (int i = 0; i <= lastLine; i++) {
+      if (segment.charAt(i) == Chars.LINE_FEED) {
+        lineBase++;
+      }
+    }
+    charBase = segment.length() - lastLine - 1;
+  }
+
+  /**
+   * Keeps the last lines of the parsed source, up to the line containing the
+   * start of the window, unless they are too long. The kept lines always start
+   * at the beginning of a line.
+   */
+  private void keepContext(String segment, boolean lineStart) {
+    String text = context + segment;
+    int lineFeed = text.length();
+    for (int i = 0; i < CONTEXT_LINES && lineFeed != -1; i++) {
+      lineFeed = text.lastIndexOf(Chars.LINE_FEED, lineFeed - 1);
+    }
+    int start = lineFeed + 1;
+    if (start == 0 && context.isEmpty() && !lineStart) {
+      // The segment starts within a line, so keep the lines which follow it.
+      start = text.indexOf(Chars.LINE_FEED) + 1;
+      if (start == 0) {
+        start = text.length();
+      }
+    }
+    if (text.length() - start > CONTEXT_LIMIT) {
+      start = text.length();
+    }
+
+    context = text.substring(start);
+    contextLines = 0;
+    for (int i = 0; i < context.length(); i++) {
+      if (context.charAt(i) == Chars.LINE_FEED) {
+        contextLines++;
+      }
+    }
+  }
+
+}
@@ -23,7 +23,7 @@ import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.Node;
 
 
-public class SubParselet implements Parselet {
+public class SubParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -44,4 +44,9 @@ public class SubParselet implements Parselet {
     return node;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.LEFT_PARENTHESIS;
+  }
+
 }
@@ -20,7 +20,7 @@ import com.squarespace.less.model.Node;
 import com.squarespace.less.model.UnicodeRange;
 
 
-public class UnicodeRangeParselet implements Parselet {
+public class UnicodeRangeParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -30,4 +30,9 @@ public class UnicodeRangeParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == 'U';
+  }
+
 }
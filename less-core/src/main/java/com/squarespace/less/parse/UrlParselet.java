@@ -21,7 +21,7 @@ import com.squarespace.less.core.CharClass;
 import com.squarespace.less.model.Node;
 
 
-public class UrlParselet implements Parselet {
+public class UrlParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
@@ -42,4 +42,9 @@ public class UrlParselet implements Parselet {
     return null;
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return CharClass.callStart(ch);
+  }
+
 }
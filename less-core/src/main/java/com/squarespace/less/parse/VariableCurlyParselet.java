@@ -20,7 +20,7 @@ import com.squarespace.less.core.Chars;
 import com.squarespace.less.model.Node;
 
 
-public class VariableCurlyParselet implements Parselet {
+public class VariableCurlyParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) {
@@ -55,4 +55,9 @@ public class VariableCurlyParselet implements Parselet {
     return stm.context().nodeBuilder().buildVariable(indirect ? '@' + token : token, true);
   }
 
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.AT_SIGN;
+  }
+
 }
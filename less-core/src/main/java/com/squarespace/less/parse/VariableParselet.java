@@ -24,20 +24,19 @@ import com.squarespace.less.model.Node;
 /**
  * Parses variable names.
  */
-public class VariableParselet implements Parselet {
+public class VariableParselet implements PredictiveParselet {
 
   @Override
   public Node parse(LessStream stm) throws LessException {
     Mark mark = stm.mark();
-    boolean indirect = false;
     int pos = 0;
     if (stm.peek() != Chars.AT_SIGN) {
       return null;
     }
     pos++;
 
+    // Indirect reference
     if (stm.peek(pos) == Chars.AT_SIGN) {
-      indirect = true;
       pos++;
     }
 
@@ -47,8 +46,14 @@ public class VariableParselet implements Parselet {
       return null;
     }
 
-    String name = '@' + stm.token();
-    return stm.context().nodeBuilder().buildVariable(indirect ? '@' + name : name, false);
+    // The name, with its one or two leading '@', is a contiguous range of the source.
+    String name = stm.intern(mark.index, stm.position());
+    return stm.context().nodeBuilder().buildVariable(name, false);
+  }
+
+  @Override
+  public boolean mayStartWith(char ch) {
+    return ch == Chars.AT_SIGN;
   }
 
 }
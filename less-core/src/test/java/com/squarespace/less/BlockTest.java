@@ -19,18 +19,25 @@ package com.squarespace.less;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.testng.annotations.Test;
 
 import com.squarespace.less.core.LessTestBase;
+import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Rule;
 import com.squarespace.less.model.Units;
 
 
 public class BlockTest extends LessTestBase {
 
+  private static final String[] NAMES = new String[] { "@a", "@b", "@c", "@d", "@e" };
+
   @Test
   public void testEquals() {
     Rule ruleXY = rule(prop("x"), anon("y"));
@@ -59,4 +66,67 @@ public class BlockTest extends LessTestBase {
     assertTrue(defs.contains(defB.toString().replaceAll("\\s+", " ")));
     assertFalse(defs.contains(rule.toString().replaceAll("\\s+", " ")));
   }
+
+  @Test
+  public void testSpliceVariables() throws LessException {
+    Definition defA1 = def("@a", dim(1));
+    Definition defA2 = def("@a", dim(2));
+    Definition defA3 = def("@a", dim(3));
+    Definition defB = def("@b", dim(4));
+    Block block = block(defA1, rule(prop("x"), dim(1)), defA3);
+    assertSame(block.resolveDefinition("@a"), defA3);
+
+    // The last definition in the block wins over the spliced one.
+    block.splice(1, 1, block(defA2, defB));
+    assertSame(block.resolveDefinition("@a"), defA3);
+    assertSame(block.resolveDefinition("@b"), defB);
+
+    // Removing a definition exposes the earlier one.
+    block.splice(3, 1, block());
+    assertSame(block.resolveDefinition("@a"), defA2);
+    block.splice(0, 2, block(rule(prop("y"), dim(2))));
+    assertEquals(block.resolveDefinition("@a"), null);
+    block.splice(1, 0, block(defA1));
+    assertSame(block.resolveDefinition("@a"), defA1);
+  }
+
+  @Test
+  public void testSpliceVariablesRandom() throws LessException {
+    // Lookups after each splice must match a cache rebuilt from scratch.
+    Random random = new Random(1);
+    for (int round = 0; round < 20; round++) {
+      Block block = new Block();
+      Block expected = new Block();
+      for (int i = 0; i < 10; i++) {
+        Node node = randomRule(random);
+        block.appendNode(node);
+        expected.appendNode(node);
+      }
+      for (int i = 0; i < 100; i++) {
+        Block other = new Block();
+        for (int j = random.nextInt(4); j > 0; j--) {
+          other.appendNode(randomRule(random));
+        }
+        int size = block.rules().size();
+        int start = random.nextInt(size + 1);
+        int num = Math.min(random.nextInt(3), size - start);
+        block.splice(start, num, other);
+        expected.splice(start, num, other);
+        expected.resetVariableCache();
+        if (random.nextInt(3) != 0) {
+          for (String name : NAMES) {
+            assertSame(block.resolveDefinition(name), expected.resolveDefinition(name), name);
+          }
+        }
+      }
+    }
+  }
+
+  private Node randomRule(Random random) {
+    if (random.nextBoolean()) {
+      return rule(prop("x"), dim(random.nextInt(10)));
+    }
+    return def(NAMES[random.nextInt(NAMES.length)], dim(random.nextInt(10)));
+  }
+
 }
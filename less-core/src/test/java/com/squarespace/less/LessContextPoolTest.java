@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+
+public class LessContextPoolTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@import 'base.less'; .x { .mixin(2px); color: @color; }";
+
+  private static final String EXPECTED = ".x{width:4px;color:#abc}";
+
+  @Test
+  public void testReuse() throws LessException {
+    LessContextPool pool = COMPILER.newContextPool(options(), loader(), 2);
+    LessContext ctx = pool.acquire();
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("main.less")), EXPECTED);
+    assertEquals(ctx.stats().maxImportDepth(), 2);
+    pool.release(ctx);
+    assertEquals(pool.idleCount(), 1);
+
+    // Same instance is handed out again, with its per-compile state cleared.
+    LessContext reused = pool.acquire();
+    assertSame(reused, ctx);
+    assertEquals(reused.stats().maxImportDepth(), 0);
+    assertEquals(reused.importDepth(), 0);
+    assertEquals(reused.internTable().size(), 0);
+    assertEquals(COMPILER.compile(SOURCE, reused, path("main.less")), EXPECTED);
+    assertTrue(reused.internTable().size() > 0);
+    pool.release(reused);
+    assertEquals(reused.internTable().size(), 0);
+    reused = pool.acquire();
+
+    // Pool is empty, so a new instance is created.
+    assertNotSame(pool.acquire(), reused);
+  }
+
+  @Test
+  public void testBounded() {
+    LessContextPool pool = COMPILER.newContextPool(options(), loader(), 2);
+    List<LessContext> leased = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      leased.add(pool.acquire());
+    }
+    for (LessContext ctx : leased) {
+      pool.release(ctx);
+    }
+    assertEquals(pool.idleCount(), 2);
+  }
+
+  @Test
+  public void testConcurrentCompiles() throws Exception {
+    final LessContextPool pool = COMPILER.newContextPool(options(), loader(), 4);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return COMPILER.compile(SOURCE, pool, path("main.less"));
+          }
+        }));
+      }
+      for (Future<String> result : results) {
+        assertEquals(result.get(), EXPECTED);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static LessOptions options() {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    return opts;
+  }
+
+  private static LessLoader loader() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@color: #abc; .mixin(@w) { width: @w * 2; }");
+    return new HashMapLessLoader(map);
+  }
+
+  private static Path path(String name) {
+    return Paths.get(name).toAbsolutePath().normalize();
+  }
+
+}
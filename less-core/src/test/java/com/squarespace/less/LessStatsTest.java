@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+
+public class LessStatsTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@import 'base.less'; .x:extend(.y) { color: @color; } .y { top: 0; }";
+
+  @Test
+  public void testTimingTree() throws LessException {
+    LessContext ctx = newContext();
+    String result = COMPILER.compile(SOURCE, ctx, path("main.less"));
+    assertEquals(result, ".x{color:#abc}.y,.x{top:0}");
+
+    LessStats stats = ctx.stats();
+    TimingNode root = stats.timings();
+    assertEquals(root.name(), LessStats.COMPILE);
+    assertEquals(names(root.children()), "parse evaluate extend-index render");
+
+    TimingNode parse = root.child(LessStats.PARSE);
+    assertEquals(parse.detail(), path("main.less").toString());
+    assertEquals(parse.size(), SOURCE.length());
+
+    // Imports are nested below the file that imports them.
+    TimingNode base = parse.children().get(0);
+    assertEquals(base.name(), LessStats.IMPORT);
+    assertEquals(base.detail(), path("base.less").toString());
+    TimingNode colors = base.child(LessStats.IMPORT);
+    assertNotNull(colors);
+    assertEquals(colors.detail(), path("colors.less").toString());
+    assertEquals(colors.size(), "@color: #abc;".length());
+
+    assertEquals(stats.totalSize(), SOURCE.length() + "@import 'colors.less';".length() + "@color: #abc;".length());
+    assertEquals(stats.outputSize(), result.length());
+    assertEquals(root.child(LessStats.RENDER).size(), result.length());
+    assertTrue(root.timeMs() >= parse.timeMs());
+    assertTrue(parse.timeMs() >= base.timeMs());
+  }
+
+  @Test
+  public void testJson() throws LessException {
+    LessContext ctx = newContext();
+    COMPILER.compile(SOURCE, ctx, path("main.less"));
+    String json = ctx.stats().toJson();
+    assertTrue(json.startsWith("{\"parseTimeMs\":"), json);
+    assertTrue(json.contains("\"importCount\":2,\"fileReads\":2,"), json);
+    assertTrue(json.contains("\"timings\":{\"name\":\"compile\""), json);
+    assertTrue(json.contains("{\"name\":\"import\",\"detail\":"), json);
+    assertTrue(json.endsWith("}}"), json);
+  }
+
+  @Test
+  public void testReset() throws LessException {
+    LessContext ctx = newContext();
+    COMPILER.compile(SOURCE, ctx, path("main.less"));
+    ctx.stats().reset();
+    assertEquals(ctx.stats().timings().children().size(), 0);
+    assertEquals(ctx.stats().totalSize(), 0);
+    assertEquals(ctx.stats().outputSize(), 0);
+  }
+
+  @Test
+  public void testUnbalancedExit() {
+    LessStats stats = new LessStats();
+    TimingNode outer = stats.enter("outer");
+    stats.enter("inner");
+
+    // Exiting the outer phase closes any phases left open by an error.
+    stats.exit(outer, 0);
+    TimingNode next = stats.enter("next");
+    assertEquals(names(stats.timings().children()), "outer next");
+    stats.exit(next, 0);
+  }
+
+  @Test
+  public void testEscaping() {
+    StringBuilder buf = new StringBuilder();
+    TimingNode.appendString(buf, "a\"b\\c\n\u0001");
+    assertEquals(buf.toString(), "\"a\\\"b\\\\c\\n\\u0001\"");
+  }
+
+  private static String names(List<TimingNode> nodes) {
+    StringBuilder buf = new StringBuilder();
+    for (TimingNode node : nodes) {
+      if (buf.length() > 0) {
+        buf.append(' ');
+      }
+      buf.append(node.name());
+    }
+    return buf.toString();
+  }
+
+  private static LessContext newContext() {
+    Map<Path, String> files = new HashMap<>();
+    files.put(path("base.less"), "@import 'colors.less';");
+    files.put(path("colors.less"), "@color: #abc;");
+    LessContext ctx = new LessContext(new LessOptions(true), new HashMapLessLoader(files));
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+}
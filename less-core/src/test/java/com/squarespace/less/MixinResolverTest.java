@@ -16,23 +16,38 @@
 
 package com.squarespace.less;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.testng.annotations.Test;
 
+import com.squarespace.less.core.FlexList;
 import com.squarespace.less.core.LessTestBase;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.exec.MixinMatcher;
 import com.squarespace.less.exec.MixinResolver;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Mixin;
 import com.squarespace.less.model.MixinCall;
 import com.squarespace.less.model.MixinCallArgs;
 import com.squarespace.less.model.MixinParams;
+import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Selector;
 import com.squarespace.less.model.Stylesheet;
 
 
 public class MixinResolverTest extends LessTestBase {
 
+  private static final String[] SEGMENTS = new String[] { ".a", ".ab", ".a-b", ".b", "#n", "#nb", "div" };
+
   @Test
   public void testResolver() throws LessException {
     LessContext ctx = new LessContext();
@@ -52,6 +67,121 @@ public class MixinResolverTest extends LessTestBase {
     assertTrue(resolver.match(sheet.block()));
   }
 
+  @Test
+  public void testMixinIndex() throws LessException {
+    // Candidates found through the index must include every rule whose path
+    // is a prefix of the call path, before and after the block changes.
+    Random random = new Random(1);
+    Block block = new Block();
+    for (int i = 0; i < 40; i++) {
+      block.appendNode(randomRule(random));
+    }
+    block.indexMixins();
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < 20; i++) {
+        String path = randomPath(random);
+        checkCandidates(block, path, random.nextInt(path.length()));
+      }
+      if (random.nextBoolean()) {
+        Block other = new Block();
+        for (int i = random.nextInt(4); i > 0; i--) {
+          other.appendNode(randomRule(random));
+        }
+        int start = random.nextInt(block.rules().size());
+        int num = Math.min(random.nextInt(3), block.rules().size() - start);
+        block.splice(start, num, other);
+      } else {
+        block.appendNode(randomRule(random));
+      }
+    }
+  }
+
+  @Test
+  public void testParsedBlockUnchanged() throws Exception {
+    // Mixin lookups must not index a parsed block, which evaluations share.
+    StringBuilder buf = new StringBuilder("#ns {\n");
+    for (int i = 0; i < 10; i++) {
+      buf.append("  .m").append(i).append("() { width: ").append(i).append("px; }\n");
+    }
+    buf.append("}\n.x { #ns > .m3(); }\n");
+    LessCompiler compiler = new LessCompiler();
+    LessContext ctx = new LessContext();
+    ctx.setFunctionTable(compiler.functionTable());
+    Stylesheet sheet = compiler.parse(buf.toString(), ctx);
+    Block ns = ((Ruleset)sheet.block().rules().get(0)).block();
+
+    Field field = Block.class.getDeclaredField("mixinIndex");
+    field.setAccessible(true);
+    Object index = field.get(ns);
+    assertNotNull(index);
+    assertEquals(compiler.render(sheet, ctx), ".x {\n  width: 3px;\n}\n");
+    assertSame(field.get(ns), index);
+
+    // A block built without the parser is scanned instead.
+    Block block = new Block();
+    for (int i = 0; i < 10; i++) {
+      block.appendNode(mixin(".m" + i));
+    }
+    assertNull(block.mixinCandidates(".m3", 0));
+    assertNull(field.get(block));
+  }
+
+  private void checkCandidates(Block block, String path, int start) {
+    int[] candidates = block.mixinCandidates(path, start);
+    for (int i = 1; i < candidates.length; i++) {
+      assertTrue(candidates[i - 1] < candidates[i]);
+    }
+
+    String rest = path.substring(start);
+    FlexList<Node> rules = block.rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node node = rules.get(i);
+      boolean possible = false;
+      if (node instanceof Mixin) {
+        possible = rest.startsWith(((Mixin)node).name());
+      } else if (node instanceof Ruleset) {
+        for (Selector selector : ((Ruleset)node).selectors().selectors()) {
+          possible |= selector.needsEval() || (selector.hasMixinPath() && rest.startsWith(selector.mixinPath()));
+        }
+      }
+      if (possible) {
+        assertTrue(Arrays.binarySearch(candidates, i) >= 0, "rule " + i + " " + node + " for " + rest);
+      }
+    }
+  }
+
+  private Node randomRule(Random random) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return mixin(randomPath(random));
+
+      case 1:
+        return ruleset(randomSelector(random), randomSelector(random));
+
+      case 2:
+        return random.nextInt(4) == 0 ? ruleset(selector(element(var("@x", true)))) : ruleset(randomSelector(random));
+
+      default:
+        return rule(prop("color"), color("red"));
+    }
+  }
+
+  private Selector randomSelector(Random random) {
+    Selector selector = new Selector();
+    for (int i = random.nextInt(3); i >= 0; i--) {
+      selector.add(element(SEGMENTS[random.nextInt(SEGMENTS.length)]));
+    }
+    return selector;
+  }
+
+  private static String randomPath(Random random) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = random.nextInt(3); i >= 0; i--) {
+      buf.append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+    }
+    return buf.toString();
+  }
+
 //  @Test  // enable for performance testing and profiling
   public void testBindSpeed() throws Exception {
     int iters = 1000;
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+
+public class OutputCacheTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@import 'base.less'; .x { width: 1px + 3; color: @color; }";
+
+  @Test
+  public void testHits() throws LessException {
+    Map<Path, String> files = buildMap();
+    OutputCache cache = new OutputCache();
+    LessOptions opts = new LessOptions(true);
+
+    assertEquals(compile(SOURCE, files, opts, cache), ".x{width:4px;color:#abc}");
+    assertEquals(cache.misses(), 1);
+    assertEquals(cache.hits(), 0);
+
+    assertEquals(compile(SOURCE, files, opts, cache), ".x{width:4px;color:#abc}");
+    assertEquals(cache.misses(), 1);
+    assertEquals(cache.hits(), 1);
+
+    // Different options or source must not share an entry.
+    assertEquals(compile(SOURCE, files, new LessOptions(false), cache), ".x {\n  width: 4px;\n  color: #abc;\n}\n");
+    assertEquals(compile(SOURCE + ".y { top: 0; }", files, opts, cache), ".x{width:4px;color:#abc}.y{top:0}");
+    assertEquals(cache.misses(), 3);
+    assertEquals(cache.size(), 3);
+  }
+
+  @Test
+  public void testInvalidation() throws LessException {
+    Map<Path, String> files = buildMap();
+    OutputCache cache = new OutputCache();
+    LessOptions opts = new LessOptions(true);
+    compile(SOURCE, files, opts, cache);
+
+    // Changing a transitively-imported file invalidates the entry.
+    files.put(path("colors.less"), "@color: #def;");
+    assertEquals(compile(SOURCE, files, opts, cache), ".x{width:4px;color:#def}");
+    assertEquals(cache.invalidations(), 1);
+    assertEquals(cache.misses(), 2);
+
+    assertEquals(compile(SOURCE, files, opts, cache), ".x{width:4px;color:#def}");
+    assertEquals(cache.hits(), 1);
+  }
+
+  @Test
+  public void testEviction() throws LessException {
+    Map<Path, String> files = buildMap();
+    OutputCache cache = new OutputCache(2);
+    LessOptions opts = new LessOptions(true);
+    for (int i = 0; i < 4; i++) {
+      compile(".a" + i + " { top: 0; }", files, opts, cache);
+    }
+    assertEquals(cache.size(), 2);
+    assertEquals(cache.evictions(), 2);
+
+    // Most recently used entries are retained.
+    compile(".a3 { top: 0; }", files, opts, cache);
+    assertEquals(cache.hits(), 1);
+  }
+
+  private static String compile(String source, Map<Path, String> files, LessOptions opts, OutputCache cache)
+      throws LessException {
+    LessContext ctx = new LessContext(opts, new HashMapLessLoader(files));
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return COMPILER.compile(source, ctx, path("main.less"), cache);
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+  private static Map<Path, String> buildMap() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@import 'colors.less';");
+    map.put(path("colors.less"), "@color: #abc;");
+    return map;
+  }
+
+}
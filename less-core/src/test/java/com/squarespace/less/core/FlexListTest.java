@@ -160,6 +160,36 @@ public class FlexListTest {
     assertEquals(list1, expected);
   }
 
+  @Test
+  public void testCopyOnWrite() {
+    FlexList<Object> abc = FlexList.<Object>create(new Object[] { 'a', 'b', 'c' });
+
+    // Changes to a copy are not seen by the original, or other copies.
+    FlexList<Object> list1 = ALPHA3.copy();
+    FlexList<Object> list2 = list1.copy();
+    list1.set(0, 'x');
+    list2.splice(1, 1, DIGIT2);
+    assertEquals(list1, FlexList.<Object>create(new Object[] { 'x', 'b', 'c' }));
+    assertEquals(list2, FlexList.<Object>create(new Object[] { 'a', 1, 2, 'c' }));
+    assertEquals(ALPHA3, abc);
+
+    // Changes to the original are not seen by a copy.
+    FlexList<Object> original = abc.copy();
+    FlexList<Object> copy = original.copy();
+    original.pop();
+    original.push('z');
+    original.set(0, 'a');
+    original.append('w');
+    assertEquals(original, FlexList.<Object>create(new Object[] { 'a', 'b', 'z', 'w' }));
+    assertEquals(copy, abc);
+
+    original = abc.copy();
+    copy = original.copy();
+    original.clear();
+    original.append('q');
+    assertEquals(copy, abc);
+  }
+
   @Test
   public void testStackMethods() {
     FlexList<Object> list = new FlexList<>();
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.core;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.model.Property;
+import com.squarespace.less.model.Variable;
+import com.squarespace.less.parse.LessParser;
+import com.squarespace.less.parse.LessStream;
+import com.squarespace.less.parse.Parselets;
+
+
+public class InternTableTest {
+
+  @Test
+  public void testIntern() {
+    InternTable table = new InternTable();
+    String raw = "color: red; background-color: red;";
+    String first = table.intern(raw, 0, 5);
+    assertEquals(first, "color");
+    assertEquals(first.hashCode(), "color".hashCode());
+    assertSame(table.intern(raw, 23, 28), first);
+    assertSame(table.intern(raw, 7, 10), table.intern(raw, 30, 33));
+    assertSame(table.intern("color"), first);
+    assertEquals(table.size(), 2);
+  }
+
+  @Test
+  public void testGrow() {
+    InternTable table = new InternTable();
+    String[] names = new String[1000];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = table.intern("name-" + i);
+    }
+    for (int i = 0; i < names.length; i++) {
+      assertSame(table.intern("x name-" + i + " x", 2, 2 + names[i].length()), names[i]);
+    }
+    assertEquals(table.size(), names.length);
+
+    table.clear();
+    assertEquals(table.size(), 0);
+    String name = table.intern("x name-1 x", 2, 8);
+    assertNotSame(name, names[1]);
+    assertSame(table.intern("name-1"), name);
+    assertEquals(table.size(), 1);
+  }
+
+  @Test
+  public void testLongTokens() {
+    InternTable table = new InternTable();
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i <= InternTable.MAX_LENGTH; i++) {
+      buf.append('x');
+    }
+    String raw = " " + buf;
+    String first = table.intern(raw, 1, raw.length());
+    assertEquals(first, buf.toString());
+    assertNotSame(table.intern(raw, 1, raw.length()), first);
+    assertEquals(table.size(), 0);
+  }
+
+  @Test
+  public void testParsedNamesShared() throws LessException {
+    LessParser parser = new LessParser(new LessContext());
+    Property color = (Property) new LessStream(parser, "color: red").parse(Parselets.PROPERTY);
+    Property other = (Property) new LessStream(parser, "color: blue").parse(Parselets.PROPERTY);
+    assertSame(other.name(), color.name());
+
+    Variable var = (Variable) new LessStream(parser, "@foo + 1").parse(Parselets.VARIABLE);
+    Variable indirect = (Variable) new LessStream(parser, "@@foo").parse(Parselets.VARIABLE);
+    assertEquals(var.name(), "@foo");
+    assertEquals(indirect.repr(), "@@foo");
+    assertSame(((Variable) new LessStream(parser, "@foo;").parse(Parselets.VARIABLE)).name(), var.name());
+  }
+
+}
@@ -121,6 +121,25 @@ public class StreamTest {
     assertEquals(stm.getCharOffset(), 3);
   }
 
+  @Test
+  public void testLineOffsets() {
+    Stream stm = new Stream("ab\n\ncd\n");
+    int[] lines = new int[] { 0, 0, 0, 1, 2, 2, 2, 3 };
+    int[] chars = new int[] { 0, 1, 2, 0, 0, 1, 2, 0 };
+    for (int i = lines.length - 1; i >= 0; i--) {
+      assertEquals(stm.lineOffset(i), lines[i]);
+      assertEquals(stm.charOffset(i), chars[i]);
+    }
+
+    // Restoring a mark moves the derived line back with the index.
+    Mark mark = stm.mark();
+    stm.seek(6);
+    assertEquals(stm.getLineOffset(), 2);
+    stm.restore(mark);
+    assertEquals(stm.getLineOffset(), 0);
+    assertEquals(stm.getCharOffset(), 0);
+  }
+
   @Test
   public void testSeek1() {
     Stream stm = new Stream("abc");
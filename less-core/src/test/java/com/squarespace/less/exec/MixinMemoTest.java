@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.LessUtils;
+
+
+public class MixinMemoTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testPure() throws LessException {
+    String source = ".m(@a; @b: 2) { width: @a; height: @b; .n { top: @a * @b; } }\n"
+        + ".x { .m(1); } .y { .m(1); } .z { .m(1; 3); } .w { .m(1) !important; }\n";
+    LessContext ctx = context(true);
+    assertEquals(compile(source, ctx), ".x{width:1;height:2}.x .n{top:2}.y{width:1;height:2}.y .n{top:2}"
+        + ".z{width:1;height:3}.z .n{top:3}.w{width:1 !important;height:2 !important}.w .n{top:2 !important}");
+    assertEquals(ctx.mixinMemo().hits(), 1);
+  }
+
+  @Test
+  public void testArguments() throws LessException {
+    // Arguments which compare equal but render differently are distinct calls.
+    String source = ".m(@a) { content: @a; }\n"
+        + ".x { .m('a'); .m(\"a\"); .m('a'); }\n";
+    LessContext ctx = context(true);
+    assertEquals(compile(source, ctx), ".x{content:\"a\";content:'a'}");
+    assertEquals(ctx.mixinMemo().hits(), 1);
+  }
+
+  @Test
+  public void testGuard() throws LessException {
+    String source = ".m(@a) when (@a > 1) { width: @a; }\n"
+        + ".m(@a) { height: @a; }\n"
+        + ".x { .m(1); } .y { .m(1); .m(2); }\n";
+    LessContext ctx = context(true);
+    assertEquals(compile(source, ctx), ".x{height:1}.y{height:1;width:2;height:2}");
+    assertEquals(ctx.mixinMemo().hits(), 2);
+  }
+
+  @Test
+  public void testCallerScope() throws LessException {
+    String source = "@g: 0;\n"
+        + ".m() { width: @w; }\n"
+        + ".n() { top: @g; }\n"
+        + ".o() { .m(); }\n"
+        + ".p() { @v: 3; left: @v; }\n"
+        + ".x { @w: 1; .m(); .n(); .z { .o(); } .p(); }\n"
+        + ".y { @w: 2; .m(); .n(); .z { .o(); } .p(); }\n";
+    LessContext ctx = context(true);
+    assertEquals(compile(source, ctx), ".x{width:1;top:0;left:3}.x .z{width:1}.y{width:2;top:0;left:3}.y .z{width:2}");
+
+    // Only the mixin defining its own variable is reused.
+    assertEquals(ctx.mixinMemo().hits(), 1);
+  }
+
+  @Test
+  public void testDetachedRuleset() throws LessException {
+    String source = ".m(@r) { @r(); }\n"
+        + ".x { @w: 1; @r: { width: @w; }; .m(@r); }\n"
+        + ".y { @w: 2; @r: { width: @w; }; .m(@r); }\n";
+    LessContext ctx = context(true);
+    assertEquals(compile(source, ctx), ".x{width:1}.y{width:2}");
+    assertEquals(ctx.mixinMemo().hits(), 0);
+  }
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      String expected = compile(source, lessRoot, false);
+      assertEquals(compile(source, lessRoot, true), expected, lessPath.toString());
+    }
+  }
+
+  private static String compile(String source, Path importRoot, boolean memo) throws LessException {
+    LessContext ctx = context(memo);
+    ctx.options().addImportPath(importRoot.toString());
+    ctx.options().strict(!source.contains("strict=false"));
+    return COMPILER.compile(source, ctx);
+  }
+
+  private static String compile(String source, LessContext ctx) throws LessException {
+    return COMPILER.compile(source, ctx, Paths.get("main.less"));
+  }
+
+  private static LessContext context(boolean memo) {
+    LessOptions opts = new LessOptions(true);
+    opts.mixinMemo(memo);
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
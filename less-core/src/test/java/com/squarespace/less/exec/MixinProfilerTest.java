@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.exec.MixinProfiler.MixinProfile;
+
+
+public class MixinProfilerTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = ".inner(@a) when (@a > 1) { width: @a; }\n"
+      + ".inner(@a) when (@a <= 1) { height: @a; }\n"
+      + ".outer(@a) { .inner(@a); .inner(@a + 1); }\n"
+      + ".util { top: 0; }\n"
+      + ".x { .outer(1); .util; }\n";
+
+  @Test
+  public void testProfile() throws LessException {
+    MixinProfiler profiler = new MixinProfiler();
+    String result = compile(SOURCE, profiler);
+    assertEquals(result, ".util{top:0}.x{height:1;width:2;top:0}");
+
+    List<MixinProfile> profiles = profiler.profiles();
+    assertEquals(profiles.size(), 4);
+    MixinProfile outer = find(profiles, ".outer() (main.less:3)");
+    assertEquals(outer.calls(), 1);
+    assertEquals(outer.guardRejections(), 0);
+    assertTrue(outer.totalTimeMs() >= outer.selfTimeMs());
+
+    // Each of the two calls matches both definitions, but only one guard passes.
+    MixinProfile first = find(profiles, ".inner() (main.less:1)");
+    assertEquals(first.calls(), 1);
+    assertEquals(first.guardRejections(), 1);
+    MixinProfile second = find(profiles, ".inner() (main.less:2)");
+    assertEquals(second.calls(), 1);
+    assertEquals(second.guardRejections(), 1);
+
+    assertEquals(find(profiles, ".util (main.less:4)").calls(), 1);
+
+    // Self times are ordered highest first.
+    for (int i = 1; i < profiles.size(); i++) {
+      assertTrue(profiles.get(i - 1).selfTimeMs() >= profiles.get(i).selfTimeMs());
+    }
+  }
+
+  @Test
+  public void testAccumulates() throws LessException {
+    MixinProfiler profiler = new MixinProfiler();
+    compile(SOURCE, profiler);
+    compile(SOURCE, profiler);
+    assertEquals(find(profiler.profiles(), ".outer() (main.less:3)").calls(), 2);
+
+    profiler.reset();
+    assertEquals(profiler.profiles().size(), 0);
+  }
+
+  @Test
+  public void testRecursion() throws LessException {
+    MixinProfiler profiler = new MixinProfiler();
+    compile(".loop(@i) when (@i > 0) { .loop(@i - 1); }\n.x { .loop(3); }\n", profiler);
+    MixinProfile loop = find(profiler.profiles(), ".loop() (main.less:1)");
+    assertEquals(loop.calls(), 3);
+    assertEquals(loop.guardRejections(), 1);
+
+    // Recursive calls are counted once in the inclusive time.
+    assertTrue(loop.totalTimeMs() >= loop.selfTimeMs());
+    String stacks = profiler.collapsedStacks();
+    assertEquals(stacks.split("\n").length, 3, stacks);
+    assertTrue(stacks.startsWith(".loop()_(main.less:1);.loop()_(main.less:1);.loop()_(main.less:1) "), stacks);
+    assertTrue(stacks.contains("\n.loop()_(main.less:1) "), stacks);
+  }
+
+  @Test
+  public void testReport() throws LessException {
+    MixinProfiler profiler = new MixinProfiler();
+    compile(SOURCE, profiler);
+    String[] lines = profiler.report(2).split("\n");
+    assertEquals(lines.length, 3);
+    assertTrue(lines[0].contains("self ms"), lines[0]);
+  }
+
+  @Test
+  public void testDisabled() throws LessException {
+    assertEquals(compile(SOURCE, null), ".util{top:0}.x{height:1;width:2;top:0}");
+  }
+
+  private static MixinProfile find(List<MixinProfile> profiles, String key) {
+    for (MixinProfile profile : profiles) {
+      if (profile.key().equals(key)) {
+        return profile;
+      }
+    }
+    throw new AssertionError("no profile for " + key + " in " + profiles.size() + " profiles");
+  }
+
+  private static String compile(String source, MixinProfiler profiler) throws LessException {
+    LessContext ctx = new LessContext(new LessOptions(true));
+    ctx.setFunctionTable(COMPILER.functionTable());
+    ctx.setMixinProfiler(profiler);
+    return COMPILER.compile(source, ctx, Paths.get("main.less"));
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+/**
+ * Parses each test suite stylesheet once and evaluates the shared tree from
+ * many threads at once, verifying evaluation never modifies the parsed tree.
+ */
+public class SharedStylesheetTest extends LessSuiteBase {
+
+  private static final int THREADS = 4;
+
+  private static final int RENDERS = 3;
+
+  private final LessCompiler compiler = new LessCompiler();
+
+  @Test
+  public void testConcurrentEvaluation() throws Exception {
+    Path rootPath = testSuiteRoot();
+    Path lessRoot = rootPath.resolve("less");
+    Path cssRoot = rootPath.resolve("css");
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    int failures = 0;
+    try {
+      for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+        String fileName = "less/" + lessPath.getFileName();
+        final LessOptions opts = new LessOptions();
+        opts.addImportPath(lessRoot.toString());
+        final Stylesheet sheet = compiler.parse(LessUtils.readFile(lessPath), newContext(opts));
+        FlexList<Node> rules = sheet.block().rules();
+        int size = rules.size();
+        for (int i = 0; i < size; i++) {
+          Node rule = rules.get(i);
+          if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+            opts.strict(false);
+          }
+        }
+        String before = sheet.repr();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS * RENDERS; i++) {
+          results.add(executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              return compiler.render(sheet, newContext(opts));
+            }
+          }));
+        }
+
+        String[] parts = lessPath.getFileName().toString().split("\\.(?=[^\\.]+$)");
+        Path cssPath = cssRoot.resolve(parts[0] + ".css").normalize();
+        if (!cssPath.toFile().exists()) {
+          continue;
+        }
+        String expected = LessUtils.readFile(cssPath);
+        for (Future<String> result : results) {
+          String diff = diff(expected, result.get());
+          if (diff != null) {
+            logFailure("Shared Stylesheet", ++failures, "Differences detected for ", fileName, "\n", diff);
+            break;
+          }
+        }
+        if (!before.equals(sheet.repr())) {
+          logFailure("Shared Stylesheet", ++failures, "Parsed tree was modified for ", fileName);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    if (failures > 0) {
+      Assert.fail(failures + " tests failed.");
+    }
+  }
+
+  private LessContext newContext(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(compiler.functionTable());
+    return ctx;
+  }
+
+}
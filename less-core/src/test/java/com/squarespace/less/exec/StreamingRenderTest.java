@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+/**
+ * Verifies that streaming output matches the output rendered to a string.
+ */
+public class StreamingRenderTest extends LessSuiteBase {
+
+  private final LessCompiler compiler = new LessCompiler();
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    int failures = 0;
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String fileName = "less/" + lessPath.getFileName();
+      LessOptions opts = new LessOptions();
+      opts.addImportPath(lessRoot.toString());
+      Stylesheet sheet = compiler.parse(LessUtils.readFile(lessPath), newContext(opts));
+      FlexList<Node> rules = sheet.block().rules();
+      int size = rules.size();
+      for (int i = 0; i < size; i++) {
+        Node rule = rules.get(i);
+        if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+          opts.strict(false);
+        }
+      }
+
+      for (boolean compress : new boolean[] { false, true }) {
+        opts.compress(compress);
+        String expected = compiler.render(sheet, newContext(opts));
+        StringBuilder actual = new StringBuilder();
+        compiler.render(sheet, newContext(opts), actual);
+        String diff = diff(expected, actual.toString());
+        if (diff != null) {
+          logFailure("Streaming", ++failures, "Differences detected for ", fileName, "\n", diff);
+        }
+      }
+    }
+
+    if (failures > 0) {
+      Assert.fail(failures + " tests failed.");
+    }
+  }
+
+  @Test
+  public void testChunks() throws Exception {
+    String source = ".a { color: red; } @media print { .b { color: blue; } } .c { color: green; } @import 'c.css';";
+    LessOptions opts = new LessOptions(true);
+    CountingAppendable out = new CountingAppendable();
+    compiler.compile(source, newContext(opts), null, out);
+    assertEquals(out.buf.toString(), compiler.compile(source, newContext(opts)));
+    assertTrue(out.appends > 1, "expected output to be written incrementally");
+  }
+
+  @Test
+  public void testLeadingTopLevel() throws Exception {
+    // A leading comment or @charset is written with the first block, rather
+    // than holding back the rest of the output.
+    String[] sources = new String[] {
+      "/* license */ .a { color: red; } .b { color: blue; } .c { color: green; }",
+      "@charset 'utf-8'; .a { color: red; } .b { color: blue; } .c { color: green; }",
+      "@charset 'utf-8'; /* license */ @import 'a.css'; .a { color: red; } .b { color: blue; }"
+    };
+    for (String source : sources) {
+      for (boolean compress : new boolean[] { false, true }) {
+        LessOptions opts = new LessOptions(compress);
+        CountingAppendable out = new CountingAppendable();
+        compiler.compile(source, newContext(opts), null, out);
+        assertEquals(out.buf.toString(), compiler.compile(source, newContext(opts)), source);
+        assertTrue(out.appends > 1, "expected output to be written incrementally: " + source);
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedTopLevel() throws Exception {
+    // A top-level value or comment repeated after it has been written keeps
+    // its first position, where rendering to a string moves it to the last.
+    String source = "/* sep */ .a { color: red; } /* sep */ .b { color: blue; }";
+    StringBuilder out = new StringBuilder();
+    compiler.compile(source, newContext(new LessOptions()), null, out);
+    assertEquals(out.toString(), "/* sep */\n.a {\n  color: red;\n}\n.b {\n  color: blue;\n}\n");
+    assertEquals(compiler.compile(source, newContext(new LessOptions())),
+        ".a {\n  color: red;\n}\n/* sep */\n.b {\n  color: blue;\n}\n");
+
+    // A repeat of a node not yet written moves, as when rendering to a string.
+    source = "@import 'a.css'; @import 'b.css'; @import 'a.css'; .a { color: red; }";
+    out = new StringBuilder();
+    compiler.compile(source, newContext(new LessOptions()), null, out);
+    assertEquals(out.toString(), compiler.compile(source, newContext(new LessOptions())));
+  }
+
+  @Test
+  public void testWriteError() throws LessException {
+    Appendable out = new CountingAppendable() {
+      @Override
+      public Appendable append(CharSequence csq) throws IOException {
+        throw new IOException("disk full");
+      }
+    };
+    try {
+      compiler.compile(".a { color: red; }", newContext(new LessOptions()), null, out);
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals(e.getMessage(), "disk full");
+    }
+  }
+
+  private LessContext newContext(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(compiler.functionTable());
+    return ctx;
+  }
+
+  private static class CountingAppendable implements Appendable {
+
+    private final StringBuilder buf = new StringBuilder();
+
+    private int appends;
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      appends++;
+      buf.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      return append(csq.subSequence(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      return append(String.valueOf(c));
+    }
+
+  }
+
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static com.squarespace.less.core.SyntaxErrorMaker.importError;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessLoader;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.TimestampedLessLoader;
+
+
+public class ImportCacheTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@import 'base.less'; .ruleset { color: @color; font-size: @size; }";
+
+  private static final String EXPECTED = ".child{font-size:12px}.ruleset{color:#abc;font-size:12px}";
+
+  @Test
+  public void testReuse() throws LessException {
+    TestLoader loader = new TestLoader(buildMap());
+    ImportCache cache = new LruImportCache();
+
+    LessContext ctx = newContext(loader, cache);
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("foo.less")), EXPECTED);
+    assertEquals(loader.loads, 2);
+    assertEquals(cache.size(), 2);
+    assertEquals(ctx.stats().fileReads(), 2);
+
+    // Second compile replays both imports from the cache without reading them.
+    ctx = newContext(loader, cache);
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("foo.less")), EXPECTED);
+    assertEquals(loader.loads, 2);
+    assertEquals(ctx.stats().importCount(), 2);
+    assertEquals(ctx.stats().fileReads(), 0);
+  }
+
+  @Test
+  public void testModified() throws LessException {
+    TestLoader loader = new TestLoader(buildMap());
+    ImportCache cache = new LruImportCache();
+    COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less"));
+
+    // Touching a file without changing it keeps the cached rules.
+    loader.touch("child.less");
+    assertEquals(COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less")), EXPECTED);
+    assertEquals(loader.loads, 3);
+    assertEquals(cache.get(path("child.less")).lastModified(), loader.lastModified(path("child.less")));
+
+    // Changing the file forces it to be parsed again.
+    loader.put("child.less", ".child { font-size: 14px; }\n@size: 14px;");
+    String result = COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less"));
+    assertEquals(result, ".child{font-size:14px}.ruleset{color:#abc;font-size:14px}");
+  }
+
+  @Test
+  public void testUnknownModified() throws LessException {
+    TestLoader loader = new TestLoader(buildMap());
+    loader.unknownModified = true;
+    ImportCache cache = new LruImportCache();
+    COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less"));
+
+    // Without a modification time the content fingerprint is compared.
+    loader.put("child.less", ".child { font-size: 14px; }\n@size: 14px;");
+    String result = COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less"));
+    assertEquals(result, ".child{font-size:14px}.ruleset{color:#abc;font-size:14px}");
+  }
+
+  @Test
+  public void testImportOnce() throws LessException {
+    TestLoader loader = new TestLoader(buildMap());
+    ImportCache cache = new LruImportCache();
+    COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less"));
+
+    // The cached import of child.less inside base.less must be suppressed
+    // when the importing stylesheet has already imported it.
+    String source = "@import 'child.less'; " + SOURCE;
+    String expected = ".child{font-size:12px}.ruleset{color:#abc;font-size:12px}";
+    assertEquals(COMPILER.compile(source, newContext(loader, cache), path("foo.less")), expected);
+    assertEquals(COMPILER.compile(source, newContext(loader, null), path("foo.less")), expected);
+  }
+
+  @Test
+  public void testUncacheable() throws LessException {
+    Map<Path, String> map = buildMap();
+    map.put(path("vars.less"), "@name: 'child'; @import '@{name}.less';");
+    map.put(path("nested.less"), ".parent { @import 'other.less'; }");
+    map.put(path("other.less"), ".other { color: red; }");
+    TestLoader loader = new TestLoader(map);
+    ImportCache cache = new LruImportCache();
+
+    String source = "@import 'vars.less'; @import 'nested.less';";
+    String result = COMPILER.compile(source, newContext(loader, cache), path("foo.less"));
+    assertEquals(result, ".child{font-size:12px}.parent .other{color:red}");
+    assertNull(cache.get(path("vars.less")));
+    assertNull(cache.get(path("nested.less")));
+    assertNotNull(cache.get(path("child.less")));
+    assertNotNull(cache.get(path("other.less")));
+  }
+
+  @Test
+  public void testEviction() throws LessException {
+    TestLoader loader = new TestLoader(buildMap());
+    LruImportCache cache = new LruImportCache(1);
+    assertEquals(COMPILER.compile(SOURCE, newContext(loader, cache), path("foo.less")), EXPECTED);
+    assertEquals(cache.size(), 1);
+    assertEquals(cache.evictions(), 1);
+    // base.less is stored once it is loaded, before the file it imports.
+    assertNotNull(cache.get(path("child.less")));
+  }
+
+  @Test
+  public void testSharedLoads() throws Exception {
+    // Compiles running at once which import the same files load each one once.
+    final TestLoader loader = new SlowLoader(buildMap());
+    final ImportCache cache = new LruImportCache();
+    final LessContext[] contexts = new LessContext[4];
+    final String[] results = new String[contexts.length];
+    final CountDownLatch ready = new CountDownLatch(contexts.length);
+    Thread[] threads = new Thread[contexts.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      contexts[i] = newContext(loader, cache);
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            ready.countDown();
+            ready.await();
+            results[index] = COMPILER.compile(SOURCE, contexts[index], path("foo.less"));
+          } catch (InterruptedException | LessException e) {
+            results[index] = e.toString();
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    int fileReads = 0;
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+      assertEquals(results[i], EXPECTED);
+      fileReads += contexts[i].stats().fileReads();
+    }
+    assertEquals(loader.loads, 2);
+    assertEquals(fileReads, 2);
+  }
+
+  private static LessContext newContext(LessLoader loader, ImportCache cache) {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    opts.importOnce(true);
+    LessContext ctx = new LessContext(opts, loader);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    ctx.setImportCache(cache);
+    return ctx;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+  private static Map<Path, String> buildMap() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@color: #abc; @import 'child.less';");
+    map.put(path("child.less"), ".child { font-size: 12px; }\n@size: 12px;");
+    return map;
+  }
+
+  /**
+   * Loader which takes a while to load each file, so concurrent compiles
+   * overlap.
+   */
+  private static class SlowLoader extends TestLoader {
+
+    SlowLoader(Map<Path, String> storage) {
+      super(storage);
+    }
+
+    @Override
+    public String load(Path path) throws LessException {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (this) {
+        return super.load(path);
+      }
+    }
+
+  }
+
+  /**
+   * In-memory loader which counts loads and tracks modification times.
+   */
+  private static class TestLoader implements TimestampedLessLoader {
+
+    private final Map<Path, String> storage;
+
+    private final Map<Path, Long> modified = new HashMap<>();
+
+    private boolean unknownModified;
+
+    private int loads;
+
+    private long clock = 1000;
+
+    TestLoader(Map<Path, String> storage) {
+      this.storage = storage;
+      for (Path path : storage.keySet()) {
+        modified.put(path, clock);
+      }
+    }
+
+    void put(String name, String source) {
+      storage.put(path(name), source);
+      touch(name);
+    }
+
+    void touch(String name) {
+      clock += 1000;
+      modified.put(path(name), clock);
+    }
+
+    @Override
+    public boolean exists(Path path) {
+      return storage.containsKey(path);
+    }
+
+    @Override
+    public String load(Path path) throws LessException {
+      String result = storage.get(path);
+      if (result == null) {
+        throw new LessException(importError(path, "File cannot be found"));
+      }
+      loads++;
+      return result;
+    }
+
+    @Override
+    public Path normalize(Path path) {
+      return (path == null) ? null : path.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public long lastModified(Path path) {
+      Long result = modified.get(path);
+      return (unknownModified || result == null) ? -1 : result;
+    }
+
+  }
+
+}
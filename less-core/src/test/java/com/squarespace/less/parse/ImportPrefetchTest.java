@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.squarespace.less.HashMapLessLoader;
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessLoader;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+
+
+public class ImportPrefetchTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private ExecutorService executor;
+
+  @BeforeClass
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testSuiteUnchanged() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      LessOptions opts = new LessOptions();
+      opts.addImportPath(lessRoot.toString());
+      assertEquals(result(source, new LessContext(opts), executor),
+          result(source, new LessContext(opts), null), lessPath.toString());
+    }
+  }
+
+  @Test
+  public void testManyImports() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 60; i++) {
+      map.put(path("f" + i + ".less"), "@import 'common.less'; .r" + i + " { width: (@base * " + i + "); }");
+      source.append("@import 'f").append(i).append(".less';\n");
+    }
+    map.put(path("common.less"), "@base: 2px; .common { color: red; }");
+    source.append(".last { width: @base; }");
+
+    ThreadLoader loader = new ThreadLoader(map);
+    String expected = compile(source.toString(), context(new HashMapLessLoader(map)), null);
+    assertEquals(compile(source.toString(), context(loader), executor), expected);
+    assertTrue(expected.startsWith(".common{color:red}.r0{"), expected);
+    assertTrue(expected.endsWith(".r59{width:118px}.last{width:2px}"), expected);
+
+    // Every file was read by the executor's threads.
+    assertFalse(loader.threads.contains(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void testUnparseableImports() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("vars.less"), "@name: 'child'; @import '@{name}.less';");
+    map.put(path("nested.less"), ".parent { @import 'child.less'; }");
+    map.put(path("child.less"), ".child { color: red; }");
+    map.put(path("media.less"), "@import 'child.less' screen;");
+    String source = "@import 'nested.less'; @import 'vars.less'; @import 'media.less'; @import 'child.less';";
+    assertSame(map, source);
+  }
+
+  @Test
+  public void testErrors() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("a.less"), "@import 'b.less';");
+    map.put(path("b.less"), "@import 'a.less';");
+    map.put(path("bad.less"), ".x { color: ; ");
+    map.put(path("ok.less"), ".ok { color: red; }");
+    assertSameError(map, "@import 'ok.less'; @import 'a.less';");
+    assertSameError(map, "@import 'ok.less'; @import 'bad.less'; @import 'a.less';");
+  }
+
+  @Test
+  public void testCache() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@color: #abc; @import 'child.less';");
+    map.put(path("child.less"), ".child { color: @color; }");
+    String source = "@import 'base.less'; .a { color: @color; }";
+    String expected = ".child{color:#abc}.a{color:#abc}";
+
+    ImportCache cache = new LruImportCache();
+    for (int i = 0; i < 3; i++) {
+      LessContext ctx = context(new HashMapLessLoader(map));
+      ctx.setImportCache(cache);
+      assertEquals(compile(source, ctx, executor), expected);
+    }
+    assertEquals(cache.size(), 2);
+  }
+
+  private void assertSame(Map<Path, String> map, String source) throws LessException {
+    LessLoader loader = new HashMapLessLoader(map);
+    assertEquals(compile(source, context(loader), executor), compile(source, context(loader), null));
+  }
+
+  private void assertSameError(Map<Path, String> map, String source) {
+    LessLoader loader = new HashMapLessLoader(map);
+    assertEquals(error(source, context(loader, false), executor), error(source, context(loader, false), null));
+  }
+
+  private static String error(String source, LessContext ctx, ExecutorService executor) {
+    String result = result(source, ctx, executor);
+    assertTrue(result.startsWith("error: "), result);
+    return result;
+  }
+
+  private static String result(String source, LessContext ctx, ExecutorService executor) {
+    try {
+      return compile(source, ctx, executor);
+    } catch (LessException e) {
+      return "error: " + e.getMessage();
+    }
+  }
+
+  private static String compile(String source, LessContext ctx, ExecutorService executor) throws LessException {
+    ctx.setFunctionTable(COMPILER.functionTable());
+    ctx.setImportExecutor(executor);
+    return COMPILER.compile(source, ctx, path("foo.less"));
+  }
+
+  private static LessContext context(LessLoader loader) {
+    return context(loader, true);
+  }
+
+  private static LessContext context(LessLoader loader, boolean importOnce) {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    opts.importOnce(importOnce);
+    return new LessContext(opts, loader);
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Records the names of the threads that load files.
+   */
+  private static class ThreadLoader extends HashMapLessLoader {
+
+    private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+    ThreadLoader(Map<Path, String> storage) {
+      super(storage);
+    }
+
+    @Override
+    public String load(Path path) throws LessException {
+      threads.add(Thread.currentThread().getName());
+      return super.load(path);
+    }
+
+  }
+
+}
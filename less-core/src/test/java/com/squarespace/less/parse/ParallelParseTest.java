@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.squarespace.less.HashMapLessLoader;
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.ExecEnv;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Node;
+
+
+public class ParallelParseTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private ForkJoinPool pool;
+
+  @BeforeClass
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testSuiteUnchanged() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    int parallel = 0;
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      LessOptions opts = options(16);
+      opts.addImportPath(lessRoot.toString());
+      assertEquals(result(source, opts, pool), result(source, opts, null), lessPath.toString());
+      if (parseChunks(source, opts) != null) {
+        parallel++;
+      }
+    }
+    assertTrue(parallel > 0);
+  }
+
+  @Test
+  public void testBoundaries() {
+    String source = ".a { b: \"}\"; }\n/* ; } */ .b { c: url(d;e}.png); } // }\n@f: 1;\n.g { h: 'i;'; }";
+    int[] bounds = ParallelParse.boundaries(source, 1);
+    assertEquals(bounds, new int[] {
+      0,
+      source.indexOf(" }") + 2,
+      source.indexOf("png); }") + 7,
+      source.indexOf("1;") + 2,
+      source.length()
+    });
+
+    // Chunks hold at least the given number of characters.
+    assertEquals(ParallelParse.boundaries(source, 20), new int[] {
+      0, source.indexOf("png); }") + 7, source.length()
+    });
+
+    // A detached ruleset ends at its semicolon.
+    source = "@r: { a: b; };\n.c { d: e; }";
+    assertEquals(ParallelParse.boundaries(source, 1), new int[] { 0, source.indexOf("};") + 2, source.length() });
+
+    // Unbalanced brackets leave the source whole.
+    source = ".a { b: c; } } .d { e: f; }";
+    assertEquals(ParallelParse.boundaries(source, 1), new int[] { 0, source.length() });
+  }
+
+  @Test
+  public void testOffsets() throws LessException {
+    String source = ".a {\n  color: red;\n}\n\n@b: 12px;\n  .c { width: @b; }\n/* comment */\n.d { e: f; }\n";
+    LessOptions opts = options(1);
+    Block parallel = parseChunks(source, opts);
+    assertNotNull(parallel);
+
+    Block sequential = COMPILER.parse(source, new LessContext(opts)).block();
+    FlexList<Node> expected = sequential.rules();
+    FlexList<Node> actual = parallel.rules();
+    assertEquals(actual.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(actual.get(i), expected.get(i));
+      assertEquals(actual.get(i).lineOffset(), expected.get(i).lineOffset());
+      assertEquals(actual.get(i).charOffset(), expected.get(i).charOffset());
+    }
+  }
+
+  @Test
+  public void testImports() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("a.less"), "@color: red; .a { color: @color; }");
+    map.put(path("b.less"), ".b { width: @size; }");
+    String source = "@import 'a.less';\n.x { color: @color; }\n@size: 1px;\n@import 'b.less';\n@import 'a.less';";
+    LessOptions opts = options(8);
+    opts.importOnce(true);
+
+    String expected = ".a{color:red}.x{color:red}.b{width:1px}";
+    assertEquals(compile(source, new LessContext(opts, new HashMapLessLoader(map)), pool), expected);
+    assertEquals(compile(source, new LessContext(opts, new HashMapLessLoader(map)), null), expected);
+  }
+
+  @Test
+  public void testFallback() throws LessException {
+    LessOptions opts = options(8);
+
+    // Interpolated and nested imports depend on the compile.
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("a.less"), ".a { color: red; }");
+    String source = ".x { y: z; }\n@name: 'a';\n@import '@{name}.less';\n.p { @import 'a.less'; }";
+    assertNull(parseChunks(source, opts));
+    assertEquals(compile(source, new LessContext(opts, new HashMapLessLoader(map)), pool),
+        ".x{y:z}.a{color:red}.p .a{color:red}");
+
+    // A chunk which fails to parse is parsed again to report the error.
+    source = ".a { color: red; }\n.b { color: blue; }\n.c { color: red; } ~~~;\n.d { color: green; }";
+    assertNull(parseChunks(source, opts));
+    String error = result(source, opts, pool);
+    assertTrue(error.startsWith("error: "), error);
+    assertEquals(error, result(source, opts, null));
+  }
+
+  private Block parseChunks(String source, LessOptions opts) throws LessException {
+    LessContext ctx = new LessContext(opts);
+    ctx.setParsePool(pool);
+    LessParser parser = new LessParser(ctx);
+    LessStream stm = parser.push(source, path("foo.less"), new ExecEnv(ctx));
+    return ParallelParse.parse(stm);
+  }
+
+  private static String result(String source, LessOptions opts, ForkJoinPool pool) {
+    try {
+      return compile(source, new LessContext(opts), pool);
+    } catch (LessException e) {
+      return "error: " + e.getMessage();
+    }
+  }
+
+  private static String compile(String source, LessContext ctx, ForkJoinPool pool) throws LessException {
+    ctx.setFunctionTable(COMPILER.functionTable());
+    ctx.setParsePool(pool);
+    return COMPILER.compile(source, ctx, path("foo.less"));
+  }
+
+  private static LessOptions options(int chunkSize) {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    opts.parseChunkSize(chunkSize);
+    return opts;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+}
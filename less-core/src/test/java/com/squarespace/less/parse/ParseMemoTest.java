@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.Buffer;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Node;
+
+
+public class ParseMemoTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSuiteUnchanged() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      String expected = parse(source, lessRoot, 0);
+      assertEquals(parse(source, lessRoot, 1024), expected, lessPath.toString());
+
+      // A tiny table constantly replaces its entries, which must also be safe.
+      assertEquals(parse(source, lessRoot, 2), expected, lessPath.toString());
+    }
+  }
+
+  @Test
+  public void testReplay() throws LessException {
+    // The mixin definition parselet parses the arguments and fails on the
+    // missing block, leaving the ruleset parselet to retry the same block.
+    LessStream stm = stream(".a { .mixin(1); }\n.b { .c() { color: red; } }", 64);
+    Node sheet = stm.parse(Parselets.STYLESHEET);
+    assertTrue(stm.memo().hits() > 0);
+    assertEquals(repr(sheet), repr(stream(".a { .mixin(1); }\n.b { .c() { color: red; } }", 0)
+        .parse(Parselets.STYLESHEET)));
+  }
+
+  @Test
+  public void testFailureReplay() throws LessException {
+    LessStream stm = stream("{ color: red; ", 64);
+    Mark mark = stm.mark();
+    assertNull(stm.parse(Parselets.BLOCK));
+    assertEquals(stm.position(), mark.index);
+    int misses = stm.memo().misses();
+    assertNull(stm.parse(Parselets.BLOCK));
+    assertEquals(stm.position(), mark.index);
+    assertEquals(stm.memo().misses(), misses);
+    assertTrue(stm.memo().hits() > 0);
+  }
+
+  @Test
+  public void testDisabled() {
+    assertNull(stream(".a { }", 0).memo());
+  }
+
+  @Test
+  public void testCapacity() {
+    assertEquals(new ParseMemo(1).capacity(), 2);
+    assertEquals(new ParseMemo(1000).capacity(), 1024);
+    assertEquals(new ParseMemo(1024).capacity(), 1024);
+  }
+
+  private static String parse(String source, Path importRoot, int memoSize) {
+    LessOptions opts = new LessOptions();
+    opts.addImportPath(importRoot.toString());
+    opts.parseMemoSize(memoSize);
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    try {
+      return repr(COMPILER.parse(source, ctx));
+    } catch (LessException e) {
+      return "error: " + e.getMessage();
+    }
+  }
+
+  private static LessStream stream(String source, int memoSize) {
+    LessOptions opts = new LessOptions();
+    opts.parseMemoSize(memoSize);
+    LessContext ctx = new LessContext(opts);
+    return new LessStream(new LessParser(ctx), source);
+  }
+
+  private static String repr(Node node) {
+    Buffer buf = new Buffer(2);
+    node.repr(buf);
+    return buf.toString();
+  }
+
+}
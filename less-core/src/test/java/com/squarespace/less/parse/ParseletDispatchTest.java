@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.model.Node;
+
+
+public class ParseletDispatchTest {
+
+  /**
+   * Inputs following the first character, chosen to get as far as possible
+   * into each kind of parselet.
+   */
+  private static final String[] SUFFIXES = new String[] {
+    "", "a", "1", "1px", "-1", "@x", "@{x}", "(1)", "{ a: 1; }", "/* x */", "// x\n", ":extend(.a);",
+    "'s'", "\"s\"", "`x`", "a/b", "x(1)", "a: 1;", ".m();", "+0-0F", "00 { }", " = 1"
+  };
+
+  @Test
+  public void testRegistered() throws Exception {
+    for (Field field : Parselets.class.getFields()) {
+      Parselet[] parselets = parselets(field);
+      if (parselets != null && parselets.length > 1) {
+        assertTrue(ParseletDispatch.isRegistered(parselets), field.getName() + " has no dispatch table");
+      }
+    }
+  }
+
+  @Test
+  public void testCandidatesPreserveOrder() {
+    Parselet[] candidates = ParseletDispatch.candidates(Parselets.PRIMARY_SUB, '@');
+    assertEquals(candidates.length, 4);
+    assertTrue(candidates[0] instanceof RuleParselet);
+    assertTrue(candidates[1] instanceof RulesetParselet);
+    assertTrue(candidates[2] instanceof RulesetCallParselet);
+    assertTrue(candidates[3] instanceof DirectiveParselet);
+
+    // Characters outside the table try every parselet.
+    assertTrue(ParseletDispatch.candidates(Parselets.PRIMARY_SUB, '\u00e9') == Parselets.PRIMARY_SUB);
+    assertEquals(ParseletDispatch.candidates(Parselets.LITERAL, '}').length, 0);
+  }
+
+  /**
+   * A parselet which declares it cannot start with a character must fail
+   * on any input starting with it, without moving the stream.
+   */
+  @Test
+  public void testSkippedParseletsNeverMatch() throws Exception {
+    LessContext ctx = new LessContext();
+    for (PredictiveParselet parselet : predictiveParselets()) {
+      for (char ch = 0; ch < 0x80; ch++) {
+        if (Character.isWhitespace(ch) || parselet.mayStartWith(ch)) {
+          continue;
+        }
+        for (String suffix : SUFFIXES) {
+          String raw = ch + suffix;
+          LessStream stm = new LessStream(new LessParser(ctx), raw);
+          Node result = null;
+          try {
+            result = parselet.parse(stm);
+          } catch (LessException e) {
+            fail(parselet.getClass().getSimpleName() + " raised an error on '" + raw + "'", e);
+          }
+          String msg = parselet.getClass().getSimpleName() + " matched '" + raw + "'";
+          assertNull(result, msg);
+          assertEquals(stm.position(), 0, msg);
+        }
+      }
+    }
+  }
+
+  private static List<PredictiveParselet> predictiveParselets() throws Exception {
+    List<PredictiveParselet> result = new ArrayList<>();
+    for (Field field : Parselets.class.getFields()) {
+      Parselet[] parselets = parselets(field);
+      if (parselets == null) {
+        continue;
+      }
+      for (Parselet parselet : parselets) {
+        if (parselet instanceof PredictiveParselet && !result.contains(parselet)) {
+          result.add((PredictiveParselet)parselet);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Parselet[] parselets(Field field) throws IllegalAccessException {
+    if (!Modifier.isStatic(field.getModifiers()) || field.getType() != Parselet[].class) {
+      return null;
+    }
+    return (Parselet[])field.get(null);
+  }
+
+}
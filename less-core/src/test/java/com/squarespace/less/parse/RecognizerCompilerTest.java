@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static com.squarespace.less.parse.Recognizers.FAIL;
+import static com.squarespace.less.parse.Recognizers.any;
+import static com.squarespace.less.parse.Recognizers.cardinality;
+import static com.squarespace.less.parse.Recognizers.characters;
+import static com.squarespace.less.parse.Recognizers.charRange;
+import static com.squarespace.less.parse.Recognizers.choice;
+import static com.squarespace.less.parse.Recognizers.decimal;
+import static com.squarespace.less.parse.Recognizers.hexdigit;
+import static com.squarespace.less.parse.Recognizers.literal;
+import static com.squarespace.less.parse.Recognizers.literalIgnoreCase;
+import static com.squarespace.less.parse.Recognizers.lookAhead;
+import static com.squarespace.less.parse.Recognizers.notAscii;
+import static com.squarespace.less.parse.Recognizers.notCharacters;
+import static com.squarespace.less.parse.Recognizers.sequence;
+import static com.squarespace.less.parse.Recognizers.whitespace;
+import static com.squarespace.less.parse.Recognizers.zeroOrMore;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.core.CharClass;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.parse.RecognizerCompiler.Dfa;
+import com.squarespace.less.parse.Recognizers.Recognizer;
+
+
+public class RecognizerCompilerTest extends LessSuiteBase {
+
+  private static final String ALPHABET = "aAfFgz09_-.#:%()@\\ +?=/;*~$^|{}<>!,progidU\u00e9\u00a0\u2003\n";
+
+  @Test
+  public void testCompiledPatterns() throws Exception {
+    check(RecognizerPatterns.CALL_NAME, RecognizerPatterns.buildCallName());
+    check(RecognizerPatterns.DIMENSION_VALUE, RecognizerPatterns.buildDimensionValue());
+    check(RecognizerPatterns.ELEMENT0, RecognizerPatterns.buildElement0());
+    check(RecognizerPatterns.ELEMENT1, RecognizerPatterns.buildElement1());
+    check(RecognizerPatterns.ELEMENT2, RecognizerPatterns.buildElement2());
+    check(RecognizerPatterns.ELEMENT3, RecognizerPatterns.buildElement3());
+    check(RecognizerPatterns.IDENTIFIER, RecognizerPatterns.buildIdentifier());
+  }
+
+  @Test
+  public void testLeaves() throws Exception {
+    checkTree(sequence(literalIgnoreCase("u+"), cardinality(hexdigit(), 1, 6), zeroOrMore(whitespace())));
+    checkTree(sequence(characters('#'), cardinality(cardinality(hexdigit(), 3, 3), 1, 2)));
+    checkTree(sequence(literal("url"), zeroOrMore(whitespace()), characters('(')));
+    checkTree(sequence(charRange('a', 'f'), zeroOrMore(notAscii()), characters(';')));
+    checkTree(sequence(zeroOrMore(notCharacters(';', '{', '}')), characters(';')));
+    checkTree(choice(decimal(), literal("progid")));
+  }
+
+  @Test
+  public void testLongestPrefix() {
+    // The DFA finds the longest match where the combinators give up, since the
+    // repetition consumes the character the last step needs.
+    Recognizer tree = sequence(characters('a'), zeroOrMore(notAscii()), any());
+    assertEquals(tree.match("a\u00e9", 0, 2), FAIL);
+    assertEquals(Recognizers.compile(tree).match("a\u00e9", 0, 2), 2);
+  }
+
+  @Test
+  public void testWideWhitespace() {
+    // The compiler relies on this list to find the classes of whitespace.
+    for (int i = 0x80; i <= Character.MAX_VALUE; i++) {
+      char ch = (char)i;
+      assertEquals(RecognizerCompiler.WIDE_WHITESPACE.indexOf(ch) != -1, CharClass.whitespace(ch), "char " + i);
+    }
+  }
+
+  @Test
+  public void testLookAhead() {
+    Recognizer pattern = RecognizerPatterns.ELEMENT3;
+    assertEquals(pattern.match(".@a", 0, 3), 1);
+    assertEquals(pattern.match("#@", 0, 2), 1);
+    assertEquals(pattern.match(".a", 0, 2), FAIL);
+    assertEquals(pattern.match(".@", 0, 1), FAIL);
+  }
+
+  @Test
+  public void testFallback() {
+    // Only a lookahead of one character ending the pattern can be compiled.
+    Recognizer pattern = sequence(lookAhead(characters('a')), any());
+    assertSame(Recognizers.compile(pattern), pattern);
+    pattern = sequence(characters('.'), lookAhead(literal("ab")));
+    assertSame(Recognizers.compile(pattern), pattern);
+    pattern = lookAhead(characters('a'));
+    assertSame(Recognizers.compile(pattern), pattern);
+
+    // Unknown recognizers are left as they are.
+    Recognizer custom = new Recognizer() {
+      @Override
+      public int match(CharSequence seq, int pos, int length) {
+        return pos;
+      }
+    };
+    pattern = sequence(characters('a'), custom);
+    assertSame(Recognizers.compile(pattern), pattern);
+  }
+
+  private void checkTree(Recognizer tree) throws Exception {
+    check(Recognizers.compile(tree), tree);
+  }
+
+  /**
+   * Compares the DFA with its tree on random strings and at every position
+   * of the test suite sources.
+   */
+  private void check(Recognizer compiled, Recognizer tree) throws Exception {
+    assertTrue(compiled instanceof Dfa);
+    Random random = new Random(1);
+    char[] buf = new char[16];
+    for (int i = 0; i < 50000; i++) {
+      int len = random.nextInt(buf.length);
+      for (int j = 0; j < len; j++) {
+        buf[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+      }
+      String str = new String(buf, 0, len);
+      int limit = len == 0 ? 0 : random.nextInt(len + 1);
+      assertEquals(compiled.match(str, 0, len), tree.match(str, 0, len), "'" + str + "'");
+      assertEquals(compiled.match(str, 0, limit), tree.match(str, 0, limit), "'" + str + "' to " + limit);
+    }
+
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      int len = source.length();
+      for (int pos = 0; pos < len; pos++) {
+        assertEquals(compiled.match(source, pos, len), tree.match(source, pos, len), lessPath + " at " + pos);
+      }
+    }
+  }
+
+}
@@ -26,6 +26,9 @@ import static com.squarespace.less.parse.RecognizerPatterns.ELEMENT1;
 import static com.squarespace.less.parse.Recognizers.FAIL;
 import static org.testng.Assert.assertEquals;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.testng.annotations.Test;
 
 import com.squarespace.less.parse.Recognizers.Recognizer;
@@ -138,6 +141,114 @@ public class RecognizerPatternsTest {
     assertEquals(FAIL, match(RecognizerPatterns.HEXCOLOR, "#12"));
   }
 
+  @Test
+  public void testDirective() {
+    assertEquals(10, match(RecognizerPatterns.DIRECTIVE, "@font-face {"));
+    assertEquals(6, match(RecognizerPatterns.DIRECTIVE, "@mediaScreen"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.DIRECTIVE, "@"));
+    assertEquals(FAIL, match(RecognizerPatterns.DIRECTIVE, "@Media"));
+  }
+
+  @Test
+  public void testKeyword() {
+    assertEquals(6, match(RecognizerPatterns.KEYWORD, "_a-1_b"));
+    assertEquals(8, match(RecognizerPatterns.KEYWORD, "-webkit-"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.KEYWORD, "1abc"));
+  }
+
+  @Test
+  public void testMixinName() {
+    assertEquals(6, match(RecognizerPatterns.MIXIN_NAME, ".mixin(1)"));
+    assertEquals(7, match(RecognizerPatterns.MIXIN_NAME, "#a\\2a b c"));
+    assertEquals(5, match(RecognizerPatterns.MIXIN_NAME, ".a\\.b"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.MIXIN_NAME, "."));
+    assertEquals(FAIL, match(RecognizerPatterns.MIXIN_NAME, "a.b"));
+  }
+
+  @Test
+  public void testOpacity() {
+    assertEquals(8, match(RecognizerPatterns.OPACITY, "opacity=50"));
+    assertEquals(8, match(RecognizerPatterns.OPACITY, "OpAcItY=50"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.OPACITY, "opacity:50"));
+    assertEquals(FAIL, match(RecognizerPatterns.OPACITY, "opacity"));
+  }
+
+  @Test
+  public void testProperty() {
+    assertEquals(5, match(RecognizerPatterns.PROPERTY, "color: red"));
+    assertEquals(5, match(RecognizerPatterns.PROPERTY, "*zoom: 1"));
+    assertEquals(1, match(RecognizerPatterns.PROPERTY, "-"));
+    assertEquals(2, match(RecognizerPatterns.PROPERTY, "*-"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.PROPERTY, "*"));
+    assertEquals(FAIL, match(RecognizerPatterns.PROPERTY, "Color"));
+  }
+
+  @Test
+  public void testRatio() {
+    assertEquals(4, match(RecognizerPatterns.RATIO, "16/9"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.RATIO, "16/"));
+    assertEquals(FAIL, match(RecognizerPatterns.RATIO, "/9"));
+  }
+
+  @Test
+  public void testShorthand() {
+    assertEquals(8, match(RecognizerPatterns.SHORTHAND, "12px/1.5 @font"));
+    assertEquals(9, match(RecognizerPatterns.SHORTHAND, "@a/@b-1.0"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.SHORTHAND, "12px/%"));
+    assertEquals(FAIL, match(RecognizerPatterns.SHORTHAND, "12px / 1.5"));
+  }
+
+  @Test
+  public void testUnicodeRange() {
+    assertEquals(11, match(RecognizerPatterns.UNICODE_RANGE, "U+0025-00FF;"));
+    assertEquals(5, match(RecognizerPatterns.UNICODE_RANGE, "U+4??"));
+    assertEquals(5, match(RecognizerPatterns.UNICODE_RANGE, "U+4??-"));
+
+    assertEquals(FAIL, match(RecognizerPatterns.UNICODE_RANGE, "u+0025"));
+    assertEquals(FAIL, match(RecognizerPatterns.UNICODE_RANGE, "U+"));
+  }
+
+  /**
+   * Each recognizer must match exactly what the regular expression it
+   * replaced in the parser matched.
+   */
+  @Test
+  public void testRegexEquivalence() {
+    String[] inputs = new String[] {
+      "", "a", "-", "--", "_", "*", "*-", "*-a", "@", "@a", "@media", "@font-face", "@A", ".", "#", ".a",
+      "#ns", ".a\\", ".a\\2a", ".a\\2a b", ".a\\1234567", ".a\\.b", ".a\\\n", "\u00e9", ".\u00e9",
+      "opacity=", "OPACITY=", "opacity", "1/2", "1/", "12px/1.5", "@a/@b", "a%/b", "a/b%", "U+", "U+1",
+      "U+1?-", "U+1?-2F", "U+??", "u+1", "=", "~=", "|=", "^=", "$=", "*=", "!=", "a\\.b", "-1x", "1-x",
+      "Color", "color", "_a", "a b", "\\a"
+    };
+    check(RecognizerPatterns.ATTRIBUTE_KEY, "([\\w-]|\\\\.)+", false, inputs);
+    check(RecognizerPatterns.ATTRIBUTE_OP, "[|~*$^]?=", false, inputs);
+    check(RecognizerPatterns.DIRECTIVE, "@[a-z-]+", false, inputs);
+    check(RecognizerPatterns.KEYWORD, "[_A-Za-z-][\\w-]*", false, inputs);
+    check(RecognizerPatterns.MIXIN_NAME, "[#.](?:[\\w-]|\\\\(?:[A-Fa-f0-9]{1,6} ?|[^A-Fa-f0-9]))+", false, inputs);
+    check(RecognizerPatterns.OPACITY, "opacity=", true, inputs);
+    check(RecognizerPatterns.PROPERTY, "\\*?-?[_a-z0-9-]+", false, inputs);
+    check(RecognizerPatterns.RATIO, "\\d+\\/\\d+", false, inputs);
+    check(RecognizerPatterns.SHORTHAND, "[@\\w.%-]+\\/[@\\w.-]+", false, inputs);
+    check(RecognizerPatterns.UNICODE_RANGE, "U\\+[A-Fa-f0-9?]+(\\-[A-Fa-f0-9?]+)?", false, inputs);
+  }
+
+  private void check(Recognizer pattern, String regex, boolean caseInsensitive, String[] inputs) {
+    Matcher matcher = Pattern.compile(regex, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0).matcher("");
+    for (String input : inputs) {
+      matcher.reset(input);
+      int expected = matcher.lookingAt() ? matcher.end() : FAIL;
+      assertEquals(match(pattern, input), expected, regex + " on '" + input + "'");
+    }
+  }
+
   private int match(Recognizer pattern, String str) {
     return match(pattern, 0, str);
   }
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.HashMapLessLoader;
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.Constants;
+import com.squarespace.less.core.ErrorUtils;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class StreamingParseTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSuiteUnchanged() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      LessOptions opts = options();
+      opts.addImportPath(lessRoot.toString());
+      String expected = result(source, opts, 0);
+      assertEquals(result(source, opts, 1), expected, lessPath.toString());
+      assertEquals(result(source, opts, 64), expected, lessPath.toString());
+    }
+  }
+
+  @Test
+  public void testOffsets() throws Exception {
+    String source = ".a {\n  color: red;\n}\n\n@b: 12px;  .c { width: @b; }\n/* comment */ .d { e: f; }\n.g { h: i; }";
+    FlexList<Node> expected = COMPILER.parse(source, new LessContext(options())).block().rules();
+    FlexList<Node> actual = parse(source, new LessContext(options()), 1).block().rules();
+    assertEquals(actual.size(), expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(actual.get(i), expected.get(i));
+      assertEquals(actual.get(i).lineOffset(), expected.get(i).lineOffset());
+      assertEquals(actual.get(i).charOffset(), expected.get(i).charOffset());
+    }
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    // A segment which fails to parse is joined with the next segment, which
+    // then reports the same error as the whole source.
+    String source = ".a { color: red; }\n.b { color: blue; }\n\n.c { color: red; } ~~~;\n.d { color: green; }";
+    String error = result(source, options(), 0);
+    assertTrue(error.startsWith("error: "), error);
+    assertTrue(error.contains("4   "), error);
+    assertEquals(result(source, options(), 1), error);
+
+    source = ".a { color: red; }\n.b { color: blue;\n";
+    error = result(source, options(), 0);
+    assertTrue(error.startsWith("error: "), error);
+    assertEquals(result(source, options(), 1), error);
+  }
+
+  @Test
+  public void testEarlyError() throws Exception {
+    // An error near the start of a source many windows long is reported
+    // without reading the rest of the source.
+    StringBuilder buf = new StringBuilder(".a { color: red; }\n.b { ~~~; }\n");
+    for (int i = 0; i < 2000; i++) {
+      buf.append(".r").append(i).append(" { width: ").append(i).append("px; }\n");
+    }
+    final String source = buf.toString();
+    String expected = result(source, options(), 0);
+    assertTrue(expected.startsWith("error: "), expected);
+
+    final int[] read = new int[1];
+    Reader reader = new TrickleReader(source) {
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        int count = super.read(cbuf, off, len);
+        read[0] += Math.max(count, 0);
+        return count;
+      }
+    };
+    LessContext ctx = new LessContext(options());
+    ctx.setFunctionTable(COMPILER.functionTable());
+    try {
+      new LessParser(ctx).parse(reader, path("foo.less"), 64);
+      fail("Expected LessException");
+    } catch (LessException e) {
+      assertEquals("error: " + ErrorUtils.formatError(path("foo.less"), e, 4), expected);
+    }
+    assertTrue(read[0] < 4 * 64, "read " + read[0] + " characters");
+  }
+
+  @Test
+  public void testImports() throws Exception {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("a.less"), "@color: red; .a { color: @color; }");
+    map.put(path("b.less"), ".b { width: @size; }");
+    String source = "@import 'a.less';\n.x { color: @color; }\n@size: 1px;\n@name: 'b';\n"
+        + "@import '@{name}.less';\n.p { @import 'a.less'; }\n@import 'a.less';";
+    LessOptions opts = options();
+    opts.importOnce(true);
+
+    String expected = ".a{color:red}.x{color:red}.b{width:1px}";
+    assertEquals(compile(source, new LessContext(opts, new HashMapLessLoader(map)), 0), expected);
+    assertEquals(compile(source, new LessContext(opts, new HashMapLessLoader(map)), 1), expected);
+  }
+
+  @Test
+  public void testChannel() throws Exception {
+    String source = ".a { content: \"\u00e9\"; }";
+    ByteArrayInputStream input = new ByteArrayInputStream(source.getBytes(Constants.UTF8));
+    LessContext ctx = new LessContext(options());
+    ctx.setFunctionTable(COMPILER.functionTable());
+    Stylesheet sheet = COMPILER.parse(Channels.newChannel(input), ctx, null);
+    assertEquals(COMPILER.render(sheet, ctx), ".a{content:\"\u00e9\"}");
+  }
+
+  @Test
+  public void testLargeSource() throws Exception {
+    // The source is generated as it is read, and is never held as a whole.
+    final int count = 20000;
+    Reader reader = new Reader() {
+      private final StringBuilder buf = new StringBuilder();
+      private int rule;
+
+      @Override
+      public int read(char[] cbuf, int off, int len) {
+        while (buf.length() < len && rule < count) {
+          buf.append(".r").append(rule).append(" {\n  width: ").append(rule++).append("px;\n}\n");
+        }
+        if (buf.length() == 0) {
+          return -1;
+        }
+        int n = Math.min(len, buf.length());
+        buf.getChars(0, n, cbuf, off);
+        buf.delete(0, n);
+        return n;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    LessContext ctx = new LessContext(options());
+    FlexList<Node> rules = COMPILER.parse(reader, ctx, null).block().rules();
+    assertEquals(rules.size(), count);
+    assertEquals(rules.get(count - 1).lineOffset(), (count - 1) * 3);
+  }
+
+  private static String result(String source, LessOptions opts, int windowSize) {
+    try {
+      return compile(source, new LessContext(opts), windowSize);
+    } catch (LessException e) {
+      return "error: " + ErrorUtils.formatError(path("foo.less"), e, 4);
+    }
+  }
+
+  /**
+   * Compiles the source, parsing it from a reader with the given window size,
+   * or from a string if the size is 0.
+   */
+  private static String compile(String source, LessContext ctx, int windowSize) throws LessException {
+    ctx.setFunctionTable(COMPILER.functionTable());
+    Stylesheet sheet = windowSize == 0 ? COMPILER.parse(source, ctx, path("foo.less")) : parse(source, ctx, windowSize);
+    return COMPILER.render(sheet, ctx);
+  }
+
+  private static Stylesheet parse(String source, LessContext ctx, int windowSize) throws LessException {
+    LessParser parser = new LessParser(ctx);
+    try {
+      parser.parse(new TrickleReader(source), path("foo.less"), windowSize);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return parser.stylesheet();
+  }
+
+  private static LessOptions options() {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    return opts;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Returns a few characters per read, so constructs are split across reads.
+   */
+  private static class TrickleReader extends StringReader {
+
+    TrickleReader(String source) {
+      super(source);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return super.read(cbuf, off, Math.min(len, 3));
+    }
+  }
+
+}